@@ -8,21 +8,44 @@ import nl.exl.doomidgamesarchive.idgamesapi.Request;
 public final class Config {
 
     // Maximum cache ages, in seconds.
-    public static final long MAXAGE_DEFAULT = 60 * 60 * 12;
     public static final long MAXAGE_BROWSE = 60 * 60 * 12;
     public static final long MAXAGE_NEWFILES = 60 * 60 * 4;
     public static final long MAXAGE_NEWVOTES = 60 * 60 * 4;
     public static final long MAXAGE_DETAILS = 60 * 60 * 24;
     public static final long MAXAGE_SEARCH = 60 * 60 * 12;
+
+    // Maximum time after expiring, in seconds, during which a cached response is still displayed
+    // while it is being revalidated.
+    public static final long MAXSTALE_NEWFILES = 60 * 60 * 24;
+    public static final long MAXSTALE_NEWVOTES = 60 * 60 * 24;
     
+    // Maximum size of the on-disk response snapshot store, in bytes.
+    public static final long SNAPSHOT_STORE_SIZE = 4 * 1024 * 1024;
+
+    // Maximum size of the on-disk store for file details, in bytes.
+    public static final long BLOB_STORE_SIZE = 8 * 1024 * 1024;
+
+    // Maximum number of files whose rendered details page text is kept in memory.
+    public static final int RENDERED_DETAILS_MAX = 16;
+
+    // Maximum number of file details pages whose state is kept in memory.
+    public static final int DETAILS_STATES_MAX = 16;
+
+    // Web API connection timeouts, in milliseconds.
+    public static final int TIMEOUT_CONNECT = 10 * 1000;
+    public static final int TIMEOUT_READ = 15 * 1000;
+
+    // Maximum number of idle keep-alive connections kept open to the web API.
+    public static final int CONNECTION_POOL_SIZE = 4;
+
     // Limit of items returned from the idgames API where appropriate.
-    public static final int LIMIT_DEFAULT = 30;
+    public static final int LIMIT_DEFAULT = Request.LIMIT_DEFAULT;
     public static final int LIMIT_NEWFILES = 30;
     public static final int LIMIT_NEWVOTES = 30;
     
-    // Default search category.
-    public static final int CATEGORY_DEFAULT = Request.CATEGORY_FILENAME;
-    
+    // Number of list rows assumed to be visible before a list has been laid out.
+    public static final int VISIBLE_ROWS_DEFAULT = 12;
+
     // Default HTTP idgames mirror URL.
     public static final String IDGAMES_MIRROR_DEFAULT = "https://www.quaddicted.com/files/idgames/";
 }
@@ -0,0 +1,183 @@
+package nl.exl.doomidgamesarchive;
+
+import android.text.Html;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.util.Linkify;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.exl.doomidgamesarchive.idgamesapi.FileDetails;
+import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
+import nl.exl.doomidgamesarchive.idgamesapi.Review;
+
+/**
+ * Renders the HTML text of file details pages into styled text, and keeps the rendered text of
+ * recently displayed files in memory.
+ *
+ * Rendering is done on a background thread. A details page that is displayed again, for example
+ * after a rotation, uses the rendered text of its file without parsing any HTML. If a file changed
+ * since it was rendered, only the sections and reviews whose HTML changed are rendered again.
+ */
+public class DetailRenderer {
+
+    // Link types that are added to sections that contain links.
+    private static final int LINK_MASK = Linkify.EMAIL_ADDRESSES | Linkify.WEB_URLS;
+
+    private static DetailRenderer INSTANCE;
+
+    // Rendered details by file id, in least to most recently used order.
+    private final LinkedHashMap<Integer, RenderedDetails> mItems = new LinkedHashMap<Integer, RenderedDetails>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, RenderedDetails> eldest) {
+            return size() > Config.RENDERED_DETAILS_MAX;
+        }
+    };
+
+
+    public static synchronized DetailRenderer getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new DetailRenderer();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the rendered details of a file entry, if they are in memory.
+     *
+     * @param file The file entry to return the rendered details of.
+     *
+     * @return The rendered details, or null if the entry has not been rendered with its current contents.
+     */
+    public synchronized RenderedDetails get(FileEntry file) {
+        RenderedDetails rendered = mItems.get(file.getId());
+        if (rendered == null) {
+            return null;
+        }
+        if (rendered.getFile() != file && !rendered.getFile().isContentEqual(file)) {
+            return null;
+        }
+
+        return rendered;
+    }
+
+    /**
+     * Renders the text of a file entry and its details. Must not be called on the UI thread.
+     *
+     * @param file The file entry to render.
+     * @param details The details of the file entry, or null if it has none or they could not be loaded.
+     * @param detailsMissing True if the entry's details were offloaded but could not be loaded.
+     *
+     * @return The rendered details.
+     */
+    public RenderedDetails render(FileEntry file, FileDetails details, boolean detailsMissing) {
+
+        // Text that did not change since the file was last rendered is reused.
+        RenderedDetails previous;
+        synchronized (this) {
+            previous = mItems.get(file.getId());
+        }
+
+        List<RenderedDetails.Section> sections = new ArrayList<>();
+        addSection(sections, previous, "Description", true, file.getDescription());
+        addSection(sections, previous, "Author", true, file.getAuthor(), file.getEmail());
+        addSection(sections, previous, "File", false, file.getFileName(), file.getLocaleDate(), file.getFileSizeString());
+
+        List<RenderedDetails.RenderedReview> reviews = new ArrayList<>();
+        if (details != null) {
+            addSection(sections, previous, "Credits", true, details.getCredits());
+            addSection(sections, previous, "Based on", false, details.getBase());
+            addSection(sections, previous, "Build time", false, details.getBuildTime());
+            addSection(sections, previous, "Editors used", false, details.getEditorsUsed());
+            addSection(sections, previous, "Bugs", false, details.getBugs());
+
+            // Reviews have no id of their own, so they are identified by their position in the file.
+            List<Review> fileReviews = details.getReviews();
+            for (int i = 0; i < fileReviews.size(); i++) {
+                Review review = fileReviews.get(i);
+                CharSequence text = null;
+                if (previous != null && i < previous.getReviews().size()) {
+                    RenderedDetails.RenderedReview previousReview = previous.getReviews().get(i);
+                    if (previousReview.getSource().equals(review.getText())) {
+                        text = previousReview.getText();
+                    }
+                }
+                if (text == null) {
+                    text = renderHtml(review.getText(), false);
+                }
+                reviews.add(new RenderedDetails.RenderedReview(review.getText(), text, review.getUsername(), review.getRating()));
+            }
+        }
+
+        RenderedDetails rendered = new RenderedDetails(file, sections, reviews, detailsMissing);
+
+        // Incomplete details are not kept, so that they are rendered again once they are complete.
+        if (!detailsMissing) {
+            synchronized (this) {
+                mItems.put(file.getId(), rendered);
+            }
+        }
+
+        return rendered;
+    }
+
+    /**
+     * Adds a rendered section of file info. Sections without any text are not added.
+     *
+     * @param sections The list of sections to add to.
+     * @param previous The previously rendered details of the file, or null if there are none.
+     * @param title The title of the section.
+     * @param parseLinks True if web and email links should be added to the section's text.
+     * @param texts Variable number of strings to place under this section.
+     */
+    private static void addSection(List<RenderedDetails.Section> sections, RenderedDetails previous, String title, boolean parseLinks, String... texts) {
+        StringBuilder total = new StringBuilder();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            text = text.trim();
+            if (text.length() > 0) {
+                total.append(" - ");
+                total.append(text);
+            }
+        }
+        if (total.length() == 0) {
+            return;
+        }
+        String source = total.substring(3);
+
+        if (previous != null) {
+            for (RenderedDetails.Section section : previous.getSections()) {
+                if (section.getTitle().equals(title) && section.isLinked() == parseLinks && section.getSource().equals(source)) {
+                    sections.add(section);
+                    return;
+                }
+            }
+        }
+
+        sections.add(new RenderedDetails.Section(title, source, renderHtml(source, parseLinks), parseLinks));
+    }
+
+    /**
+     * Renders an HTML fragment into immutable styled text.
+     *
+     * @param html The HTML to render.
+     * @param parseLinks True if web and email links should be added to the text.
+     *
+     * @return The styled text.
+     */
+    private static CharSequence renderHtml(String html, boolean parseLinks) {
+        Spanned spanned = Html.fromHtml(html);
+        if (parseLinks) {
+            SpannableString linked = new SpannableString(spanned);
+            Linkify.addLinks(linked, LINK_MASK);
+            return new SpannedString(linked);
+        }
+        return new SpannedString(spanned);
+    }
+}
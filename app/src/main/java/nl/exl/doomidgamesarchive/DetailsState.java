@@ -0,0 +1,226 @@
+package nl.exl.doomidgamesarchive;
+
+import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
+import nl.exl.doomidgamesarchive.idgamesapi.Request;
+import nl.exl.doomidgamesarchive.idgamesapi.Response;
+import nl.exl.doomidgamesarchive.idgamesapi.ResponseCache;
+import nl.exl.doomidgamesarchive.tasks.FileInfoFetchTask;
+import nl.exl.doomidgamesarchive.tasks.TaskScheduler;
+
+/**
+ * The state of the details page of a single file: the file entry that is displayed, the task that
+ * is fetching it and the scroll position of the page.
+ *
+ * Details states are kept by the StateRepository and outlive the activities that display them, so
+ * that an activity that is recreated or opened again for the same file re-attaches to the file
+ * entry or to the fetch that is still in progress.
+ */
+public class DetailsState {
+
+    // The file info request of the page.
+    private final Request mRequest;
+
+    // The file entry that is displayed. Null if it could not be fetched.
+    private FileEntry mFile;
+
+    // True once a file entry has been fetched, even if it was null.
+    private boolean mLoaded;
+
+    // True if the displayed file entry is stale and is being revalidated.
+    private boolean mStale;
+
+    // The time at which the displayed file entry expires, in milliseconds.
+    private long mExpires;
+
+    // The task that is fetching the file entry, or null if nothing is being fetched.
+    private FileInfoFetchTask mTask;
+
+    // The vertical scroll position of the page.
+    private int mScrollY;
+
+    // The listener that displays this state, if any.
+    private Listener mListener;
+
+
+    /**
+     * Interface for displaying a details state.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the UI thread when a file entry or a stale file entry has been fetched.
+         *
+         * @param state The details state that changed.
+         */
+        void onDetailsStateChanged(DetailsState state);
+    }
+
+
+    DetailsState(Request request) {
+        mRequest = request;
+    }
+
+    public Request getRequest() {
+        return mRequest;
+    }
+
+    /**
+     * @return The file entry that is displayed, or null if it could not be fetched.
+     */
+    public FileEntry getFile() {
+        return mFile;
+    }
+
+    /**
+     * @return True if a file entry has been fetched.
+     */
+    public boolean isLoaded() {
+        return mLoaded;
+    }
+
+    /**
+     * @return True if the displayed file entry is stale and is being revalidated.
+     */
+    public boolean isStale() {
+        return mStale;
+    }
+
+    /**
+     * @return True if a file entry is being fetched.
+     */
+    public boolean isLoading() {
+        return mTask != null;
+    }
+
+    public int getScrollY() {
+        return mScrollY;
+    }
+
+    public void setScrollY(int scrollY) {
+        mScrollY = scrollY;
+    }
+
+    /**
+     * Attaches a listener that displays this state. Replaces any previous listener.
+     *
+     * @param listener The listener to attach.
+     */
+    public void attach(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Detaches a listener, if it is the one that is attached.
+     *
+     * @param listener The listener to detach.
+     */
+    public void detach(Listener listener) {
+        if (mListener == listener) {
+            mListener = null;
+        }
+    }
+
+    /**
+     * Fetches the file entry, unless an unexpired one is displayed already or one is still being
+     * fetched. Fresh file info in the memory cache is used right away without starting a task.
+     */
+    public void load() {
+        if (isLoading() || (mLoaded && !mStale && System.currentTimeMillis() < mExpires)) {
+            return;
+        }
+
+        ResponseCache cache = ResponseCache.getInstance();
+        Response response = cache.get(mRequest);
+        if (response != null) {
+            setFile(FileInfoFetchTask.getFileEntry(response));
+            return;
+        }
+
+        // Display the last known file info while it is being revalidated.
+        response = cache.getStale(mRequest);
+        if (response != null) {
+            setStaleFile(FileInfoFetchTask.getFileEntry(response));
+        }
+
+        fetch();
+    }
+
+    /**
+     * Fetches the file entry again, even if it has not expired. The displayed file entry is kept
+     * until the new one has been fetched.
+     */
+    public void reload() {
+        cancel();
+        fetch();
+    }
+
+    /**
+     * Stops fetching the file entry, if it is being fetched.
+     */
+    public void cancel() {
+        if (mTask != null) {
+            mTask.abort();
+            mTask = null;
+        }
+        TaskScheduler.getInstance().cancelAll(this);
+    }
+
+    private void fetch() {
+        mTask = new FileInfoFetchTask(this);
+        TaskScheduler.getInstance().execute(mTask, TaskScheduler.PRIORITY_FOREGROUND, this, mRequest);
+    }
+
+    /**
+     * Displays a file entry that has been fetched or revalidated.
+     *
+     * @param file The file entry, or null if it could not be fetched.
+     */
+    public void setFile(FileEntry file) {
+        // Files that could not be fetched are fetched again when their page is displayed again.
+        if (file != null) {
+            setFile(file, System.currentTimeMillis() + mRequest.getMaxAge() * 1000);
+        } else {
+            setFile(null, 0);
+        }
+    }
+
+    /**
+     * Displays a stale file entry that could not be revalidated. It is no longer being
+     * revalidated, but it stays expired, so it is revalidated again when its page is displayed
+     * again.
+     *
+     * @param file The stale file entry.
+     */
+    public void setUnrevalidatedFile(FileEntry file) {
+        setFile(file, 0);
+    }
+
+    private void setFile(FileEntry file, long expires) {
+        mTask = null;
+        mFile = file;
+        mLoaded = true;
+        mStale = false;
+        mExpires = expires;
+
+        notifyChanged();
+    }
+
+    /**
+     * Displays a stale file entry while it is being revalidated.
+     *
+     * @param file The stale file entry.
+     */
+    public void setStaleFile(FileEntry file) {
+        mFile = file;
+        mLoaded = true;
+        mStale = true;
+
+        notifyChanged();
+    }
+
+    private void notifyChanged() {
+        if (mListener != null) {
+            mListener.onDetailsStateChanged(this);
+        }
+    }
+}
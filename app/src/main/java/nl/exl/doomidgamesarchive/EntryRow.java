@@ -0,0 +1,254 @@
+package nl.exl.doomidgamesarchive;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import nl.exl.doomidgamesarchive.idgamesapi.Entry;
+import nl.exl.doomidgamesarchive.idgamesapi.EntryTable;
+import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
+
+/**
+ * The contents of a single list row, prepared from a row of an IdgamesApi entry table.
+ *
+ * Rows are immutable, and are usually created on the background thread that loaded their entries,
+ * so that binding a row to a list item View does not need to do any formatting. A row refers to
+ * its entry by table and index, an entry object is only created for it when one is needed.
+ */
+public final class EntryRow {
+
+    // The table and index of the entry that this row displays.
+    private final EntryTable mTable;
+    private final int mIndex;
+
+    // The kind of entry, one of the EntryTable.KIND_* constants.
+    private final int mKind;
+
+    // The id of the entry itself.
+    private final int mId;
+
+    // The id of the file that the entry is for, or of the file that was voted on for a vote.
+    private final int mFileId;
+
+    // Text of the row. The title is "..." if the entry has none.
+    private final String mTitle;
+    private final boolean mHasTitle;
+    private final String mSubtitle;
+
+    // The rating of the row, or a negative value if it displays no rating.
+    private final float mRating;
+
+    // The collation key of the title, created the first time that the row is sorted.
+    private volatile byte[] mCollationKey;
+
+
+    private EntryRow(EntryTable table, int index, int kind, int id, int fileId, String title, String subtitle, float rating) {
+        mTable = table;
+        mIndex = index;
+        mKind = kind;
+        mId = id;
+        mFileId = fileId;
+        mHasTitle = title.length() > 0;
+        mTitle = mHasTitle ? title : "...";
+        mSubtitle = subtitle;
+        mRating = rating;
+    }
+
+    /**
+     * Creates the row for the entry that a table row points at. Can be called on any thread.
+     *
+     * @param table The table of the entry.
+     * @param row A row of the table, positioned at the entry to create a row for.
+     *
+     * @return The new row.
+     */
+    private static EntryRow create(EntryTable table, EntryTable.Row row) {
+        int kind = row.getKind();
+        String title = row.getDisplayTitle();
+
+        if (kind == EntryTable.KIND_DIRECTORY) {
+            return new EntryRow(table, row.getIndex(), kind, row.getId(), row.getId(), title, null, -1);
+
+        } else if (kind == EntryTable.KIND_FILE) {
+            String text = table.getText();
+            StringBuilder subText = new StringBuilder();
+
+            int start = row.getStart(EntryTable.COLUMN_AUTHOR);
+            subText.append(text, start, start + row.getLength(EntryTable.COLUMN_AUTHOR));
+
+            // Add date.
+            if (row.getLength(EntryTable.COLUMN_LOCALE_DATE) > 0) {
+                start = row.getStart(EntryTable.COLUMN_LOCALE_DATE);
+                subText.append(" - ");
+                subText.append(text, start, start + row.getLength(EntryTable.COLUMN_LOCALE_DATE));
+            }
+
+            // Add file size.
+            if (row.getFileSize() > 0) {
+                subText.append(" - ");
+                subText.append(FileEntry.formatFileSize(row.getFileSize()));
+            }
+
+            return new EntryRow(table, row.getIndex(), kind, row.getId(), row.getId(), title, subText.toString(), row.getRating());
+        }
+
+        // Votes.
+        String author = null;
+        if (row.getLength(EntryTable.COLUMN_AUTHOR) > 0) {
+            author = row.getString(EntryTable.COLUMN_AUTHOR);
+        }
+        return new EntryRow(table, row.getIndex(), kind, row.getId(), row.getFileId(), title, author, row.getRating());
+    }
+
+    /**
+     * Creates the rows for all entries of a table. Can be called on any thread.
+     *
+     * @param table The table to create rows for.
+     *
+     * @return The new rows, in the same order as the table.
+     */
+    public static List<EntryRow> createAll(EntryTable table) {
+        List<EntryRow> rows = new ArrayList<>(table.size());
+        EntryTable.Row row = table.row();
+        for (int i = 0; i < table.size(); i++) {
+            rows.add(create(table, row.moveTo(i)));
+        }
+        return rows;
+    }
+
+    /**
+     * Creates the rows for a list of entries. Can be called on any thread.
+     *
+     * @param entries The entries to create rows for.
+     *
+     * @return The new rows, in the same order as the entries.
+     */
+    public static List<EntryRow> createAll(List<Entry> entries) {
+        return createAll(EntryTable.of(entries));
+    }
+
+    /**
+     * Returns a copy of this row with another title, for votes whose title was fetched separately.
+     *
+     * @param title The new title.
+     *
+     * @return The new row.
+     */
+    EntryRow withTitle(String title) {
+        return new EntryRow(mTable, mIndex, mKind, mId, mFileId, title, mSubtitle, mRating);
+    }
+
+    /**
+     * Creates a new entry object with the contents of this row. The title of a vote row that was
+     * changed with withTitle is not part of the entry.
+     *
+     * @return The new entry.
+     */
+    public Entry getEntry() {
+        return mTable.getEntry(mIndex);
+    }
+
+    EntryTable getTable() {
+        return mTable;
+    }
+
+    /**
+     * @return The index of this row's entry in its table.
+     */
+    int getIndex() {
+        return mIndex;
+    }
+
+    /**
+     * Returns the collation key of this row's title. The key is only created once, so a row can
+     * be sorted again without comparing its title's characters. Can be called on any thread.
+     *
+     * @return The collation key, to be compared as unsigned bytes.
+     */
+    byte[] getCollationKey() {
+        byte[] key = mCollationKey;
+        if (key == null) {
+            key = RowSorter.createCollationKey(mTitle);
+            mCollationKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * @return One of the EntryTable.KIND_* constants.
+     */
+    public int getKind() {
+        return mKind;
+    }
+
+    /**
+     * @return The id of the entry that this row displays. Only unique among entries of the same kind.
+     */
+    public int getId() {
+        return mId;
+    }
+
+    /**
+     * @return The id of the file that this row is for, or of the file that was voted on for a vote.
+     */
+    public int getFileId() {
+        return mFileId;
+    }
+
+    /**
+     * Returns whether another row displays the same entry contents as this one.
+     *
+     * @param other The row to compare with.
+     *
+     * @return True if both rows have equal contents.
+     */
+    public boolean isContentEqual(EntryRow other) {
+        return mTitle.equals(other.mTitle) && isEntryEqual(other);
+    }
+
+    /**
+     * Returns whether another row displays an entry with the same contents as this one, not
+     * taking titles that were changed with withTitle into account.
+     *
+     * @param other The row to compare with.
+     *
+     * @return True if both rows have equal entry contents.
+     */
+    public boolean isEntryEqual(EntryRow other) {
+        return mTable.isContentEqual(mIndex, other.mTable, other.mIndex);
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * @return False if the entry has no title, and "..." is displayed instead.
+     */
+    public boolean hasTitle() {
+        return mHasTitle;
+    }
+
+    /**
+     * @return The subtitle of this row, or null if it has none.
+     */
+    public String getSubtitle() {
+        return mSubtitle;
+    }
+
+    /**
+     * @return True if this row displays a rating.
+     */
+    public boolean hasRating() {
+        return mRating >= 0;
+    }
+
+    public float getRating() {
+        return mRating;
+    }
+
+    @NonNull
+    public String toString() {
+        return mTitle;
+    }
+}
@@ -0,0 +1,264 @@
+package nl.exl.doomidgamesarchive;
+
+import android.text.Layout;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.text.style.BackgroundColorSpan;
+
+import nl.exl.doomidgamesarchive.idgamesapi.EntryTable;
+
+/**
+ * The text layouts and positions of a single list row at a specific width.
+ *
+ * Row layouts are immutable and can be created on any thread, as long as the text paints that are
+ * passed in are not used by another thread at the same time. Each kind of entry is measured in
+ * its own way: directories have an icon and a title, files and votes have a title, a subtitle and
+ * a rating. While a list is filtered, the occurrences of the filter query in the title and
+ * subtitle can be highlighted.
+ */
+public final class EntryRowLayout {
+
+    // The width and height of the row.
+    private final int mWidth;
+    private final int mHeight;
+
+    // The title and subtitle text, each ellipsized to a single line. The subtitle may be null.
+    private final Layout mTitle;
+    private final Layout mSubtitle;
+
+    // Where the text is drawn.
+    private final int mTextX;
+    private final int mTitleY;
+    private final int mSubtitleY;
+
+    // Where the directory icon or the rating is drawn, or -1 if the row has neither.
+    private final int mIconX;
+    private final int mIconY;
+    private final int mRatingX;
+    private final int mRatingY;
+
+
+    private EntryRowLayout(int width, int height, Layout title, Layout subtitle, int textX, int titleY, int subtitleY, int iconX, int iconY, int ratingX, int ratingY) {
+        mWidth = width;
+        mHeight = height;
+        mTitle = title;
+        mSubtitle = subtitle;
+        mTextX = textX;
+        mTitleY = titleY;
+        mSubtitleY = subtitleY;
+        mIconX = iconX;
+        mIconY = iconY;
+        mRatingX = ratingX;
+        mRatingY = ratingY;
+    }
+
+    /**
+     * Lays out a row.
+     *
+     * @param row The row to lay out.
+     * @param style The style of the list.
+     * @param titlePaint The paint to lay out the title with. The layout keeps a reference to it.
+     * @param subtitlePaint The paint to lay out the subtitle with. The layout keeps a reference to it.
+     * @param width The width of the row, in pixels.
+     * @param highlight The folded filter query to highlight, or null to highlight nothing.
+     *
+     * @return The new row layout.
+     */
+    public static EntryRowLayout create(EntryRow row, EntryRowStyle style, TextPaint titlePaint, TextPaint subtitlePaint, int width, String highlight) {
+        highlight = getDisplayedHighlight(row, highlight);
+        if (row.getKind() == EntryTable.KIND_DIRECTORY) {
+            return createDirectory(row, style, titlePaint, width, highlight);
+        }
+        return createRated(row, style, titlePaint, subtitlePaint, width, highlight);
+    }
+
+    /**
+     * Returns whether a row displays a filter query. Rows that do not can be displayed with the
+     * layout that they have without any highlights.
+     *
+     * @param row The row.
+     * @param highlight The folded filter query.
+     *
+     * @return True if the query occurs in the title or subtitle of the row.
+     */
+    public static boolean displaysHighlight(EntryRow row, String highlight) {
+        return getDisplayedHighlight(row, highlight) != null;
+    }
+
+    /**
+     * Returns the filter query that is highlighted in a row.
+     *
+     * @param row The row.
+     * @param highlight The folded filter query.
+     *
+     * @return The query, or null if the row does not display it.
+     */
+    private static String getDisplayedHighlight(EntryRow row, String highlight) {
+        if (highlight == null) {
+            return null;
+        }
+        if (RowFilterIndex.fold(row.getTitle()).contains(highlight)) {
+            return highlight;
+        }
+        if (row.getSubtitle() != null && RowFilterIndex.fold(row.getSubtitle()).contains(highlight)) {
+            return highlight;
+        }
+        return null;
+    }
+
+    /**
+     * Lays out a directory row. Directories have an icon followed by their title.
+     */
+    private static EntryRowLayout createDirectory(EntryRow row, EntryRowStyle style, TextPaint titlePaint, int width, String highlight) {
+        int iconX = style.getPaddingHorizontal();
+        int textX = iconX + style.getIconSize() + style.getGap();
+        int textWidth = Math.max(0, width - textX - style.getPaddingHorizontal());
+
+        Layout title = createLine(highlight(row.getTitle(), highlight, style), titlePaint, textWidth);
+        int contentHeight = Math.max(style.getIconSize(), title.getHeight());
+        int height = contentHeight + style.getPaddingVertical() * 2;
+
+        int iconY = (height - style.getIconSize()) / 2;
+        int titleY = (height - title.getHeight()) / 2;
+
+        return new EntryRowLayout(width, height, title, null, textX, titleY, 0, iconX, iconY, -1, -1);
+    }
+
+    /**
+     * Lays out a file or vote row. These have a title with a subtitle below it, and a rating on the
+     * right side of the row.
+     */
+    private static EntryRowLayout createRated(EntryRow row, EntryRowStyle style, TextPaint titlePaint, TextPaint subtitlePaint, int width, String highlight) {
+        int textX = style.getPaddingHorizontal();
+        int ratingX = width - style.getPaddingHorizontal() - style.getRatingWidth();
+        int textWidth = Math.max(0, ratingX - style.getGap() - textX);
+
+        Layout title = createLine(highlight(row.getTitle(), highlight, style), titlePaint, textWidth);
+        Layout subtitle = null;
+        int textHeight = title.getHeight();
+        if (row.getSubtitle() != null) {
+            subtitle = createLine(highlight(row.getSubtitle(), highlight, style), subtitlePaint, textWidth);
+            textHeight += subtitle.getHeight();
+        }
+
+        int contentHeight = Math.max(textHeight, style.getRatingHeight());
+        int height = contentHeight + style.getPaddingVertical() * 2;
+
+        int titleY = (height - textHeight) / 2;
+        int subtitleY = titleY + title.getHeight();
+        int ratingY = (height - style.getRatingHeight()) / 2;
+        if (!row.hasRating()) {
+            ratingX = -1;
+            ratingY = -1;
+        }
+
+        return new EntryRowLayout(width, height, title, subtitle, textX, titleY, subtitleY, -1, -1, ratingX, ratingY);
+    }
+
+    /**
+     * Highlights every occurrence of a filter query in text.
+     *
+     * @param text The text.
+     * @param highlight The folded filter query, or null to highlight nothing.
+     * @param style The style of the list.
+     *
+     * @return The text, with spans for the occurrences of the query if there are any.
+     */
+    private static CharSequence highlight(String text, String highlight, EntryRowStyle style) {
+        if (highlight == null) {
+            return text;
+        }
+
+        String folded = RowFilterIndex.fold(text);
+        int start = folded.indexOf(highlight);
+        if (start < 0) {
+            return text;
+        }
+
+        SpannableString highlighted = new SpannableString(text);
+        while (start >= 0) {
+            int end = start + highlight.length();
+            highlighted.setSpan(new BackgroundColorSpan(style.getHighlightColor()), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            start = folded.indexOf(highlight, end);
+        }
+        return highlighted;
+    }
+
+    /**
+     * Lays out a single line of text, ellipsized at the end if it does not fit.
+     *
+     * @param text The text to lay out.
+     * @param paint The paint to lay out the text with.
+     * @param width The available width.
+     *
+     * @return The new layout.
+     */
+    private static Layout createLine(CharSequence text, TextPaint paint, int width) {
+        CharSequence line = TextUtils.ellipsize(text, paint, width, TextUtils.TruncateAt.END);
+        return new StaticLayout(line, paint, Math.max(width, 1), Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, false);
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    Layout getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * @return The layout of the subtitle, or null if the row has none.
+     */
+    Layout getSubtitle() {
+        return mSubtitle;
+    }
+
+    int getTextX() {
+        return mTextX;
+    }
+
+    int getTitleY() {
+        return mTitleY;
+    }
+
+    int getSubtitleY() {
+        return mSubtitleY;
+    }
+
+    /**
+     * @return True if a directory icon is drawn.
+     */
+    boolean hasIcon() {
+        return mIconX >= 0;
+    }
+
+    int getIconX() {
+        return mIconX;
+    }
+
+    int getIconY() {
+        return mIconY;
+    }
+
+    /**
+     * @return True if a rating is drawn.
+     */
+    boolean hasRating() {
+        return mRatingX >= 0;
+    }
+
+    int getRatingX() {
+        return mRatingX;
+    }
+
+    int getRatingY() {
+        return mRatingY;
+    }
+}
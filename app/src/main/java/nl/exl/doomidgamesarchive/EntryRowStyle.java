@@ -0,0 +1,179 @@
+package nl.exl.doomidgamesarchive;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+import android.text.style.TextAppearanceSpan;
+
+import androidx.appcompat.content.res.AppCompatResources;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Paints, icons and dimensions that are shared by all list rows drawn by EntryRowView.
+ *
+ * A style is created once per list on the UI thread. Rows that are laid out on the UI thread use
+ * its text paints directly, other threads lay out rows with copies of them that were made on the
+ * UI thread.
+ */
+public final class EntryRowStyle {
+
+    // The number of rating icons drawn for a row.
+    private static final int RATING_MAX = 5;
+
+    // The scale at which rating icons are drawn.
+    private static final float RATING_SCALE = 0.55f;
+
+    // Text paints for titles and subtitles. Only the UI thread uses these, other threads get copies.
+    private final TextPaint mTitlePaint;
+    private final TextPaint mSubtitlePaint;
+
+    // Paint used for drawing rating icons.
+    private final Paint mRatingPaint;
+
+    // Background color of text that matches the filter query of a list.
+    private final int mHighlightColor;
+
+    // The icon drawn for directories.
+    private final Drawable mDirectoryIcon;
+
+    // The rating icons of all rows, taken from the shared rating atlas. Null if the icons could
+    // not be decoded, in which case no ratings are drawn.
+    private final RatingAtlas.Strip mRatingStrip;
+
+    // Dimensions, in pixels.
+    private final int mPaddingHorizontal;
+    private final int mPaddingVertical;
+    private final int mIconSize;
+    private final int mGap;
+
+
+    EntryRowStyle(Context context) {
+        Resources resources = context.getResources();
+
+        mTitlePaint = createTextPaint(context, R.style.TextAppearance_MaterialComponents_Headline6);
+        mSubtitlePaint = createTextPaint(context, R.style.TextAppearance_MaterialComponents_Subtitle1);
+
+        mRatingPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        mHighlightColor = ContextCompat.getColor(context, R.color.filterHighlight);
+
+        mDirectoryIcon = AppCompatResources.getDrawable(context, R.drawable.ic_folder_black_24dp);
+
+        RatingAtlas atlas = RatingAtlas.getInstance(resources, R.drawable.rating_skull_empty, R.drawable.rating_skull_blue_half, R.drawable.rating_skull_blue_full);
+        if (atlas != null) {
+            mRatingStrip = atlas.getStrip(RATING_MAX, RATING_SCALE, Math.round(resources.getDisplayMetrics().density));
+        } else {
+            mRatingStrip = null;
+        }
+
+        mPaddingHorizontal = resources.getDimensionPixelSize(R.dimen.PaddingMedium);
+        mPaddingVertical = resources.getDimensionPixelSize(R.dimen.PaddingSmall);
+        mIconSize = Math.round(32 * resources.getDisplayMetrics().density);
+        mGap = resources.getDimensionPixelSize(R.dimen.PaddingMedium);
+    }
+
+    /**
+     * Creates a text paint with the size, typeface and color of a text appearance style.
+     *
+     * @param context The context to resolve the style's attributes with.
+     * @param appearance The resource id of the text appearance style.
+     *
+     * @return The new paint.
+     */
+    private static TextPaint createTextPaint(Context context, int appearance) {
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.density = context.getResources().getDisplayMetrics().density;
+
+        TextAppearanceSpan span = new TextAppearanceSpan(context, appearance);
+        span.updateMeasureState(paint);
+
+        ColorStateList color = span.getTextColor();
+        if (color != null) {
+            paint.setColor(color.getDefaultColor());
+        }
+
+        return paint;
+    }
+
+    /**
+     * @return The paint for row titles. Must only be used on the UI thread.
+     */
+    TextPaint getTitlePaint() {
+        return mTitlePaint;
+    }
+
+    /**
+     * @return The paint for row subtitles. Must only be used on the UI thread.
+     */
+    TextPaint getSubtitlePaint() {
+        return mSubtitlePaint;
+    }
+
+    /**
+     * @return A new copy of the paint for row titles. Must only be called on the UI thread.
+     */
+    public TextPaint newTitlePaint() {
+        return new TextPaint(mTitlePaint);
+    }
+
+    /**
+     * @return A new copy of the paint for row subtitles. Must only be called on the UI thread.
+     */
+    public TextPaint newSubtitlePaint() {
+        return new TextPaint(mSubtitlePaint);
+    }
+
+    Paint getRatingPaint() {
+        return mRatingPaint;
+    }
+
+    int getHighlightColor() {
+        return mHighlightColor;
+    }
+
+    Drawable getDirectoryIcon() {
+        return mDirectoryIcon;
+    }
+
+    /**
+     * @return The rating icons of all rows, or null if they could not be decoded.
+     */
+    RatingAtlas.Strip getRatingStrip() {
+        return mRatingStrip;
+    }
+
+    int getPaddingHorizontal() {
+        return mPaddingHorizontal;
+    }
+
+    int getPaddingVertical() {
+        return mPaddingVertical;
+    }
+
+    int getIconSize() {
+        return mIconSize;
+    }
+
+    /**
+     * @return The space between the text of a row and its icon or rating.
+     */
+    int getGap() {
+        return mGap;
+    }
+
+    /**
+     * @return The width of all rating icons of a row together, or 0 if they are not drawn.
+     */
+    int getRatingWidth() {
+        return mRatingStrip != null ? mRatingStrip.getWidth() : 0;
+    }
+
+    /**
+     * @return The height of the rating icons of a row, or 0 if they are not drawn.
+     */
+    int getRatingHeight() {
+        return mRatingStrip != null ? mRatingStrip.getHeight() : 0;
+    }
+}
@@ -0,0 +1,115 @@
+package nl.exl.doomidgamesarchive;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Draws a complete list row as a single View: the directory icon, the title and subtitle, and the
+ * rating icons.
+ *
+ * The text of a row is drawn from a row layout that is usually prepared on a background thread.
+ * If a row is bound without a layout for the current width, one is created when the View is
+ * measured.
+ */
+public class EntryRowView extends View {
+
+    // The shared style of the list that this row is part of.
+    private EntryRowStyle mStyle;
+
+    // The row that is displayed, and its layout.
+    private EntryRow mRow;
+    private EntryRowLayout mLayout;
+
+
+    public EntryRowView(Context context) {
+        super(context);
+    }
+
+    public EntryRowView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    void setStyle(EntryRowStyle style) {
+        mStyle = style;
+    }
+
+    /**
+     * Displays a row.
+     *
+     * @param row The row to display.
+     * @param layout A layout of the row, or null if none was prepared.
+     */
+    void bind(EntryRow row, EntryRowLayout layout) {
+        int previousHeight = mLayout != null ? mLayout.getHeight() : -1;
+
+        mRow = row;
+        mLayout = layout;
+        setContentDescription(row.getTitle());
+
+        // Rows of the same kind usually have the same height, so only these need to be laid out again.
+        if (layout == null || layout.getWidth() != getWidth() || layout.getHeight() != previousHeight) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    /**
+     * @return The layout that the displayed row is drawn with, or null if it has not been laid out yet.
+     */
+    EntryRowLayout getRowLayout() {
+        return mLayout;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        if (mRow == null || mStyle == null) {
+            setMeasuredDimension(width, getSuggestedMinimumHeight());
+            return;
+        }
+
+        // Lay out the row here if no layout was prepared for this width. This runs on the UI thread,
+        // so the paints of the style can be used without copying them.
+        if (mLayout == null || mLayout.getWidth() != width) {
+            mLayout = EntryRowLayout.create(mRow, mStyle, mStyle.getTitlePaint(), mStyle.getSubtitlePaint(), width, null);
+        }
+
+        setMeasuredDimension(width, resolveSize(mLayout.getHeight(), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        if (mLayout == null || mStyle == null) {
+            return;
+        }
+
+        if (mLayout.hasIcon()) {
+            Drawable icon = mStyle.getDirectoryIcon();
+            int size = mStyle.getIconSize();
+            icon.setBounds(mLayout.getIconX(), mLayout.getIconY(), mLayout.getIconX() + size, mLayout.getIconY() + size);
+            icon.draw(canvas);
+        }
+
+        canvas.save();
+        canvas.translate(mLayout.getTextX(), mLayout.getTitleY());
+        mLayout.getTitle().draw(canvas);
+        canvas.restore();
+
+        if (mLayout.getSubtitle() != null) {
+            canvas.save();
+            canvas.translate(mLayout.getTextX(), mLayout.getSubtitleY());
+            mLayout.getSubtitle().draw(canvas);
+            canvas.restore();
+        }
+
+        RatingAtlas.Strip strip = mStyle.getRatingStrip();
+        if (mLayout.hasRating() && strip != null) {
+            canvas.drawBitmap(strip.getRendered(strip.getStep(mRow.getRating())), mLayout.getRatingX(), mLayout.getRatingY(), mStyle.getRatingPaint());
+        }
+    }
+}
@@ -1,230 +1,682 @@
 package nl.exl.doomidgamesarchive;
 
 import android.content.Context;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
-import android.widget.ImageView;
-import android.widget.TextView;
 
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import androidx.annotation.NonNull;
-import nl.exl.doomidgamesarchive.idgamesapi.DirectoryEntry;
-import nl.exl.doomidgamesarchive.idgamesapi.Entry;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+import nl.exl.doomidgamesarchive.idgamesapi.EntryTable;
 import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
 import nl.exl.doomidgamesarchive.idgamesapi.Request;
-import nl.exl.doomidgamesarchive.idgamesapi.ResponseTask;
-import nl.exl.doomidgamesarchive.idgamesapi.VoteEntry;
+import nl.exl.doomidgamesarchive.tasks.ResponseTask;
+import nl.exl.doomidgamesarchive.tasks.RowLayoutTask;
+import nl.exl.doomidgamesarchive.tasks.RowSortTask;
+import nl.exl.doomidgamesarchive.tasks.TaskScheduler;
 import nl.exl.doomidgamesarchive.tasks.VoteUpdateTask;
 
 /**
- * Provides list item Views from IdgamesApi entries for a ListView.
+ * Provides list item Views from IdgamesApi entries for a RecyclerView. Entries are held as rows
+ * that were prepared beforehand, and each row is drawn by a single EntryRowView. The text of new
+ * rows is laid out on a background thread before they are displayed, so that binding a row only
+ * hands its layout to the View. The rows refer to the entry tables of their responses, no entry
+ * objects are kept.
+ *
+ * New rows are sorted and compared with the displayed rows on a background thread, by entry kind
+ * and id, so that only rows that were added, removed or changed are rebound and the scroll
+ * position is kept.
+ *
+ * Rows can be filtered by a query. All rows are added to a filter index as they arrive, and only
+ * the rows that match the query are displayed. Matching rows are displayed as soon as the query
+ * changes, and the query is highlighted in each row as it is bound, so that only the rows that
+ * are on screen are laid out again.
  */
-public class IdgamesListAdapter extends ArrayAdapter<Entry> {
+public class IdgamesListAdapter extends RecyclerView.Adapter<IdgamesListAdapter.ViewHolder> {
+
+    // Change payload for rows of which only the title changed, so that their View is rebound
+    // instead of being replaced by another one.
+    private static final Object PAYLOAD_TITLE = new Object();
+
+    // Change payload for rows that are rebound because the highlighted filter query changed.
+    private static final Object PAYLOAD_HIGHLIGHT = new Object();
+
+    // Compares rows on a background thread.
+    private static final DiffUtil.ItemCallback<EntryRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<EntryRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull EntryRow oldRow, @NonNull EntryRow newRow) {
+            return oldRow.getKind() == newRow.getKind() && oldRow.getId() == newRow.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull EntryRow oldRow, @NonNull EntryRow newRow) {
+            return oldRow.isContentEqual(newRow);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull EntryRow oldRow, @NonNull EntryRow newRow) {
+            if (oldRow.isEntryEqual(newRow)) {
+                return PAYLOAD_TITLE;
+            }
+            return null;
+        }
+    };
 
     // Layout mInflater reference.
     private LayoutInflater mInflater;
 
+    // The style shared by all rows.
+    private final EntryRowStyle mStyle;
 
-    /**
-     * Comparator for IdgamesApi entries.
-     * Directories are sorted before files and votes 
-     */
-    private static class EntryComparator implements Comparator<Entry> {
-        public int compare(Entry lhs, Entry rhs) {
-            if (lhs instanceof DirectoryEntry && !(rhs instanceof DirectoryEntry)) {
-                return -1;
-            } else if (rhs instanceof DirectoryEntry && !(lhs instanceof DirectoryEntry)) {
-                return 1;
-            } else {
-                return lhs.toString().compareToIgnoreCase(rhs.toString());
+    // The width that rows are laid out for, or 0 if the list has not been laid out yet.
+    private int mRowWidth;
+
+    // Prepared layouts of the displayed rows. A new map replaces this one when rows are laid out
+    // again, so that it can be read by layout tasks.
+    private Map<EntryRow, EntryRowLayout> mLayouts = Collections.emptyMap();
+
+    // Computes the differences between the displayed rows and new rows.
+    private final AsyncListDiffer<EntryRow> mDiffer;
+
+    // The rows that were last submitted, before filtering. Changes are made to these rows rather
+    // than to the displayed ones, so that they are not lost if a previous list is still being compared.
+    private List<EntryRow> mRows = Collections.emptyList();
+
+    // The index that rows are filtered with, or null if rows are not filtered.
+    private RowFilterIndex mFilterIndex;
+
+    // The query that rows are filtered by.
+    private String mFilterQuery = "";
+
+    // The task that is laying out the submitted rows, if any.
+    private RowLayoutTask mLayoutTask;
+
+    // The folded filter query that is highlighted in bound rows, or null if nothing is highlighted.
+    private String mHighlight;
+
+    // Layouts of bound rows with the filter query highlighted, for the current query and width.
+    // Rows that do not display the query are mapped to their prepared layout.
+    private final Map<EntryRow, EntryRowLayout> mHighlightedLayouts = new IdentityHashMap<>();
+
+    // True if the highlights changed since rows were last bound, so that all displayed rows must be
+    // bound again once the differ has displayed the next rows.
+    private boolean mHighlightsChanged;
+
+    // The rows that are being sorted, or null if no rows are being sorted. Sorted rows are only
+    // displayed if no other rows were displayed since they were submitted for sorting.
+    private List<EntryRow> mSortingRows;
+
+    // The order that rows are being sorted in, and the task that is sorting them, if any.
+    private int mSortOrder;
+    private RowSortTask mSortTask;
+
+    // Lays out the rows again when the width of the list changes, because rows are laid out for it.
+    private final View.OnLayoutChangeListener mLayoutChangeListener = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            int width = right - left - v.getPaddingLeft() - v.getPaddingRight();
+            if (width > 0 && width != mRowWidth) {
+                mRowWidth = width;
+                mHighlightedLayouts.clear();
+                mHighlightsChanged |= mHighlight != null;
+                submit(mRows, null);
             }
         }
+    };
+
+    // True if the differ sent out any change for the list that is being compared.
+    private boolean mChanged;
+
+    // Listener for the update that is being compared. The differ drops lists that are replaced
+    // before they are displayed, so the listener is called for whichever list is displayed next.
+    private OnUpdatedListener mUpdatedListener;
+
+    // Listener for clicks on rows.
+    private OnRowClickListener mClickListener;
+
+
+    /**
+     * Interface for receiving clicks on rows.
+     */
+    public interface OnRowClickListener {
+        void onRowClick(EntryRow row);
     }
-    
+
     /**
-     * Helper class to keep view references in a view, preventing repeated lookups.
+     * Interface for receiving the result of an update.
      */
-    private static class ViewHolder {
-        TextView title;
-        TextView subtitle;
-        RatingView rating;
-        ImageView icon;
+    public interface OnUpdatedListener {
+
+        /**
+         * Called on the UI thread once new rows are displayed.
+         *
+         * @param changed True if the new rows differ from the rows that were displayed before.
+         */
+        void onUpdated(boolean changed);
     }
-    
-    
+
+    /**
+     * Holds the single View that draws a list row.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final EntryRowView rowView;
+
+        ViewHolder(EntryRowView itemView) {
+            super(itemView);
+
+            rowView = itemView;
+        }
+    }
+
+
     IdgamesListAdapter(Context context) {
-        super(context, R.layout.idgames_listitem, R.id.IdgamesListItem_Title);
-        
-        mInflater = (LayoutInflater)this.getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        mInflater = LayoutInflater.from(context);
+        mStyle = new EntryRowStyle(context);
+
+        // Remember whether a submitted list caused any changes, so that update listeners can tell.
+        final ListUpdateCallback adapterCallback = new AdapterListUpdateCallback(this);
+        ListUpdateCallback callback = new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                mChanged = true;
+                adapterCallback.onInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                mChanged = true;
+                adapterCallback.onRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                mChanged = true;
+                adapterCallback.onMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, @Nullable Object payload) {
+                mChanged = true;
+                adapterCallback.onChanged(position, count, payload);
+            }
+        };
+        mDiffer = new AsyncListDiffer<>(callback, new AsyncDifferConfig.Builder<>(DIFF_CALLBACK).build());
+
+        setHasStableIds(true);
     }
 
-    @Override
-    public @NonNull View getView(int position, View convertView, @NonNull ViewGroup parent) {
-        ViewHolder holder;
-
-        // Create a new list item View.
-        if (convertView == null) {
-            convertView = mInflater.inflate(R.layout.idgames_listitem, parent, false);
-
-            // Store holder class with references to child views.
-            holder = new ViewHolder();
-            holder.title = convertView.findViewById(R.id.IdgamesListItem_Title);
-            holder.subtitle = convertView.findViewById(R.id.IdgamesListItem_Subtitle);
-            holder.rating = convertView.findViewById(R.id.IdgamesListItem_Rating);
-            holder.icon = convertView.findViewById(R.id.IdGamesListItem_Icon);
-            convertView.setTag(holder);
-
-            // Reuse an existing list item View.
-        } else {
-            holder = (ViewHolder) convertView.getTag();
-        }
+    void setOnRowClickListener(OnRowClickListener listener) {
+        mClickListener = listener;
+    }
 
-        // Hide views that might or might not receive content, if they exist at all.
-        if (holder.rating != null) {
-            holder.rating.setVisibility(View.GONE);
-        }
-        if (holder.icon != null) {
-            holder.icon.setVisibility(View.GONE);
-        }
-        if (holder.subtitle != null) {
-            holder.subtitle.setVisibility(View.GONE);
+    /**
+     * Sets the index that rows are added to and filtered with.
+     *
+     * @param filterIndex The filter index.
+     */
+    void setFilterIndex(RowFilterIndex filterIndex) {
+        mFilterIndex = filterIndex;
+    }
+
+    /**
+     * Displays only the rows that contain a query in their title, file name or author.
+     *
+     * @param query The query, or an empty string to display all rows.
+     */
+    void setFilterQuery(String query) {
+        if (query.equals(mFilterQuery)) {
+            return;
         }
 
-        // Get the IdgamesApi entry for this list position.
-        Entry entry = this.getItem(position);
-        if (entry == null) {
-            return convertView;
+        mFilterQuery = query;
+
+        // Rows that are being laid out are filtered once they are done.
+        if (mLayoutTask == null) {
+            submitFiltered();
         }
+    }
 
-        String title = entry.toString();
-        if (title.length() == 0) {
-            holder.title.setText("...");
-        } else {
-            holder.title.setText(entry.toString());
+    /**
+     * Returns the row that is displayed at a position.
+     *
+     * @param position The position of the row.
+     *
+     * @return The row at the position.
+     */
+    EntryRow getItem(int position) {
+        return mDiffer.getCurrentList().get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mDiffer.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        EntryRow row = getItem(position);
+        return ((long)row.getKind() << 32) | (row.getId() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Rows of different kinds of entries use different view types, so that recycled Views are
+     * usually laid out at the same height already.
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return getItem(position).getKind();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.addOnLayoutChangeListener(mLayoutChangeListener);
+
+        // Continue sorting rows whose sort was cancelled when the adapter was detached.
+        if (mSortingRows != null && mSortTask == null) {
+            sort(mSortingRows, mSortOrder);
         }
-        
-        // Fill view with directory info.
-        if (entry instanceof DirectoryEntry) {
-            holder.icon.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Cancels sorting and laying out rows while no list displays them. Rows are laid out again
+     * once the adapter is attached to a list and that has been laid out.
+     */
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnLayoutChangeListener(mLayoutChangeListener);
 
-        // Fill view with file info.
-        } else if (entry instanceof FileEntry) {
-            FileEntry fileEntry = (FileEntry)entry;
-            StringBuilder subText = new StringBuilder();
+        TaskScheduler.getInstance().cancelAll(this);
+        mSortTask = null;
+        mLayoutTask = null;
+        mRowWidth = 0;
+    }
 
-            subText.append(fileEntry.getAuthor());
+    @Override
+    public @NonNull ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        EntryRowView view = (EntryRowView)mInflater.inflate(R.layout.idgames_listitem, parent, false);
+        view.setStyle(mStyle);
+        final ViewHolder holder = new ViewHolder(view);
 
-            // Add date.
-            String date = fileEntry.getLocaleDate();
-            if (date.length() > 0) {
-                subText.append(" - ");
-                subText.append(date);
-            }
-            
-            // Add file size.
-            if (fileEntry.getFileSize() > 0) {
-                subText.append(" - ");
-                subText.append(fileEntry.getFileSizeString());
+        view.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && mClickListener != null) {
+                    mClickListener.onRowClick(getItem(position));
+                }
             }
+        });
 
-            holder.subtitle.setVisibility(View.VISIBLE);
-            holder.subtitle.setText(subText.toString());
-            holder.subtitle.setMaxLines(1);
-            
-            holder.rating.setRating((float)fileEntry.getRating());
-            holder.rating.setVisibility(View.VISIBLE);
-
-        // Fill view with vote info.
-        } else if (entry instanceof VoteEntry) {
-            VoteEntry voteEntry = (VoteEntry)entry;
-
-            String author = voteEntry.getAuthor();
-            if (!author.isEmpty()) {
-                holder.subtitle.setVisibility(View.VISIBLE);
-                holder.subtitle.setMaxLines(10);
-                holder.subtitle.setText(author);
-            }
-            
-            holder.rating.setRating((float)voteEntry.getRating());
-            holder.rating.setVisibility(View.VISIBLE);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        EntryRow row = getItem(position);
+        EntryRowLayout layout = mLayouts.get(row);
+        if (mHighlight != null && mRowWidth > 0) {
+            layout = getHighlightedLayout(row, layout);
+        }
+        holder.rowView.bind(row, layout);
+    }
+
+    /**
+     * Returns the layout to bind a row with while a filter query is highlighted. The query is only
+     * highlighted in rows as they are bound, once per query, so that a query that is being typed
+     * does not lay out every matching row again for each key.
+     *
+     * @param row The row to bind.
+     * @param layout The prepared layout of the row, without highlights, or null if it has none.
+     *
+     * @return The layout to bind the row with.
+     */
+    private EntryRowLayout getHighlightedLayout(EntryRow row, EntryRowLayout layout) {
+        EntryRowLayout highlighted = mHighlightedLayouts.get(row);
+        if (highlighted != null) {
+            return highlighted;
+        }
+
+        // Rows are bound on the UI thread, so these can be laid out with the style's own paints.
+        if (layout == null || EntryRowLayout.displaysHighlight(row, mHighlight)) {
+            highlighted = EntryRowLayout.create(row, mStyle, mStyle.getTitlePaint(), mStyle.getSubtitlePaint(), mRowWidth, mHighlight);
+        } else {
+            highlighted = layout;
         }
-        
-        return convertView;
+        mHighlightedLayouts.put(row, highlighted);
+
+        return highlighted;
     }
 
     /**
      * Loads additional entry information for vote entries that have no title.
+     * Requests for visible rows are prioritized over those for rows further down the list.
+     *
+     * @param owner The object whose lifecycle the requests are tied to.
+     * @param visibleRows The number of rows that are visible at the top of the list.
      */
-    void fixVotes() {
-        Entry entry;
-        VoteEntry voteEntry;
+    void fixVotes(Object owner, int visibleRows) {
+        TaskScheduler scheduler = TaskScheduler.getInstance();
+        EntryRow row;
         ResponseTask responseTask;
         Request request;
-        String title;
+        int priority;
+
+        // Remember file ids that have been fixed already, to prevent multiple requests for votes with the same file id.
+        SparseBooleanArray fixedFiles = new SparseBooleanArray();
 
-        // Remember entries that have been fixed already, to prevent multiple requests for votes with the same file id.
-        Set<Entry> fixedEntries = new HashSet<>();
+        for (int i = 0; i < mRows.size(); i++) {
+            row = mRows.get(i);
+            if (row.getKind() == EntryTable.KIND_VOTE) {
 
-        for (int i = 0; i < getCount(); i++) {
-            entry = getItem(i);
-            if (entry instanceof VoteEntry) {
-                voteEntry = (VoteEntry)entry;
-                
                 // Only fix votes with an empty title.
-                title = voteEntry.getTitle();
-                if (!fixedEntries.contains(entry) && title == null || title.length() == 0) {
-                    fixedEntries.add(entry);
-                    
+                if (!row.hasTitle() && !fixedFiles.get(row.getFileId())) {
+                    fixedFiles.put(row.getFileId(), true);
+
                     // Execute a new request for file details.
                     request = new Request();
                     request.setAction(Request.GET_FILE);
                     request.setMaxAge(Config.MAXAGE_NEWVOTES);
-                    request.setFileId(voteEntry.getFileId());
-                    
+                    request.setFileId(row.getFileId());
+                    request.setProjection(Request.PROJECTION_TITLE_ONLY);
+
+                    if (i < visibleRows) {
+                        priority = TaskScheduler.PRIORITY_VISIBLE;
+                    } else {
+                        priority = TaskScheduler.PRIORITY_PREFETCH;
+                    }
+
                     responseTask = new VoteUpdateTask(this);
-                    responseTask.execute(request);
+                    scheduler.execute(responseTask, priority, owner, request);
                 }
             }
         }
     }
-    
+
     /**
-     * Updates an individual IdgamesApi vote in this adapter's data.
-     * 
+     * Updates an individual IdgamesApi vote in this adapter's data. Only the rows of votes for the
+     * file are rebound.
+     *
      * @param fileEntry The file entry to update a vote list item with.
      */
     public void updateVote(FileEntry fileEntry) {
-        Entry entry;
-        VoteEntry voteEntry;
-        
-        // Search the entire adapter for votes matching the file's id.
-        for (int i = 0; i < getCount(); i++) {
-            entry = getItem(i);
-            
-            if (entry instanceof VoteEntry) {
-                voteEntry = (VoteEntry)entry;
-                
-                // Set the vote's new title.
-                // We do not break out of the loop because a file id might occur multiple times inside this adapter's data.
-                if (voteEntry.getFileId() == fileEntry.getId()) {
-                    voteEntry.setTitle(fileEntry.toString());
+        List<EntryRow> newRows = null;
+        List<EntryRow> changedRows = null;
+
+        // Search all rows for votes matching the file's id.
+        // We do not break out of the loop because a file id might occur multiple times inside this adapter's data.
+        for (int i = 0; i < mRows.size(); i++) {
+            EntryRow row = mRows.get(i);
+            if (row.getKind() == EntryTable.KIND_VOTE && row.getFileId() == fileEntry.getId()) {
+                if (newRows == null) {
+                    newRows = new ArrayList<>(mRows);
+                    changedRows = new ArrayList<>();
                 }
-            }   
+                EntryRow changed = row.withTitle(fileEntry.toString());
+                newRows.set(i, changed);
+                changedRows.add(changed);
+            }
+        }
+
+        if (newRows != null) {
+            addToFilterIndex(changedRows);
+            submit(newRows, null);
+        }
+    }
+
+    /**
+     * Appends the rows of a batch of entries that were parsed while the rest of a response is still
+     * loading. Rows from the offset onwards are replaced by the batch, so that a batch that is
+     * published again after a retry does not add duplicates.
+     *
+     * @param offset The index of the first row of the batch.
+     * @param rows The rows to append.
+     */
+    void append(int offset, List<EntryRow> rows) {
+        cancelSort();
+
+        List<EntryRow> newRows = new ArrayList<>(offset + rows.size());
+        newRows.addAll(mRows.subList(0, Math.min(offset, mRows.size())));
+        newRows.addAll(rows);
+
+        addToFilterIndex(rows);
+        submit(newRows, null);
+    }
+
+    /**
+     * Removes all rows.
+     */
+    void clear() {
+        cancelSort();
+        submit(Collections.<EntryRow>emptyList(), null);
+    }
+
+    /**
+     * Replaces this adapter's data with the rows of new entries. The new rows are sorted and
+     * compared with the current ones in the background, and only rows that changed are rebound.
+     *
+     * @param rows The rows of the new entries.
+     * @param order The order to sort the rows in, one of the RowSorter.ORDER_* constants.
+     * @param listener Listener that is called once the new rows are displayed, may be null.
+     */
+    void update(List<EntryRow> rows, int order, OnUpdatedListener listener) {
+        cancelSort();
+
+        List<EntryRow> newRows = keepVoteTitles(rows);
+        addToFilterIndex(newRows);
+        if (order == RowSorter.ORDER_NONE) {
+            submit(newRows, listener);
+            return;
+        }
+
+        if (listener != null) {
+            mUpdatedListener = listener;
         }
-        
-        this.notifyDataSetChanged();
+        sort(newRows, order);
     }
-    
+
+    /**
+     * Sorts rows in the background, and displays them once they are sorted.
+     *
+     * @param rows The rows to sort.
+     * @param order The order to sort the rows in, one of the RowSorter.ORDER_* constants.
+     */
+    private void sort(List<EntryRow> rows, int order) {
+        mSortingRows = rows;
+        mSortOrder = order;
+        mSortTask = new RowSortTask(this, order);
+        TaskScheduler.getInstance().compute(mSortTask, this, rows);
+    }
+
     /**
-     * Sorts this adapter's data.
+     * Stops sorting rows, because they were replaced before they could be displayed.
      */
-    void sort() {
-        this.sort(new EntryComparator());
+    private void cancelSort() {
+        mSortingRows = null;
+        if (mSortTask != null) {
+            mSortTask.cancel(true);
+            mSortTask = null;
+        }
     }
 
+    /**
+     * Displays rows that were sorted. Rows that were replaced while they were being sorted are
+     * ignored.
+     *
+     * @param rows The rows that were sorted.
+     * @param sorted The sorted rows.
+     */
+    public void setSortedRows(List<EntryRow> rows, List<EntryRow> sorted) {
+        if (rows != mSortingRows) {
+            return;
+        }
+
+        mSortingRows = null;
+        mSortTask = null;
+        submit(keepVoteTitles(sorted), null);
+    }
+
+    /**
+     * Copies rows, keeping the titles that were fetched for the votes that are displayed already.
+     * Vote titles are fetched separately, so the rows of a new response do not have them yet.
+     *
+     * @param rows The rows to copy.
+     *
+     * @return The copied rows.
+     */
+    private List<EntryRow> keepVoteTitles(List<EntryRow> rows) {
+        List<EntryRow> newRows = new ArrayList<>(rows);
+
+        SparseArray<String> voteTitles = new SparseArray<>();
+        for (EntryRow row : mRows) {
+            if (row.getKind() == EntryTable.KIND_VOTE && row.hasTitle()) {
+                voteTitles.put(row.getFileId(), row.getTitle());
+            }
+        }
+        for (int i = 0; i < newRows.size(); i++) {
+            EntryRow row = newRows.get(i);
+            if (row.getKind() == EntryTable.KIND_VOTE && !row.hasTitle()) {
+                String title = voteTitles.get(row.getFileId());
+                if (title != null) {
+                    newRows.set(i, row.withTitle(title));
+                }
+            }
+        }
+
+        return newRows;
+    }
+
+    /**
+     * Adds rows to the filter index, if there is one.
+     *
+     * @param rows The rows to add.
+     */
+    private void addToFilterIndex(List<EntryRow> rows) {
+        if (mFilterIndex != null) {
+            mFilterIndex.add(rows);
+        }
+    }
+
+    /**
+     * Submits new rows to be displayed.
+     *
+     * @param rows The new rows. Must not be changed afterwards.
+     * @param listener Listener that is called once the new rows are displayed, may be null.
+     */
+    private void submit(List<EntryRow> rows, OnUpdatedListener listener) {
+        mRows = rows;
+        if (listener != null) {
+            mUpdatedListener = listener;
+        }
+
+        display();
+    }
+
+    /**
+     * Lays out the submitted rows, and displays them once they are laid out.
+     */
+    private void display() {
+        // Lay out the rows in the background first, once the width of the list is known. Layouts
+        // for rows that were replaced in the meantime are not needed anymore.
+        if (mLayoutTask != null) {
+            mLayoutTask.cancel(false);
+            mLayoutTask = null;
+        }
+        if (mRowWidth > 0) {
+            mLayoutTask = new RowLayoutTask(this, mStyle, mRowWidth, mLayouts);
+            TaskScheduler.getInstance().compute(mLayoutTask, this, mRows);
+            return;
+        }
+
+        submitFiltered();
+    }
+
+    /**
+     * Stores the prepared layouts of rows, and displays the rows. Layouts of rows that have been
+     * replaced in the meantime are ignored.
+     *
+     * @param rows The rows that were laid out.
+     * @param layouts The layouts of the rows.
+     * @param width The width that the rows were laid out for.
+     */
+    public void setRowLayouts(List<EntryRow> rows, Map<EntryRow, EntryRowLayout> layouts, int width) {
+        if (rows != mRows || width != mRowWidth) {
+            return;
+        }
+
+        mLayoutTask = null;
+        mLayouts = layouts;
+
+        // Bound rows keep the layouts they have, other rows are highlighted again when they are bound.
+        mHighlightedLayouts.clear();
+        submitFiltered();
+    }
+
+    /**
+     * Filters the submitted rows, and submits them to the differ.
+     */
+    private void submitFiltered() {
+        List<EntryRow> rows = mRows;
+        String highlight = null;
+
+        // Looking up matching rows in the index is fast enough to do on the UI thread.
+        RowFilterIndex.Matches matches = mFilterIndex != null ? mFilterIndex.filter(mFilterQuery) : null;
+        if (matches != null) {
+            highlight = matches.getQuery();
+            rows = new ArrayList<>();
+            for (EntryRow row : mRows) {
+                if (matches.contains(row)) {
+                    rows.add(row);
+                }
+            }
+        }
+
+        if (highlight == null ? mHighlight != null : !highlight.equals(mHighlight)) {
+            mHighlight = highlight;
+            mHighlightedLayouts.clear();
+            mHighlightsChanged = true;
+        }
+
+        submitToDiffer(rows);
+    }
+
+    /**
+     * Submits new rows to the differ.
+     *
+     * @param rows The new rows.
+     */
+    private void submitToDiffer(List<EntryRow> rows) {
+        mDiffer.submitList(rows, new Runnable() {
+            @Override
+            public void run() {
+                boolean changed = mChanged;
+                mChanged = false;
+
+                // The differ does not rebind rows that are still displayed if only their highlight changed.
+                if (mHighlightsChanged) {
+                    mHighlightsChanged = false;
+                    notifyItemRangeChanged(0, getItemCount(), PAYLOAD_HIGHLIGHT);
+                }
+
+                OnUpdatedListener updatedListener = mUpdatedListener;
+                mUpdatedListener = null;
+                if (updatedListener != null) {
+                    updatedListener.onUpdated(changed);
+                }
+            }
+        });
+    }
 }
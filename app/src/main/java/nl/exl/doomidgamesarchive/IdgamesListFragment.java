@@ -2,8 +2,10 @@ package nl.exl.doomidgamesarchive;
 
 import android.app.AlertDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.graphics.drawable.AnimationDrawable;
 import android.os.Bundle;
+import android.os.Parcelable;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.util.Log;
@@ -15,11 +17,10 @@ import android.view.ViewGroup;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.AdapterView;
-import android.widget.AdapterView.OnItemClickListener;
 import android.widget.AdapterView.OnItemSelectedListener;
 import android.widget.ArrayAdapter;
 import android.widget.ImageView;
-import android.widget.ListView;
+import android.widget.ProgressBar;
 import android.widget.RelativeLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
@@ -32,23 +33,29 @@ import java.util.List;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import nl.exl.doomidgamesarchive.idgamesapi.DirectoryEntry;
 import nl.exl.doomidgamesarchive.idgamesapi.Entry;
 import nl.exl.doomidgamesarchive.idgamesapi.Request;
 import nl.exl.doomidgamesarchive.idgamesapi.Response;
-import nl.exl.doomidgamesarchive.idgamesapi.ResponseTask;
-import nl.exl.doomidgamesarchive.tasks.ListTask;
+import nl.exl.doomidgamesarchive.tasks.TaskScheduler;
 
 /**
  * A fragment containing a list of IdGamesApi entries.
  * It will adapt what it displays based on the API mRequest type.
+ *
+ * The list's request, results and loads are held by a list state that outlives this fragment.
+ * A recreated fragment re-attaches to the state of its list, and only loads anything if its
+ * results have expired.
  */
-public class IdgamesListFragment extends Fragment implements OnItemClickListener {
+public class IdgamesListFragment extends Fragment implements IdgamesListAdapter.OnRowClickListener, ListState.Listener {
 
-    // Sorts the list alphabetically if true.
-    private boolean mSort = false;
+    // The state of the list that this fragment displays.
+    private ListState mState;
 
-    // Request associated with this fragment.
+    // Request associated with this fragment, owned by the list state.
     private Request mRequest;
     
     // Tool view references.
@@ -57,8 +64,11 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
     
     // View references.
     private ImageView mProgress;
+    private ProgressBar mRefreshing;
     private TextView mPathText;
     private TextInputEditText mSearchField;
+    private View mFilterLayout;
+    private TextInputEditText mFilterField;
     private RelativeLayout mMessageContainer;
     private TextView mMessage;
 
@@ -67,14 +77,18 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
     private int mSearchCategory;
     
     // Entry list.
-    private ListView mEntryListView;
+    private RecyclerView mEntryListView;
+    private LinearLayoutManager mEntryLayoutManager;
     private IdgamesListAdapter mEntryAdapter;
     
     // List select mListener interface for the containing activity.
     private IdgamesListener mListener;
     
-    // ResponseTask used to receive data.
-    private ResponseTask mTask;
+    // Scroll state to restore once the list's rows are displayed again, if any.
+    private Parcelable mPendingScrollState;
+
+    // True if the entries of the response that is being loaded have been streamed into the list.
+    private boolean mStreamed;
     
     
     /**
@@ -94,21 +108,44 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
             return;
         }
 
-        // Restore the mRequest state from saved instance or from new arguments.
-        mRequest = new Request();
-        if (savedInstanceState == null) {
-            mRequest.restoreFromBundle(arguments);
-        } else {
-            mRequest.restoreFromBundle(savedInstanceState);
+        // Re-attach to the state of this fragment's list when it is recreated. A new fragment, or
+        // one without a state in memory, creates it with the request from the saved instance or
+        // from new arguments.
+        StateRepository repository = StateRepository.getInstance();
+        String stateKey = arguments.getString("stateKey");
+        if (stateKey != null && savedInstanceState != null) {
+            mState = repository.getListState(stateKey);
         }
+        if (mState == null) {
+            Request request = new Request();
+            if (savedInstanceState == null) {
+                RequestBundles.restore(request, arguments);
+            } else {
+                RequestBundles.restore(request, savedInstanceState);
+            }
+
+            if (stateKey != null) {
+                mState = repository.createListState(stateKey, request);
+            } else {
+                mState = new ListState(request);
+            }
 
-        // Set view arguments.
-        mSort = arguments.getBoolean("sort", false);
+            // Lists that are sorted are sorted by title until another order is chosen.
+            int sortOrder = arguments.getBoolean("sort", false) ? RowSorter.ORDER_TITLE : RowSorter.ORDER_NONE;
+            if (savedInstanceState != null) {
+                sortOrder = savedInstanceState.getInt("sortOrder", sortOrder);
+            }
+            mState.setSortOrder(sortOrder);
+        }
+        mRequest = mState.getRequest();
     }
 
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
-        mRequest.saveToBundle(outState);
+        RequestBundles.save(mRequest, outState);
+        if (mState != null) {
+            outState.putInt("sortOrder", mState.getSortOrder());
+        }
     }
 
     @Override
@@ -117,6 +154,7 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
         
         mProgress = view.findViewById(R.id.IdgamesList_Progress);
         mProgress.setBackgroundResource(R.drawable.cacodemon);
+        mRefreshing = view.findViewById(R.id.IdgamesList_Refreshing);
         
         mMessageContainer = view.findViewById(R.id.IdgamesList_MessageContainer);
         mMessage = view.findViewById(R.id.IdgamesList_Message);
@@ -181,11 +219,41 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
             }
         });
         
-        // Set up entry ListView and adapter.
-        mEntryAdapter = new IdgamesListAdapter(this.getActivity());
+        // Set up entry RecyclerView and adapter.
+        mEntryAdapter = new IdgamesListAdapter(inflater.getContext());
+        mEntryAdapter.setOnRowClickListener(this);
+        mEntryLayoutManager = new LinearLayoutManager(getActivity());
         mEntryListView = view.findViewById(R.id.IdgamesList_List);
+        mEntryListView.setLayoutManager(mEntryLayoutManager);
+        mEntryListView.addItemDecoration(new DividerItemDecoration(view.getContext(), DividerItemDecoration.VERTICAL));
         mEntryListView.setAdapter(mEntryAdapter);
-        mEntryListView.setOnItemClickListener(this);
+
+        // Set up the filter field. Loaded rows are filtered as the query is typed.
+        mFilterLayout = view.findViewById(R.id.IdgamesList_FilterLayout);
+        mFilterField = view.findViewById(R.id.IdgamesList_FilterField);
+        mFilterField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void afterTextChanged(Editable s) {
+                setFilterQuery(s.toString());
+            }
+
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+        });
+
+        if (mState != null) {
+            mEntryAdapter.setFilterIndex(mState.getFilterIndex());
+            mEntryAdapter.setFilterQuery(mState.getFilterQuery());
+            if (mState.getFilterQuery().length() > 0) {
+                mFilterLayout.setVisibility(View.VISIBLE);
+            }
+
+            // Scroll back to where the list was, once its rows are displayed.
+            mPendingScrollState = mState.getScrollState();
+        }
         
         return view;
     }
@@ -193,15 +261,53 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
     @Override
     public void onStart() {
         super.onStart();
-        updateList();
+        if (mState == null) {
+            Log.w("IdgamesListFragment", "No Request defined. IdgamesListFragment will not display anything.");
+            return;
+        }
+
+        // Only load the list if its results expired, otherwise display them or wait for the
+        // load that is still in progress.
+        showRelevantTools();
+        if (hasQuery()) {
+            mState.load();
+        }
+        mState.attach(this);
+        showState();
     }
     
+    @Override
+    public void onResume() {
+        super.onResume();
+
+        // Restart the vote title requests that were cancelled when this fragment was paused. Votes
+        // that have a title already are skipped, and repeated requests are served from the cache.
+        if (mState != null && mRequest.getAction() == Request.GET_LATESTVOTES) {
+            mEntryAdapter.fixVotes(this, getVisibleRowCount());
+        }
+    }
+
     @Override
     public void onPause() {
         super.onPause();
-        
-        if (mTask != null) {
-            mTask.cancel(true);
+
+        // Cancel any vote title requests started by this fragment. The list itself keeps loading.
+        TaskScheduler.getInstance().cancelAll(this);
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        if (mState != null) {
+            mState.detach(this);
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (mState != null) {
+            mState.setScrollState(mEntryLayoutManager.onSaveInstanceState());
         }
     }
 
@@ -245,17 +351,34 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
         
             return;
         }
-        
-        mRequest.setQuery(mSearchQuery);
-        mRequest.setCategory(mSearchCategory);
-        updateList();
+
+        // The same search is only loaded again if its results expired.
+        if (mSearchQuery.equals(mRequest.getQuery()) && mSearchCategory == mRequest.getCategory()) {
+            mState.load();
+        } else {
+            mRequest.setQuery(mSearchQuery);
+            mRequest.setCategory(mSearchCategory);
+            updateList();
+        }
         
         InputMethodManager imm = (InputMethodManager)getActivity().getSystemService(Context.INPUT_METHOD_SERVICE);
         imm.hideSoftInputFromWindow(mSearchField.getWindowToken(), 0);
     }
     
     /**
-     * Update the list with data from a new IdgamesApi response.
+     * @return True if the request can be loaded. Searches cannot be loaded without a query.
+     */
+    private boolean hasQuery() {
+        if (mRequest.getAction() != Request.SEARCH) {
+            return true;
+        }
+
+        String query = mRequest.getQuery();
+        return query != null && query.length() > 0;
+    }
+
+    /**
+     * Update the list with data from a new IdgamesApi response, after the request has changed.
      */
     public void updateList() {
         if (mRequest == null) {
@@ -263,52 +386,202 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
             return;
         }
         
-        if (mRequest.getAction() == Request.SEARCH) {
-            if (mSearchQuery == null || mSearchQuery.length() == 0) {
-                showRelevantTools();
-                return;
-            }
-        }
-        
-        mEntryAdapter.clear();
-        showProgressIndicator();
         showRelevantTools();
+        if (!hasQuery()) {
+            return;
+        }
 
-        mTask = new ListTask(this);
-        mTask.execute(mRequest);
+        // Results of the previous request should not be scrolled back to.
+        mPendingScrollState = null;
+        mState.reload();
     }
 
-    public void setResponse(Response response) {
-        String warning = response.getWarningType();
-        if (warning != null && warning.equals("Limit Warning")) {
-            Toast.makeText(getContext(), "The search returned too many results. Not all of them are displayed.", Toast.LENGTH_LONG).show();
-        }
+    /**
+     * Displays the current contents of the list state.
+     */
+    private void showState() {
 
-        // Add all entries to list adapter.
-        mEntryAdapter.clear();
-        List<Entry> entries = response.getEntries();
-        for (int i = 0; i < entries.size(); i++) {
-            mEntryAdapter.add(entries.get(i));
+        // The response is still being loaded, but some of its rows have been parsed already.
+        List<EntryRow> streamedRows = mState.getStreamedRows();
+        if (streamedRows != null) {
+            hideRefreshIndicator();
+            onRowsStreamed(mState, 0, streamedRows);
+            return;
         }
 
-        if (mSort) {
-            mEntryAdapter.sort();
-        } else {
-            mEntryAdapter.notifyDataSetChanged();
+        // Display the last known response, and whether it is being revalidated.
+        List<EntryRow> rows = mState.getRows();
+        if (rows != null) {
+            if (mState.isStale()) {
+                showRefreshIndicator();
+            } else {
+                hideRefreshIndicator();
+            }
+            applyResponse(mState.getResponse(), rows);
+
+        // Nothing to display while the response is being loaded.
+        } else if (mState.isLoading()) {
+            mStreamed = false;
+            mEntryAdapter.clear();
+            hideRefreshIndicator();
+            showProgressIndicator();
         }
+    }
 
-        if (entries.size() == 0) {
+    @Override
+    public void onListStateChanged(ListState state) {
+        showState();
+    }
+
+    /**
+     * Displays a batch of rows while the rest of the response is still being parsed.
+     */
+    @Override
+    public void onRowsStreamed(ListState state, int offset, List<EntryRow> rows) {
+        hideProgressIndicator(null);
+        mEntryAdapter.append(offset, rows);
+        mStreamed = true;
+    }
+
+    /**
+     * Updates the list with the entries of a response. Only changes the list if the entries differ
+     * from the ones that are displayed already.
+     *
+     * @param response The response to display.
+     * @param rows The rows prepared for the response's entries.
+     */
+    private void applyResponse(final Response response, List<EntryRow> rows) {
+        if (rows.size() == 0) {
             hideProgressIndicator("No results.");
         } else {
             hideProgressIndicator(null);
         }
 
+        // Streamed entries are already displayed, but the response itself is new.
+        final boolean streamed = mStreamed;
+        mStreamed = false;
+        mEntryAdapter.update(rows, mState.getSortOrder(), new IdgamesListAdapter.OnUpdatedListener() {
+            @Override
+            public void onUpdated(boolean changed) {
+                if (mPendingScrollState != null) {
+                    mEntryLayoutManager.onRestoreInstanceState(mPendingScrollState);
+                    mPendingScrollState = null;
+                }
+
+                if ((changed || streamed) && isAdded()) {
+                    onResponseDisplayed(response);
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows the warnings of a response and fixes up its entries, once its rows are displayed.
+     *
+     * @param response The response that is displayed.
+     */
+    private void onResponseDisplayed(Response response) {
+        String warning = response.getWarningType();
+        if (warning != null && warning.equals("Limit Warning")) {
+            Toast.makeText(getContext(), "The search returned too many results. Not all of them are displayed.", Toast.LENGTH_LONG).show();
+        }
+
         // Fix titles for votes list items without any.
         if (mRequest.getAction() == Request.GET_LATESTVOTES) {
-            mEntryAdapter.fixVotes();
+            mEntryAdapter.fixVotes(this, getVisibleRowCount());
         }
     }
     
+    /**
+     * Shows a dialog for choosing the order that the list is sorted in. Rows are sorted again in
+     * the background, without loading anything.
+     */
+    public void showSortOrderDialog() {
+        if (mState == null) {
+            return;
+        }
+
+        AlertDialog alertDialog = new AlertDialog.Builder(getActivity())
+            .setTitle(R.string.SortOrderTitle)
+            .setSingleChoiceItems(R.array.sort_orders, mState.getSortOrder(), new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    dialog.dismiss();
+                    setSortOrder(which);
+                }
+            })
+            .create();
+        alertDialog.show();
+    }
+
+    /**
+     * Shows or hides the filter field. Hiding it displays all rows again.
+     */
+    public void toggleFilter() {
+        if (mFilterLayout == null) {
+            return;
+        }
+
+        InputMethodManager imm = (InputMethodManager)getActivity().getSystemService(Context.INPUT_METHOD_SERVICE);
+        if (mFilterLayout.getVisibility() == View.VISIBLE) {
+            mFilterField.setText("");
+            mFilterLayout.setVisibility(View.GONE);
+            imm.hideSoftInputFromWindow(mFilterField.getWindowToken(), 0);
+        } else {
+            mFilterLayout.setVisibility(View.VISIBLE);
+            mFilterField.requestFocus();
+            imm.showSoftInput(mFilterField, InputMethodManager.SHOW_IMPLICIT);
+        }
+    }
+
+    /**
+     * Displays only the loaded rows that contain a query, without loading anything.
+     *
+     * @param query The query, or an empty string to display all rows.
+     */
+    private void setFilterQuery(String query) {
+        if (mState == null) {
+            return;
+        }
+
+        mState.setFilterQuery(query);
+        mEntryAdapter.setFilterQuery(query);
+    }
+
+    /**
+     * Sorts the list in another order.
+     *
+     * @param order One of the RowSorter.ORDER_* constants.
+     */
+    private void setSortOrder(int order) {
+        if (order == mState.getSortOrder()) {
+            return;
+        }
+        mState.setSortOrder(order);
+
+        // Rows that are still being streamed in are sorted once their response has been loaded.
+        List<EntryRow> rows = mState.getRows();
+        if (rows != null && mState.getStreamedRows() == null) {
+            mEntryAdapter.update(rows, order, null);
+            mPendingScrollState = null;
+            mEntryListView.scrollToPosition(0);
+        }
+    }
+
+    /**
+     * Returns the number of list rows that are currently visible.
+     *
+     * @return The number of visible rows, or an estimate if the list has not been laid out yet.
+     */
+    private int getVisibleRowCount() {
+        int first = mEntryLayoutManager.findFirstVisibleItemPosition();
+        int count = mEntryLayoutManager.findLastVisibleItemPosition() - first + 1;
+        if (first == RecyclerView.NO_POSITION || count <= 0) {
+            return Config.VISIBLE_ROWS_DEFAULT;
+        }
+        return count;
+    }
+
     /**
      * Displays the relevant views for the current Idgames action.
      */
@@ -367,15 +640,10 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
             dirName += "/";
         }
         
-        // Cancel any potentially running IdgamesApi mTask.
-        if (mTask != null) {
-            mTask.cancel(true);
-        }
-        
         // Update list with the new mRequest data.
         mRequest.setDirectoryName(dirName);
         updateList();
-        mEntryListView.scrollTo(0, 0);
+        mEntryListView.scrollToPosition(0);
         
         return true;
     }
@@ -388,7 +656,7 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
     public void enterDirectory(DirectoryEntry dir) {
         mRequest.setDirectoryName(dir.getName());
         updateList();
-        mEntryListView.scrollTo(0, 0);
+        mEntryListView.scrollToPosition(0);
     }
     
     /**
@@ -403,6 +671,20 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
         progressAnim.start();
     }
     
+    /**
+     * Displays the indicator that shows that the displayed list is being refreshed.
+     */
+    private void showRefreshIndicator() {
+        mRefreshing.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Hides the list refresh indicator.
+     */
+    private void hideRefreshIndicator() {
+        mRefreshing.setVisibility(View.GONE);
+    }
+
     /**
      * Hides the mProgress indicator view and shows the entry list.
      */
@@ -424,8 +706,7 @@ public class IdgamesListFragment extends Fragment implements OnItemClickListener
     /**
      * List item click events are sent through to this fragment's IdgamesListener.  
      */
-    public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-        Entry entry = mEntryAdapter.getItem(position);
-        mListener.onEntrySelected(this, entry);
+    public void onRowClick(EntryRow row) {
+        mListener.onEntrySelected(this, row.getEntry());
     }
 }
@@ -0,0 +1,328 @@
+package nl.exl.doomidgamesarchive;
+
+import android.os.Parcelable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.exl.doomidgamesarchive.idgamesapi.Request;
+import nl.exl.doomidgamesarchive.idgamesapi.Response;
+import nl.exl.doomidgamesarchive.idgamesapi.ResponseCache;
+import nl.exl.doomidgamesarchive.tasks.ListTask;
+import nl.exl.doomidgamesarchive.tasks.TaskScheduler;
+
+/**
+ * The state of a single entry list: its request, the response and rows that are displayed, the
+ * task that is loading a response and the scroll position of the list.
+ *
+ * List states are kept by the StateRepository and outlive the fragments that display them. Loads
+ * are owned by the state rather than by a fragment, so a fragment that is recreated or returned
+ * to re-attaches to the displayed rows or to the load that is still in progress, instead of
+ * starting a new one.
+ */
+public class ListState {
+
+    // The request of the list. Fragments change this directly when browsing or searching.
+    private final Request mRequest;
+
+    // The response that is displayed and its rows, or null if none has been loaded yet.
+    private Response mResponse;
+    private List<EntryRow> mRows;
+
+    // True if the displayed response is stale and is being revalidated.
+    private boolean mStale;
+
+    // The time at which the displayed response expires, in milliseconds.
+    private long mExpires;
+
+    // The task that is loading a response, or null if nothing is being loaded.
+    private ListTask mTask;
+
+    // Rows that were streamed in while the response is still being parsed, or null if none were.
+    private List<EntryRow> mStreamedRows;
+
+    // The order that the rows are displayed in, one of the RowSorter.ORDER_* constants.
+    private int mSortOrder = RowSorter.ORDER_NONE;
+
+    // Index of the rows of the list, and the query that they are filtered by.
+    private final RowFilterIndex mFilterIndex = new RowFilterIndex();
+    private String mFilterQuery = "";
+
+    // The saved scroll state of the list's layout manager, or null if it was never scrolled.
+    private Parcelable mScrollState;
+
+    // The listener that displays this state, if any.
+    private Listener mListener;
+
+
+    /**
+     * Interface for displaying a list state.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the UI thread when the displayed response changed, or when a load started
+         * without a response to display.
+         *
+         * @param state The list state that changed.
+         */
+        void onListStateChanged(ListState state);
+
+        /**
+         * Called on the UI thread with a batch of rows that was parsed while the rest of the
+         * response is still loading.
+         *
+         * @param state The list state that is loading.
+         * @param offset The index of the first row of the batch.
+         * @param rows The rows of the batch.
+         */
+        void onRowsStreamed(ListState state, int offset, List<EntryRow> rows);
+    }
+
+
+    ListState(Request request) {
+        mRequest = request;
+    }
+
+    public Request getRequest() {
+        return mRequest;
+    }
+
+    /**
+     * @return The response that is displayed, or null if none was loaded yet.
+     */
+    public Response getResponse() {
+        return mResponse;
+    }
+
+    /**
+     * @return The rows of the response that is displayed, or null if none was loaded yet.
+     */
+    public List<EntryRow> getRows() {
+        return mRows;
+    }
+
+    /**
+     * @return The rows that were streamed in for the response that is being loaded, or null.
+     */
+    public List<EntryRow> getStreamedRows() {
+        return mStreamedRows;
+    }
+
+    /**
+     * @return True if the displayed response is stale and is being revalidated.
+     */
+    public boolean isStale() {
+        return mStale;
+    }
+
+    /**
+     * @return True if a response is being loaded.
+     */
+    public boolean isLoading() {
+        return mTask != null;
+    }
+
+    /**
+     * @return True if the displayed response should be loaded again.
+     */
+    public boolean isExpired() {
+        return mResponse == null || mStale || System.currentTimeMillis() >= mExpires;
+    }
+
+    /**
+     * @return The order that the rows are displayed in, one of the RowSorter.ORDER_* constants.
+     */
+    public int getSortOrder() {
+        return mSortOrder;
+    }
+
+    public void setSortOrder(int sortOrder) {
+        mSortOrder = sortOrder;
+    }
+
+    /**
+     * @return The index that the rows of the list are filtered with. Rows are added to it as they
+     * are displayed.
+     */
+    public RowFilterIndex getFilterIndex() {
+        return mFilterIndex;
+    }
+
+    /**
+     * @return The query that the rows are filtered by, or an empty string if they are not filtered.
+     */
+    public String getFilterQuery() {
+        return mFilterQuery;
+    }
+
+    public void setFilterQuery(String filterQuery) {
+        mFilterQuery = filterQuery;
+    }
+
+    public Parcelable getScrollState() {
+        return mScrollState;
+    }
+
+    public void setScrollState(Parcelable scrollState) {
+        mScrollState = scrollState;
+    }
+
+    /**
+     * Attaches a listener that displays this state. Replaces any previous listener.
+     *
+     * @param listener The listener to attach.
+     */
+    public void attach(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Detaches a listener, if it is the one that is attached.
+     *
+     * @param listener The listener to detach.
+     */
+    public void detach(Listener listener) {
+        if (mListener == listener) {
+            mListener = null;
+        }
+    }
+
+    /**
+     * Loads the response of the request, unless an unexpired response is displayed already or a
+     * response is still being loaded.
+     */
+    public void load() {
+        if (isLoading() || !isExpired()) {
+            return;
+        }
+        reload();
+    }
+
+    /**
+     * Loads the response of the request, for instance because the request has changed. A fresh
+     * response in the memory cache is displayed right away without starting a task at all.
+     */
+    public void reload() {
+        cancel();
+
+        // The rows of the previous response are indexed again as they are displayed, if they are.
+        mFilterIndex.clear();
+
+        ResponseCache cache = ResponseCache.getInstance();
+        Response response = cache.get(mRequest);
+        if (response != null) {
+            setResponse(response, null);
+            return;
+        }
+
+        // Display the last known response while it is being revalidated. The task may still find
+        // one on disk if there is none in memory.
+        response = cache.getStale(mRequest);
+        if (response != null) {
+            setStaleResponse(response, null);
+        } else {
+            mResponse = null;
+            mRows = null;
+            mStale = false;
+        }
+
+        mTask = new ListTask(this);
+        TaskScheduler.getInstance().execute(mTask, TaskScheduler.PRIORITY_FOREGROUND, this, mRequest);
+
+        if (response == null) {
+            notifyChanged();
+        }
+    }
+
+    /**
+     * Stops loading a response, if one is being loaded.
+     */
+    public void cancel() {
+        if (mTask != null) {
+            mTask.abort();
+            mTask = null;
+        }
+        mStreamedRows = null;
+        TaskScheduler.getInstance().cancelAll(this);
+    }
+
+    /**
+     * Displays a response that has been loaded or revalidated.
+     *
+     * @param response The response to display.
+     * @param rows The rows prepared for the response's entries, or null to prepare them here.
+     *             Responses in the memory cache were loaded by a list task before, so their
+     *             tables hold formatted dates already.
+     */
+    public void setResponse(Response response, List<EntryRow> rows) {
+        // Errors are not kept around, they are loaded again as soon as the list is displayed again.
+        if (response.getErrorMessage() == null) {
+            setResponse(response, rows, System.currentTimeMillis() + mRequest.getMaxAge() * 1000);
+        } else {
+            setResponse(response, rows, 0);
+        }
+    }
+
+    /**
+     * Displays a stale response that could not be revalidated. It is no longer being revalidated,
+     * but it stays expired, so it is revalidated again as soon as the list is displayed again.
+     *
+     * @param response The stale response to display.
+     * @param rows The rows prepared for the response's entries, or null to prepare them here.
+     */
+    public void setUnrevalidatedResponse(Response response, List<EntryRow> rows) {
+        setResponse(response, rows, 0);
+    }
+
+    private void setResponse(Response response, List<EntryRow> rows, long expires) {
+        mTask = null;
+        mStreamedRows = null;
+        mResponse = response;
+        mRows = rows != null ? rows : EntryRow.createAll(response.getTable());
+        mStale = false;
+        mExpires = expires;
+
+        notifyChanged();
+    }
+
+    /**
+     * Displays a stale response while it is being revalidated.
+     *
+     * @param response The stale response to display.
+     * @param rows The rows prepared for the response's entries, or null to prepare them here.
+     */
+    public void setStaleResponse(Response response, List<EntryRow> rows) {
+        mResponse = response;
+        mRows = rows != null ? rows : EntryRow.createAll(response.getTable());
+        mStale = true;
+
+        notifyChanged();
+    }
+
+    /**
+     * Adds a batch of rows that was parsed while the rest of the response is still loading.
+     *
+     * @param offset The index of the first row of the batch. Streamed rows from this index
+     *               onwards are replaced by the batch.
+     * @param rows The rows of the batch.
+     */
+    public void appendRows(int offset, List<EntryRow> rows) {
+        List<EntryRow> streamedRows = new ArrayList<>(offset + rows.size());
+        if (mStreamedRows != null) {
+            streamedRows.addAll(mStreamedRows.subList(0, Math.min(offset, mStreamedRows.size())));
+        }
+        streamedRows.addAll(rows);
+        mStreamedRows = streamedRows;
+
+        if (mListener != null) {
+            mListener.onRowsStreamed(this, offset, rows);
+        }
+    }
+
+    private void notifyChanged() {
+        if (mListener != null) {
+            mListener.onListStateChanged(this);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package nl.exl.doomidgamesarchive;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide atlas of rating icons, shared by all views that draw ratings.
+ *
+ * An atlas holds the empty, half and full icon of a set of rating icons side by side in a single
+ * bitmap, decoded once per screen density. Views draw ratings through a strip, which holds the
+ * destination rectangles of every icon for a specific icon count, scale and spacing, and the
+ * fully rendered strip for every half step rating.
+ */
+public final class RatingAtlas {
+
+    // Icons in the atlas, in the order they are stored.
+    private static final int ICON_EMPTY = 0;
+    private static final int ICON_HALF = 1;
+    private static final int ICON_FULL = 2;
+    private static final int ICON_COUNT = 3;
+
+    // Atlases by density and icon resource ids.
+    private static final Map<String, RatingAtlas> INSTANCES = new HashMap<>();
+
+    // The atlas bitmap, containing all icons at their full size.
+    private final Bitmap mBitmap;
+
+    // Source rectangles of each icon in the atlas bitmap.
+    private final Rect[] mSources = new Rect[ICON_COUNT];
+
+    // The size of a single icon in the atlas, in pixels.
+    private final int mIconWidth;
+    private final int mIconHeight;
+
+    // Strips by icon count, scale and spacing.
+    private final Map<String, Strip> mStrips = new HashMap<>();
+
+
+    /**
+     * A row of rating icons at a specific size, with all of its possible renderings.
+     */
+    public final class Strip {
+
+        // The number of icons in the strip.
+        private final int mIconCount;
+
+        // The size of the strip, and of a single icon in it.
+        private final int mWidth;
+        private final int mHeight;
+
+        // Destination rectangles of each icon, relative to the top left of the strip.
+        private final Rect[] mDestinations;
+
+        // The rendered strip for each rating step.
+        private final Bitmap[] mRendered;
+
+        private Strip(int iconCount, float scale, int spacing) {
+            mIconCount = iconCount;
+
+            int iconWidth = (int)(mIconWidth * scale);
+            int iconHeight = (int)(mIconHeight * scale);
+            mWidth = Math.max(1, iconCount * (iconWidth + spacing));
+            mHeight = Math.max(1, iconHeight);
+
+            mDestinations = new Rect[iconCount];
+            for (int i = 0; i < iconCount; i++) {
+                int left = i * (iconWidth + spacing);
+                mDestinations[i] = new Rect(left, 0, left + iconWidth, iconHeight);
+            }
+
+            // Render every step up front, so that drawing a rating never allocates anything.
+            Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            mRendered = new Bitmap[iconCount * 2 + 1];
+            for (int step = 0; step < mRendered.length; step++) {
+                Bitmap rendered = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(rendered);
+                for (int i = 0; i < iconCount; i++) {
+                    canvas.drawBitmap(mBitmap, getSource(step, i), mDestinations[i], paint);
+                }
+                mRendered[step] = rendered;
+            }
+        }
+
+        /**
+         * Returns the step of a rating. A step is a number of half icons, each icon shows the
+         * step that its part of the rating is rounded up to.
+         *
+         * @param rating The rating, from 0 to the number of icons.
+         *
+         * @return The step of the rating, from 0 to twice the number of icons.
+         */
+        public int getStep(float rating) {
+            int step = (int)Math.ceil(rating * 2);
+            return Math.max(0, Math.min(step, mIconCount * 2));
+        }
+
+        /**
+         * Returns the source rectangle in the atlas bitmap of an icon at a step.
+         *
+         * @param step The rating step, as returned by getStep.
+         * @param index The index of the icon.
+         *
+         * @return The source rectangle. Must not be modified.
+         */
+        public Rect getSource(int step, int index) {
+            int remaining = step - index * 2;
+            if (remaining <= 0) {
+                return mSources[ICON_EMPTY];
+            } else if (remaining == 1) {
+                return mSources[ICON_HALF];
+            }
+            return mSources[ICON_FULL];
+        }
+
+        /**
+         * @param index The index of the icon.
+         *
+         * @return The destination rectangle of an icon. Must not be modified.
+         */
+        public Rect getDestination(int index) {
+            return mDestinations[index];
+        }
+
+        /**
+         * @param step The rating step, as returned by getStep.
+         *
+         * @return The fully rendered strip for a step.
+         */
+        public Bitmap getRendered(int step) {
+            return mRendered[step];
+        }
+
+        /**
+         * @return The atlas bitmap that the source rectangles refer to.
+         */
+        public Bitmap getAtlas() {
+            return mBitmap;
+        }
+
+        public int getIconCount() {
+            return mIconCount;
+        }
+
+        public int getWidth() {
+            return mWidth;
+        }
+
+        public int getHeight() {
+            return mHeight;
+        }
+    }
+
+
+    /**
+     * Returns the atlas of a set of rating icons for the density of a set of resources.
+     *
+     * @param resources The resources to decode the icons from.
+     * @param empty The resource id of the empty icon.
+     * @param half The resource id of the half icon.
+     * @param full The resource id of the full icon.
+     *
+     * @return The atlas, or null if the icons could not be decoded.
+     */
+    public static synchronized RatingAtlas getInstance(Resources resources, int empty, int half, int full) {
+        String key = resources.getDisplayMetrics().densityDpi + ":" + empty + ":" + half + ":" + full;
+        RatingAtlas atlas = INSTANCES.get(key);
+        if (atlas != null) {
+            return atlas;
+        }
+
+        Bitmap emptyBitmap = BitmapFactory.decodeResource(resources, empty);
+        Bitmap halfBitmap = BitmapFactory.decodeResource(resources, half);
+        Bitmap fullBitmap = BitmapFactory.decodeResource(resources, full);
+        if (emptyBitmap == null || halfBitmap == null || fullBitmap == null) {
+            return null;
+        }
+
+        atlas = new RatingAtlas(new Bitmap[] { emptyBitmap, halfBitmap, fullBitmap });
+        INSTANCES.put(key, atlas);
+
+        return atlas;
+    }
+
+    private RatingAtlas(Bitmap[] icons) {
+        mIconWidth = icons[ICON_EMPTY].getWidth();
+        mIconHeight = icons[ICON_EMPTY].getHeight();
+
+        // Copy all icons into the atlas at the size of the empty icon.
+        mBitmap = Bitmap.createBitmap(mIconWidth * ICON_COUNT, mIconHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mBitmap);
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        for (int i = 0; i < ICON_COUNT; i++) {
+            mSources[i] = new Rect(i * mIconWidth, 0, (i + 1) * mIconWidth, mIconHeight);
+            canvas.drawBitmap(icons[i], null, mSources[i], paint);
+            icons[i].recycle();
+        }
+    }
+
+    /**
+     * Returns a strip of rating icons.
+     *
+     * @param iconCount The number of icons in the strip.
+     * @param scale The scale of the icons, relative to their size in the atlas.
+     * @param spacing The space after each icon, in pixels.
+     *
+     * @return The strip.
+     */
+    public synchronized Strip getStrip(int iconCount, float scale, int spacing) {
+        String key = iconCount + ":" + scale + ":" + spacing;
+        Strip strip = mStrips.get(key);
+        if (strip == null) {
+            strip = new Strip(Math.max(iconCount, 0), scale, spacing);
+            mStrips.put(key, strip);
+        }
+        return strip;
+    }
+}
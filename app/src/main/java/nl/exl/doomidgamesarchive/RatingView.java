@@ -2,21 +2,18 @@ package nl.exl.doomidgamesarchive;
 
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
-import android.graphics.Rect;
-import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 import android.view.View;
 
-import androidx.core.content.res.ResourcesCompat;
-
 /**
  * Displays a number of icons based on what current rating is given.
+ *
+ * The icons are shared by all rating views through a RatingAtlas, so a view does not decode any
+ * bitmaps of its own and drawing a rating does not allocate anything.
  */
 public class RatingView extends View {
 
@@ -29,10 +26,9 @@ public class RatingView extends View {
     // The space that is kept in between rating icons.
     private int mRatingSpacing;
 
-    // Rating icons.
-    private Bitmap mBitmapEmpty;
-    private Bitmap mBitmapHalf;
-    private Bitmap mBitmapFull;
+    // The shared atlas of this view's rating icons, and the strip for its current size.
+    private RatingAtlas mAtlas;
+    private RatingAtlas.Strip mStrip;
 
     // Y coordinate to render rating icons at. This is cached when the view's size changes.
     private int mRenderY;
@@ -40,14 +36,6 @@ public class RatingView extends View {
     // Paint used for rendering.
     private Paint mPaint;
 
-    // Rectangles for rendering.
-    private Rect mRectSrc = new Rect();
-    private Rect mRectDest = new Rect();
-
-    // Cached icon sizes.
-    private int mIconDrawableWidth;
-    private int mIconDrawableHeight;
-
     private float mIconScale = 1.0f;
 
     private boolean mBlend;
@@ -68,8 +56,6 @@ public class RatingView extends View {
     public RatingView(Context context, AttributeSet attrs) throws RatingBarException {
         super(context, attrs);
 
-        Drawable drawableEmpty;
-
         // Retrieve view parameters.
         TypedArray a = context.getTheme().obtainStyledAttributes(attrs, R.styleable.RatingView, 0, 0);
         try {
@@ -79,42 +65,40 @@ public class RatingView extends View {
             mIconScale = a.getFloat(R.styleable.RatingView_scale, mIconScale);
             mBlend = a.getBoolean(R.styleable.RatingView_blend, false);
 
-            mBitmapEmpty = BitmapFactory.decodeResource(getResources(), a.getResourceId(R.styleable.RatingView_drawableEmpty, R.drawable.rating_skull_empty));
-            mBitmapHalf = BitmapFactory.decodeResource(getResources(), a.getResourceId(R.styleable.RatingView_drawableHalf, R.drawable.rating_skull_half));
-            mBitmapFull = BitmapFactory.decodeResource(getResources(), a.getResourceId(R.styleable.RatingView_drawableFull, R.drawable.rating_skull_full));
-
-            drawableEmpty = ResourcesCompat.getDrawable(getResources(), a.getResourceId(R.styleable.RatingView_drawableEmpty, R.drawable.rating_skull_empty), null);
+            mAtlas = RatingAtlas.getInstance(getResources(),
+                a.getResourceId(R.styleable.RatingView_drawableEmpty, R.drawable.rating_skull_empty),
+                a.getResourceId(R.styleable.RatingView_drawableHalf, R.drawable.rating_skull_half),
+                a.getResourceId(R.styleable.RatingView_drawableFull, R.drawable.rating_skull_full));
 
         } finally {
             a.recycle();
         }
         
-        // Test if all icon drawables are specified.
-        if (mBitmapEmpty == null || drawableEmpty == null) {
-            throw new RatingBarException("No empty icon drawable.");
+        // Test if all icon drawables could be loaded.
+        if (mAtlas == null) {
+            throw new RatingBarException("Rating icon drawables could not be decoded.");
         }
-        if (mBitmapHalf == null) {
-            throw new RatingBarException("No half icon drawable.");
-        }
-        if (mBitmapFull == null) {
-            throw new RatingBarException("No full icon drawable.");
-        }
-
-        mIconDrawableWidth = (int)(drawableEmpty.getIntrinsicWidth() * mIconScale);
-        mIconDrawableHeight = (int)(drawableEmpty.getIntrinsicHeight() * mIconScale);
+        updateStrip();
 
-        mPaint = new Paint();
+        mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
         if (mBlend) {
             mPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.MULTIPLY));
         } else {
             mPaint.setXfermode(null);
         }
     }
+
+    /**
+     * Gets the strip of icons for the current icon count, scale and spacing from the atlas.
+     */
+    private void updateStrip() {
+        mStrip = mAtlas.getStrip(mRatingMax, mIconScale, mRatingSpacing);
+    }
     
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {     
-        final int desiredWidth = getPaddingLeft() + getPaddingRight() + getSuggestedMinimumWidth() + (mRatingMax * (mIconDrawableWidth + mRatingSpacing));
-        final int desiredHeight = getPaddingTop() + getPaddingBottom() + getSuggestedMinimumHeight() + mIconDrawableHeight;
+        final int desiredWidth = getPaddingLeft() + getPaddingRight() + getSuggestedMinimumWidth() + mStrip.getWidth();
+        final int desiredHeight = getPaddingTop() + getPaddingBottom() + getSuggestedMinimumHeight() + mStrip.getHeight();
         
         final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
         final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
@@ -148,51 +132,34 @@ public class RatingView extends View {
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
 
         // Render icons vertically centered.
-        mRenderY = h / 2 - mIconDrawableHeight / 2;
+        mRenderY = h / 2 - mStrip.getHeight() / 2;
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        Bitmap icon;
-
-        int iconWidth = (int)(mBitmapEmpty.getScaledWidth(canvas) * mIconScale);
-        int iconHeight = (int)(mBitmapEmpty.getScaledHeight(canvas) * mIconScale);
-
-        mRectSrc.left = 0;
-        mRectSrc.top = 0;
-        mRectSrc.right = mBitmapEmpty.getWidth();
-        mRectSrc.bottom = mBitmapEmpty.getHeight();
-
-        mRectDest.left = 0;
-        mRectDest.top = mRenderY;
-        mRectDest.right = iconWidth;
-        mRectDest.bottom = mRenderY + iconHeight;
-
-        for (int i = 0; i < mRatingMax; i++) {
-            
-            // Select what icon drawable to use depending on the rating.
-            if (mRating - i <= 0) {
-                icon = mBitmapEmpty;
-            } else if (mRating - i <= 0.5) {
-                icon = mBitmapHalf;
-            } else {
-                icon = mBitmapFull;
-            }
+        int step = mStrip.getStep(mRating);
 
-            canvas.drawBitmap(icon, mRectSrc, mRectDest, mPaint);
-
-            mRectDest.left += iconWidth + mRatingSpacing;
-            mRectDest.right = mRectDest.left + iconWidth;
+        // Blended icons are drawn one by one, so that the space in between them is left alone.
+        if (mBlend) {
+            canvas.save();
+            canvas.translate(0, mRenderY);
+            for (int i = 0; i < mStrip.getIconCount(); i++) {
+                canvas.drawBitmap(mStrip.getAtlas(), mStrip.getSource(step, i), mStrip.getDestination(i), mPaint);
+            }
+            canvas.restore();
+            return;
         }
+
+        canvas.drawBitmap(mStrip.getRendered(step), 0, mRenderY, mPaint);
     }
     
     public void setRating(float rating) {
         mRating = rating;
-        
+
+        // The size of the view does not depend on the rating.
         invalidate();
-        requestLayout();
     }
     
     /**
@@ -200,6 +167,7 @@ public class RatingView extends View {
      */
     public void setRatingSpacing(int ratingSpacing) {
         mRatingSpacing = dpToPx(Math.max(ratingSpacing, 0));
+        updateStrip();
         
         invalidate();
         requestLayout();
@@ -213,6 +181,7 @@ public class RatingView extends View {
         
         // Maximum rating is 0 or higher.
         mRating = Math.min(ratingMax, mRating);
+        updateStrip();
         
         invalidate();
         requestLayout();
@@ -0,0 +1,131 @@
+package nl.exl.doomidgamesarchive;
+
+import java.util.Collections;
+import java.util.List;
+
+import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
+
+/**
+ * The text of a file's details page, with its HTML already rendered into styled text.
+ *
+ * Instances are created by the DetailRenderer on a background thread, and are immutable so that
+ * they can be displayed again without any parsing.
+ */
+public final class RenderedDetails {
+
+    // The file entry that was rendered.
+    private final FileEntry mFile;
+
+    // The rendered info sections, in display order.
+    private final List<Section> mSections;
+
+    // The rendered reviews, in display order.
+    private final List<RenderedReview> mReviews;
+
+    // True if the file's details were offloaded but could not be loaded anymore.
+    private final boolean mDetailsMissing;
+
+
+    /**
+     * A titled section of file info.
+     */
+    public static final class Section {
+        private final String mTitle;
+        private final String mSource;
+        private final CharSequence mText;
+        private final boolean mLinked;
+
+        Section(String title, String source, CharSequence text, boolean linked) {
+            mTitle = title;
+            mSource = source;
+            mText = text;
+            mLinked = linked;
+        }
+
+        public String getTitle() {
+            return mTitle;
+        }
+
+        /**
+         * @return The HTML source that the text was rendered from.
+         */
+        String getSource() {
+            return mSource;
+        }
+
+        public CharSequence getText() {
+            return mText;
+        }
+
+        /**
+         * @return True if web and email links have been added to the text.
+         */
+        public boolean isLinked() {
+            return mLinked;
+        }
+    }
+
+    /**
+     * A single review of the file.
+     */
+    public static final class RenderedReview {
+        private final String mSource;
+        private final CharSequence mText;
+        private final String mUsername;
+        private final float mRating;
+
+        RenderedReview(String source, CharSequence text, String username, float rating) {
+            mSource = source;
+            mText = text;
+            mUsername = username;
+            mRating = rating;
+        }
+
+        /**
+         * @return The HTML source that the text was rendered from.
+         */
+        String getSource() {
+            return mSource;
+        }
+
+        public CharSequence getText() {
+            return mText;
+        }
+
+        public String getUsername() {
+            return mUsername;
+        }
+
+        public float getRating() {
+            return mRating;
+        }
+    }
+
+
+    RenderedDetails(FileEntry file, List<Section> sections, List<RenderedReview> reviews, boolean detailsMissing) {
+        mFile = file;
+        mSections = Collections.unmodifiableList(sections);
+        mReviews = Collections.unmodifiableList(reviews);
+        mDetailsMissing = detailsMissing;
+    }
+
+    public FileEntry getFile() {
+        return mFile;
+    }
+
+    public List<Section> getSections() {
+        return mSections;
+    }
+
+    public List<RenderedReview> getReviews() {
+        return mReviews;
+    }
+
+    /**
+     * @return True if the file's offloaded details could not be loaded, in which case only the
+     * sections of the file's summary were rendered.
+     */
+    public boolean isDetailsMissing() {
+        return mDetailsMissing;
+    }
+}
@@ -0,0 +1,53 @@
+package nl.exl.doomidgamesarchive;
+
+import android.os.Bundle;
+
+import nl.exl.doomidgamesarchive.idgamesapi.Request;
+
+/**
+ * Saves requests to and restores them from Bundle objects, for fragment arguments and saved
+ * instance state.
+ */
+public final class RequestBundles {
+
+    private RequestBundles() {
+    }
+
+    /**
+     * Restores a request's state from a Bundle object.
+     *
+     * @param request The request to restore.
+     * @param bundle The Bundle object to restore state from.
+     */
+    public static void restore(Request request, Bundle bundle) {
+        request.setAction(bundle.getInt("action", -1));
+        request.setDirectoryName(bundle.getString("directoryName"));
+        request.setFileId(bundle.getInt("fileId", -1));
+        request.setQuery(bundle.getString("query"));
+        request.setCategory(bundle.getInt("category", Request.CATEGORY_DEFAULT));
+        request.setLimit(bundle.getInt("limit", Request.LIMIT_DEFAULT));
+        request.setMaxAge(bundle.getLong("maxAge", Request.MAXAGE_DEFAULT));
+        request.setMaxStale(bundle.getLong("maxStale", Request.MAXSTALE_DEFAULT));
+        request.setProjection(bundle.getInt("projection", Request.PROJECTION_FULL));
+        request.setFormat(bundle.getInt("format", Request.FORMAT_DEFAULT));
+    }
+
+    /**
+     * Saves a request's state to a Bundle object.
+     *
+     * @param request The request to save.
+     * @param out The Bundle to save state to.
+     */
+    public static void save(Request request, Bundle out) {
+        out.putInt("action", request.getAction());
+        out.putString("directoryName", request.getDirectoryName());
+        out.putInt("fileId", request.getFileId());
+        out.putString("query", request.getQuery());
+        out.putInt("category", request.getCategory());
+        out.putInt("limit", request.getLimit());
+        out.putLong("maxAge", request.getMaxAge());
+        out.putLong("maxStale", request.getMaxStale());
+        out.putInt("projection", request.getProjection());
+        out.putInt("format", request.getFormat());
+    }
+}
@@ -0,0 +1,385 @@
+package nl.exl.doomidgamesarchive;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nl.exl.doomidgamesarchive.idgamesapi.EntryTable;
+
+/**
+ * An in-memory trigram index over the title, file name and author of list rows, for filtering a
+ * list that has been loaded without making any web API calls.
+ *
+ * Rows are added as they arrive, so that the index is built up while a response is streamed in.
+ * A row is identified by its entry kind and id, and keeps the same ordinal for as long as it is
+ * indexed. Adding a row again only indexes it again if its text changed. The trigrams of its old
+ * text are then left in the posting lists, where they only make the row a candidate that does
+ * not match. A filter looks up the rows that contain every trigram of the query, and only
+ * compares the text of those rows. Queries shorter than a trigram are compared with the text of
+ * every row.
+ *
+ * All text is folded to lower case one character at a time, so that offsets in folded text are
+ * the same as in the original text. Must only be used on the UI thread.
+ */
+public final class RowFilterIndex {
+
+    // Number of characters in an n-gram.
+    private static final int GRAM_LENGTH = 3;
+
+    // Separates the title, file name and author in the text of a row. Never part of a query.
+    private static final char SEPARATOR = '\n';
+
+    // Folded text of each row, by ordinal.
+    private String[] mTexts = new String[64];
+
+    // The number of ordinals in use.
+    private int mSize;
+
+    // Ordinals by row key.
+    private final LongIntMap mOrdinals = new LongIntMap();
+
+    // Posting lists by trigram. Each list holds the ordinals of the rows that contain or contained
+    // the trigram. Rows that were indexed again can occur out of order, and more than once.
+    private final LongIntMap mPostingIndices = new LongIntMap();
+    private int[][] mPostings = new int[256][];
+    private int[] mPostingSizes = new int[256];
+    private int mPostingCount;
+
+
+    /**
+     * The rows that matched a filter.
+     */
+    public final class Matches {
+
+        // The folded query.
+        private final String mQuery;
+
+        // True for each ordinal whose row matched.
+        private final boolean[] mMatched;
+
+        private Matches(String query, boolean[] matched) {
+            mQuery = query;
+            mMatched = matched;
+        }
+
+        /**
+         * @return The folded query that was matched.
+         */
+        public String getQuery() {
+            return mQuery;
+        }
+
+        /**
+         * @param row A row.
+         *
+         * @return True if the row matched. Rows that were not indexed before filtering never match.
+         */
+        public boolean contains(EntryRow row) {
+            int ordinal = mOrdinals.get(getKey(row), -1);
+            return ordinal >= 0 && ordinal < mMatched.length && mMatched[ordinal];
+        }
+    }
+
+
+    /**
+     * Removes all rows from this index.
+     */
+    public void clear() {
+        Arrays.fill(mTexts, 0, mSize, null);
+        mSize = 0;
+        mOrdinals.clear();
+
+        mPostingIndices.clear();
+        Arrays.fill(mPostings, 0, mPostingCount, null);
+        mPostingCount = 0;
+    }
+
+    /**
+     * Adds rows to this index. Rows that are indexed already with the same text are skipped.
+     *
+     * @param rows The rows to add.
+     */
+    public void add(List<EntryRow> rows) {
+        EntryTable table = null;
+        EntryTable.Row cursor = null;
+        StringBuilder text = new StringBuilder();
+
+        for (EntryRow row : rows) {
+            if (row.getTable() != table) {
+                table = row.getTable();
+                cursor = table.row();
+            }
+            cursor.moveTo(row.getIndex());
+
+            // Build the folded text of the row.
+            text.setLength(0);
+            appendFolded(text, row.getTitle());
+            if (row.getKind() != EntryTable.KIND_DIRECTORY) {
+                text.append(SEPARATOR);
+                appendFolded(text, table.getText(), cursor.getStart(EntryTable.COLUMN_FILENAME), cursor.getLength(EntryTable.COLUMN_FILENAME));
+                text.append(SEPARATOR);
+                appendFolded(text, table.getText(), cursor.getStart(EntryTable.COLUMN_AUTHOR), cursor.getLength(EntryTable.COLUMN_AUTHOR));
+            }
+
+            // Skip rows that were indexed with the same text before. Rows with other text keep their ordinal.
+            long key = getKey(row);
+            int ordinal = mOrdinals.get(key, -1);
+            if (ordinal >= 0 && contentEquals(text, mTexts[ordinal])) {
+                continue;
+            }
+            if (ordinal < 0) {
+                ordinal = addOrdinal();
+                mOrdinals.put(key, ordinal);
+            }
+            indexText(ordinal, text.toString());
+        }
+    }
+
+    /**
+     * @return The number of rows in this index.
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the rows that contain a query in their title, file name or author.
+     *
+     * @param query The query, in any case.
+     *
+     * @return The rows that matched, or null if the query is empty and every row matches.
+     */
+    public Matches filter(String query) {
+        String folded = fold(query.trim());
+        if (folded.length() == 0) {
+            return null;
+        }
+
+        boolean[] matched = new boolean[mSize];
+
+        // Short queries have no trigrams, so compare them with all rows.
+        if (folded.length() < GRAM_LENGTH) {
+            for (int ordinal = 0; ordinal < mSize; ordinal++) {
+                matched[ordinal] = mTexts[ordinal].contains(folded);
+            }
+            return new Matches(folded, matched);
+        }
+
+        // Only rows in the smallest posting list of the query's trigrams can match.
+        int smallest = -1;
+        for (int i = 0; i + GRAM_LENGTH <= folded.length(); i++) {
+            int posting = mPostingIndices.get(getGram(folded, i), -1);
+            if (posting < 0) {
+                return new Matches(folded, matched);
+            }
+            if (smallest < 0 || mPostingSizes[posting] < mPostingSizes[smallest]) {
+                smallest = posting;
+            }
+        }
+
+        int[] ordinals = mPostings[smallest];
+        for (int i = 0; i < mPostingSizes[smallest]; i++) {
+            int ordinal = ordinals[i];
+            if (!matched[ordinal]) {
+                matched[ordinal] = mTexts[ordinal].contains(folded);
+            }
+        }
+
+        return new Matches(folded, matched);
+    }
+
+    /**
+     * @return A new ordinal, for a row that was not indexed before.
+     */
+    private int addOrdinal() {
+        if (mSize == mTexts.length) {
+            mTexts = Arrays.copyOf(mTexts, mSize * 2);
+        }
+        return mSize++;
+    }
+
+    /**
+     * Sets the folded text of a row, and adds the row to the posting list of each of its trigrams.
+     *
+     * @param ordinal The ordinal of the row.
+     * @param text The folded text.
+     */
+    private void indexText(int ordinal, String text) {
+        mTexts[ordinal] = text;
+
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            long gram = getGram(text, i);
+            if (gram < 0) {
+                continue;
+            }
+
+            int posting = mPostingIndices.get(gram, -1);
+            if (posting < 0) {
+                posting = addPosting();
+                mPostingIndices.put(gram, posting);
+            }
+
+            // Trigrams that occur more than once in the text of a row are only added once.
+            int size = mPostingSizes[posting];
+            int[] ordinals = mPostings[posting];
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                continue;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                mPostings[posting] = ordinals;
+            }
+            ordinals[size] = ordinal;
+            mPostingSizes[posting] = size + 1;
+        }
+    }
+
+    /**
+     * @return The index of a new, empty posting list.
+     */
+    private int addPosting() {
+        if (mPostingCount == mPostings.length) {
+            mPostings = Arrays.copyOf(mPostings, mPostingCount * 2);
+            mPostingSizes = Arrays.copyOf(mPostingSizes, mPostingCount * 2);
+        }
+        int posting = mPostingCount++;
+        mPostings[posting] = new int[4];
+        mPostingSizes[posting] = 0;
+        return posting;
+    }
+
+    /**
+     * Returns the trigram at an offset in folded text, packed into a number.
+     *
+     * @param text The folded text.
+     * @param offset The offset of the trigram.
+     *
+     * @return The packed trigram, or -1 if it spans a separator.
+     */
+    private static long getGram(String text, int offset) {
+        long gram = 0;
+        for (int i = offset; i < offset + GRAM_LENGTH; i++) {
+            char c = text.charAt(i);
+            if (c == SEPARATOR) {
+                return -1;
+            }
+            gram = (gram << 16) | c;
+        }
+        return gram;
+    }
+
+    /**
+     * @return The key that identifies a row in this index.
+     */
+    private static long getKey(EntryRow row) {
+        return ((long)row.getKind() << 32) | (row.getId() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Folds text to lower case one character at a time, so that the folded text has the same
+     * length as the original text.
+     *
+     * @param text The text to fold.
+     *
+     * @return The folded text.
+     */
+    public static String fold(CharSequence text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        appendFolded(folded, text, 0, text.length());
+        return folded.toString();
+    }
+
+    private static void appendFolded(StringBuilder builder, CharSequence text) {
+        appendFolded(builder, text, 0, text.length());
+    }
+
+    private static void appendFolded(StringBuilder builder, CharSequence text, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            char c = text.charAt(i);
+            builder.append(c == SEPARATOR ? ' ' : Character.toLowerCase(c));
+        }
+    }
+
+    private static boolean contentEquals(StringBuilder builder, String text) {
+        if (builder.length() != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (builder.charAt(i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * An open addressing hash map from non-negative long keys to int values, so that looking up a
+     * trigram or a row does not allocate.
+     */
+    private static final class LongIntMap {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] mKeys;
+        private int[] mValues;
+        private int mSize;
+
+        LongIntMap() {
+            allocate(64);
+        }
+
+        private void allocate(int capacity) {
+            mKeys = new long[capacity];
+            mValues = new int[capacity];
+            Arrays.fill(mKeys, EMPTY);
+            mSize = 0;
+        }
+
+        void clear() {
+            allocate(64);
+        }
+
+        int get(long key, int defaultValue) {
+            int mask = mKeys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                long slotKey = mKeys[slot];
+                if (slotKey == key) {
+                    return mValues[slot];
+                } else if (slotKey == EMPTY) {
+                    return defaultValue;
+                }
+            }
+        }
+
+        void put(long key, int value) {
+            if ((mSize + 1) * 2 > mKeys.length) {
+                long[] keys = mKeys;
+                int[] values = mValues;
+                allocate(keys.length * 2);
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != EMPTY) {
+                        put(keys[i], values[i]);
+                    }
+                }
+            }
+
+            int mask = mKeys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                long slotKey = mKeys[slot];
+                if (slotKey == key) {
+                    mValues[slot] = value;
+                    return;
+                } else if (slotKey == EMPTY) {
+                    mKeys[slot] = key;
+                    mValues[slot] = value;
+                    mSize++;
+                    return;
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int)(h ^ (h >>> 32));
+        }
+    }
+}
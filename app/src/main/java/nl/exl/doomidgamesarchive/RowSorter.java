@@ -0,0 +1,194 @@
+package nl.exl.doomidgamesarchive;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import nl.exl.doomidgamesarchive.idgamesapi.EntryTable;
+
+/**
+ * Sorts list rows. Directories are always sorted before files and votes.
+ *
+ * Sorting is meant to be done on a background thread. The sort key of every row is computed once
+ * before sorting, so that comparing two rows only compares numbers and bytes. Titles are compared
+ * by their collation keys for the default locale, which each row computes only once.
+ */
+public final class RowSorter {
+
+    // Sort orders. Rows are sorted by title within rows with the same rating, date, size or votes.
+    public static final int ORDER_NONE = 0;
+    public static final int ORDER_TITLE = 1;
+    public static final int ORDER_RATING = 2;
+    public static final int ORDER_DATE = 3;
+    public static final int ORDER_SIZE = 4;
+    public static final int ORDER_VOTES = 5;
+
+    // Collators are not thread safe, so every thread that sorts uses its own.
+    private static final ThreadLocal<Collator> COLLATOR = new ThreadLocal<Collator>() {
+        @Override
+        protected Collator initialValue() {
+            Collator collator = Collator.getInstance();
+            collator.setStrength(Collator.SECONDARY);
+            return collator;
+        }
+    };
+
+    // Compares the sort keys of two rows.
+    private static final Comparator<Key> KEY_COMPARATOR = new Comparator<Key>() {
+        @Override
+        public int compare(Key lhs, Key rhs) {
+            if (lhs.mGroup != rhs.mGroup) {
+                return lhs.mGroup < rhs.mGroup ? -1 : 1;
+            }
+
+            // Higher values come first.
+            if (lhs.mValue != rhs.mValue) {
+                return lhs.mValue > rhs.mValue ? -1 : 1;
+            }
+
+            return compareBytes(lhs.mTitle, rhs.mTitle);
+        }
+    };
+
+
+    /**
+     * The sort key of a single row.
+     */
+    private static final class Key {
+        private final EntryRow mRow;
+
+        // Directories are sorted into group 0, all other rows into group 1.
+        private final int mGroup;
+
+        // The rating, date, size or number of votes of the row, or 0 when sorting by title.
+        private final long mValue;
+
+        // The collation key of the row's title.
+        private final byte[] mTitle;
+
+        private Key(EntryRow row, int group, long value, byte[] title) {
+            mRow = row;
+            mGroup = group;
+            mValue = value;
+            mTitle = title;
+        }
+    }
+
+
+    private RowSorter() {
+    }
+
+    /**
+     * Sorts rows. Can be called on any thread.
+     *
+     * @param rows The rows to sort. These are not modified.
+     * @param order One of the ORDER_* constants.
+     *
+     * @return The sorted rows, or the rows themselves if the order is ORDER_NONE.
+     */
+    public static List<EntryRow> sort(List<EntryRow> rows, int order) {
+        if (order == ORDER_NONE) {
+            return rows;
+        }
+
+        // Compute the key of every row once, reading the entry tables of the rows with a single cursor each.
+        Key[] keys = new Key[rows.size()];
+        EntryTable table = null;
+        EntryTable.Row cursor = null;
+        for (int i = 0; i < keys.length; i++) {
+            EntryRow row = rows.get(i);
+            if (row.getTable() != table) {
+                table = row.getTable();
+                cursor = table.row();
+            }
+            cursor.moveTo(row.getIndex());
+
+            int group = row.getKind() == EntryTable.KIND_DIRECTORY ? 0 : 1;
+            keys[i] = new Key(row, group, getValue(row, table, cursor, order), row.getCollationKey());
+        }
+
+        Arrays.sort(keys, KEY_COMPARATOR);
+
+        List<EntryRow> sorted = new ArrayList<>(keys.length);
+        for (Key key : keys) {
+            sorted.add(key.mRow);
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the value that a row is sorted by.
+     *
+     * @param row The row.
+     * @param table The entry table of the row.
+     * @param cursor A cursor positioned at the row's entry.
+     * @param order One of the ORDER_* constants.
+     *
+     * @return The value to sort the row by, higher values come first.
+     */
+    private static long getValue(EntryRow row, EntryTable table, EntryTable.Row cursor, int order) {
+        switch (order) {
+            case ORDER_RATING:
+                return row.hasRating() ? Math.round(row.getRating() * 1000) : -1;
+            case ORDER_DATE:
+                return parseDate(table, cursor);
+            case ORDER_SIZE:
+                return cursor.getFileSize();
+            case ORDER_VOTES:
+                return cursor.getVoteCount();
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Parses the date of an entry into a number that sorts in the same order, without creating
+     * any objects. Dates are stored as yyyy-mm-dd, so their digits alone form that number.
+     *
+     * @param table The entry table of the entry.
+     * @param cursor A cursor positioned at the entry.
+     *
+     * @return The date as a number, or 0 if the entry has none.
+     */
+    private static long parseDate(EntryTable table, EntryTable.Row cursor) {
+        String text = table.getText();
+        int start = cursor.getStart(EntryTable.COLUMN_DATE);
+        int end = start + cursor.getLength(EntryTable.COLUMN_DATE);
+
+        long date = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                date = date * 10 + (c - '0');
+            }
+        }
+        return date;
+    }
+
+    /**
+     * Creates the collation key of a title for the default locale. Can be called on any thread.
+     *
+     * @param title The title.
+     *
+     * @return The collation key, to be compared as unsigned bytes.
+     */
+    static byte[] createCollationKey(String title) {
+        return COLLATOR.get().getCollationKey(title).toByteArray();
+    }
+
+    /**
+     * Compares two byte arrays as unsigned bytes.
+     */
+    private static int compareBytes(byte[] lhs, byte[] rhs) {
+        int length = Math.min(lhs.length, rhs.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (lhs[i] & 0xFF) - (rhs[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return lhs.length - rhs.length;
+    }
+}
@@ -0,0 +1,92 @@
+package nl.exl.doomidgamesarchive;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import nl.exl.doomidgamesarchive.idgamesapi.Request;
+
+/**
+ * Keeps the state of entry lists and file details pages for as long as the app process lives.
+ *
+ * Fragments and activities come and go with tab switches, rotations and navigation, but the
+ * states they display are kept here. A screen that is displayed again re-attaches to its state,
+ * so that it shows its results and scroll position right away, or waits for the load that is
+ * still in progress instead of starting a new one. Must only be used on the UI thread.
+ */
+public class StateRepository {
+
+    private static StateRepository INSTANCE;
+
+    // List states by key.
+    private final Map<String, ListState> mListStates = new HashMap<>();
+
+    // Details states by file id, in least to most recently used order. Evicted states stop
+    // fetching, because nothing can re-attach to them anymore.
+    private final LinkedHashMap<Integer, DetailsState> mDetailsStates = new LinkedHashMap<Integer, DetailsState>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, DetailsState> eldest) {
+            if (size() <= Config.DETAILS_STATES_MAX) {
+                return false;
+            }
+            eldest.getValue().cancel();
+            return true;
+        }
+    };
+
+
+    public static synchronized StateRepository getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new StateRepository();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the state of a list.
+     *
+     * @param key The key of the list.
+     *
+     * @return The state of the list, or null if there is none yet.
+     */
+    public ListState getListState(String key) {
+        return mListStates.get(key);
+    }
+
+    /**
+     * Creates a new state for a list, replacing any previous state that it had.
+     *
+     * @param key The key of the list.
+     * @param request The request of the list.
+     *
+     * @return The new list state.
+     */
+    public ListState createListState(String key, Request request) {
+        ListState previous = mListStates.get(key);
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        ListState state = new ListState(request);
+        mListStates.put(key, state);
+
+        return state;
+    }
+
+    /**
+     * Returns the state of the details page of a file, creating it if there is none.
+     *
+     * @param request The file info request of the page.
+     *
+     * @return The state of the details page.
+     */
+    public DetailsState getDetailsState(Request request) {
+        DetailsState state = mDetailsStates.get(request.getFileId());
+        if (state == null) {
+            state = new DetailsState(request);
+            mDetailsStates.put(request.getFileId(), state);
+        }
+
+        return state;
+    }
+}
@@ -17,8 +17,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
 import android.preference.PreferenceManager;
-import android.text.Html;
-import android.text.util.Linkify;
+import android.text.method.LinkMovementMethod;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -37,8 +36,7 @@ import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.target.Target;
 import com.google.android.material.appbar.CollapsingToolbarLayout;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -50,23 +48,33 @@ import androidx.core.content.ContextCompat;
 import androidx.core.graphics.ColorUtils;
 import androidx.core.widget.NestedScrollView;
 import nl.exl.doomidgamesarchive.Config;
+import nl.exl.doomidgamesarchive.DetailRenderer;
+import nl.exl.doomidgamesarchive.DetailsState;
 import nl.exl.doomidgamesarchive.R;
 import nl.exl.doomidgamesarchive.RatingView;
+import nl.exl.doomidgamesarchive.RenderedDetails;
+import nl.exl.doomidgamesarchive.StateRepository;
+import nl.exl.doomidgamesarchive.idgamesapi.BlobStore;
 import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
 import nl.exl.doomidgamesarchive.idgamesapi.Request;
-import nl.exl.doomidgamesarchive.idgamesapi.ResponseTask;
-import nl.exl.doomidgamesarchive.idgamesapi.Review;
+import nl.exl.doomidgamesarchive.idgamesapi.ResponseCache;
+import nl.exl.doomidgamesarchive.idgamesapi.SnapshotStore;
 import nl.exl.doomidgamesarchive.idgamesdb.Image;
+import nl.exl.doomidgamesarchive.tasks.DetailRenderTask;
+import nl.exl.doomidgamesarchive.tasks.DetailsStoreTask;
 import nl.exl.doomidgamesarchive.tasks.FileImageTask;
-import nl.exl.doomidgamesarchive.tasks.FileInfoFetchTask;
+import nl.exl.doomidgamesarchive.tasks.TaskScheduler;
 
 import static com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions.withCrossFade;
 
 /**
  * Display details from an IdgamesApi file.
  * Builds a number of views to form a custom layout.
+ *
+ * The file entry is fetched by a details state that outlives this activity, so that a recreated
+ * activity, or one that is opened for the same file again, does not fetch it again.
  */
-public class DetailsActivity extends AppCompatActivity {
+public class DetailsActivity extends AppCompatActivity implements DetailsState.Listener {
 
     // Activity states for UI choices.
     public static final int STATE_INVALID = 0;
@@ -96,6 +104,10 @@ public class DetailsActivity extends AppCompatActivity {
     private CollapsingToolbarLayout mToolbarLayout;
     private RelativeLayout mToolbarLayoutBackground;
     private ProgressBar mImageProgress;
+    private ProgressBar mRefreshing;
+
+    // The state of the file's details page, or null if the file id is invalid.
+    private DetailsState mDetailsState;
 
     // The current file entry that is displayed.
     private FileEntry mFile;
@@ -105,6 +117,13 @@ public class DetailsActivity extends AppCompatActivity {
 
     private boolean mFileCompleted;
     private boolean mImageCompleted;
+    private boolean mImageRequested;
+
+    // True once the file info has been fetched again because its offloaded details were lost.
+    private boolean mDetailsRefetched;
+
+    // True once the page has been scrolled back to its position in the details state.
+    private boolean mScrollRestored;
 
     /**
      * {@inheritDoc}
@@ -113,6 +132,10 @@ public class DetailsActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         
+        // This activity can be started from an idgames:// link without MainActivity running first.
+        SnapshotStore.install(new File(getCacheDir(), "snapshots"), Config.SNAPSHOT_STORE_SIZE, true);
+        BlobStore.install(new File(getCacheDir(), "blobs"), Config.BLOB_STORE_SIZE);
+
         setContentView(R.layout.activity_idgames_details);
 
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -131,6 +154,7 @@ public class DetailsActivity extends AppCompatActivity {
         mToolbarLayoutBackground = findViewById(R.id.IdgamesDetails_ToolbarBackground);
         mImageProgress = findViewById(R.id.IdgamesDetails_ImageProgress);
         mProgress = findViewById(R.id.IdgamesDetails_Progress);
+        mRefreshing = findViewById(R.id.IdgamesDetails_Refreshing);
 
         mProgress.setBackgroundResource(R.drawable.cacodemon);
         setState(DetailsActivity.STATE_LOADING);
@@ -153,6 +177,37 @@ public class DetailsActivity extends AppCompatActivity {
         observer.addOnGlobalLayoutListener(titleLayoutListener);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onPause() {
+        super.onPause();
+
+        if (mDetailsState != null && mScrollRestored) {
+            mDetailsState.setScrollY(mScroller.getScrollY());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        TaskScheduler.getInstance().cancelAll(this);
+
+        // The file info keeps being fetched while this activity is recreated, but not once the
+        // page has been left.
+        if (mDetailsState != null) {
+            mDetailsState.detach(this);
+            if (isFinishing()) {
+                mDetailsState.cancel();
+            }
+        }
+    }
+
     /**
      * Returns the idgames file id to display in this activity.
      *
@@ -187,6 +242,7 @@ public class DetailsActivity extends AppCompatActivity {
     private void getFileInfo(int fileId) {
         mFileCompleted = false;
         mImageCompleted = false;
+        mImageRequested = false;
 
         if (fileId == FILE_ID_INVALID) {
             buildInvalidView();
@@ -194,15 +250,44 @@ public class DetailsActivity extends AppCompatActivity {
             return;
         }
 
-        // Build a request for the file's info.
+        // Re-attach to the file's details state. Its file info is only fetched if it has not been
+        // fetched already, or if it expired.
+        mDetailsState = StateRepository.getInstance().getDetailsState(createFileRequest(fileId));
+        mDetailsState.load();
+        mDetailsState.attach(this);
+        onDetailsStateChanged(mDetailsState);
+    }
+
+    /**
+     * Displays the file entry of the details state, once it has been fetched.
+     *
+     * @param state The details state of this activity.
+     */
+    @Override
+    public void onDetailsStateChanged(DetailsState state) {
+        if (!state.isLoaded()) {
+            return;
+        }
+
+        if (state.isStale()) {
+            setStaleFile(state.getFile());
+        } else {
+            setFile(state.getFile());
+        }
+    }
+
+    /**
+     * Builds a request for an idgames file's information.
+     *
+     * @param fileId An idgames file id.
+     */
+    private Request createFileRequest(int fileId) {
         Request request = new Request();
         request.setAction(Request.GET_FILE);
         request.setFileId(fileId);
         request.setMaxAge(Config.MAXAGE_DETAILS);
 
-        // Run task to fetch file info.
-        ResponseTask responseTask = new FileInfoFetchTask(this);
-        responseTask.execute(request);
+        return request;
     }
 
     /**
@@ -257,16 +342,46 @@ public class DetailsActivity extends AppCompatActivity {
      * @param file FileEntry to display.
      */
     public void setFile(FileEntry file) {
+        mRefreshing.setVisibility(View.GONE);
+        showFile(file);
+    }
+
+    /**
+     * Set a stale file entry to display while it is being revalidated.
+     *
+     * @param file Stale FileEntry to display.
+     */
+    public void setStaleFile(FileEntry file) {
+        showFile(file);
+        mRefreshing.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Builds the views for a file entry. The views are only rebuilt if the file differs from the
+     * one that is displayed already.
+     *
+     * @param file FileEntry to display.
+     */
+    private void showFile(FileEntry file) {
+        if (mFileCompleted && mFile != null && file != null && mFile.isContentEqual(file)) {
+            return;
+        }
+
         mFile = file;
+        mLayoutInfo.removeAllViews();
+        mLayoutReviews.removeAllViews();
         if (file != null) {
             buildDetailView();
         } else {
             buildInvalidView();
         }
 
-        // Fetch additional info for the file.
-        FileImageTask imageTask = new FileImageTask(this);
-        imageTask.execute(mFile);
+        // Fetch additional info for the file, once.
+        if (!mImageRequested) {
+            mImageRequested = true;
+            FileImageTask imageTask = new FileImageTask(this);
+            TaskScheduler.getInstance().execute(imageTask, TaskScheduler.PRIORITY_VISIBLE, this, mFile);
+        }
 
         mFileCompleted = true;
         updateCompletion();
@@ -306,58 +421,80 @@ public class DetailsActivity extends AppCompatActivity {
             mVoteCount.setText(votes);
         }
         
-        // Create individual sections.
-        createSection("Description", true, mFile.getDescription());
-        createSection("Author", true, mFile.getAuthor(), mFile.getEmail());
-        createSection("File", false, mFile.getFileName(), mFile.getLocaleDate(), mFile.getFileSizeString());
-        createSection("Credits", true, mFile.getCredits());
-        createSection("Based on", false, mFile.getBase());
-        createSection("Build time", false, mFile.getBuildTime());
-        createSection("Editors used", false, mFile.getEditorsUsed());
-        createSection("Bugs", false, mFile.getBugs());
-        
-        List<Review> reviews = mFile.getReviews();
-        if (reviews.size() > 0) {
-            Review review;
-            for (int i = 0; i < reviews.size(); i++) {
-                review = reviews.get(i);
-                addReview(review);
-            }
+        // The page's text is rendered in the background, unless it has been rendered before.
+        RenderedDetails rendered = DetailRenderer.getInstance().get(mFile);
+        if (rendered != null) {
+            buildSections(rendered);
+        } else {
+            DetailRenderTask renderTask = new DetailRenderTask(this);
+            TaskScheduler.getInstance().execute(renderTask, TaskScheduler.PRIORITY_FOREGROUND, this, mFile);
         }
     }
 
     /**
-     * Creates a new section of file info.
-     * 
-     * @param title The title of the section to create.
-     * @param texts Variable number of strings to place under this section.
+     * Set the rendered text of a file entry to display.
+     *
+     * @param rendered The rendered text of the file entry.
      */
-    private void createSection(String title, boolean parseLinks, String... texts) {
-        List<String> items = new ArrayList<>();
-        
-        for (String text : texts) {
-            if (text != null && text.trim().length() > 0) {
-                items.add(text);
-            }
+    public void setRenderedDetails(RenderedDetails rendered) {
+        if (rendered.getFile() != mFile) {
+            return;
         }
-        
-        if (items.size() == 0) {
+
+        buildSections(rendered);
+        if (!rendered.isDetailsMissing()) {
             return;
         }
-        
-        addHeader(title);
-        
-        StringBuilder total = new StringBuilder();
-        for (String text : items) {
-            text = text.trim();
-            if (text.length() > 0) {
-                total.append(" - ");
-                total.append(text);
+
+        // The details are no longer stored, so fetch the file's info again, once.
+        if (mDetailsRefetched) {
+            return;
+        }
+        mDetailsRefetched = true;
+
+        Request request = createFileRequest(mFile.getId());
+        ResponseCache.getInstance().remove(request);
+        SnapshotStore store = SnapshotStore.getInstalled();
+        if (store != null) {
+            store.remove(request);
+        }
+
+        // Rebuild the views once the file info has been fetched, even if it did not change.
+        mFileCompleted = false;
+        mRefreshing.setVisibility(View.VISIBLE);
+        mDetailsState.reload();
+    }
+
+    /**
+     * Builds the views to display the rendered sections and reviews of a file.
+     *
+     * @param rendered The rendered text to display.
+     */
+    private void buildSections(RenderedDetails rendered) {
+        for (RenderedDetails.Section section : rendered.getSections()) {
+            addHeader(section.getTitle());
+            addText(section.getText(), section.isLinked());
+        }
+
+        for (RenderedDetails.RenderedReview review : rendered.getReviews()) {
+            addReview(review);
+        }
+
+        // Scroll back to where the page was, once its contents are there.
+        if (!mScrollRestored) {
+            mScrollRestored = true;
+            final int scrollY = mDetailsState.getScrollY();
+            if (scrollY > 0) {
+                mScroller.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mScroller.scrollTo(0, scrollY);
+                    }
+                });
             }
         }
-        addText(total.substring(2), parseLinks);
     }
-    
+
     /**
      * Adds a header to the mLayout view.
      * 
@@ -382,23 +519,20 @@ public class DetailsActivity extends AppCompatActivity {
     /**
      * Adds a TextView to the mLayout.
      * 
-     * @param text The text to add.
+     * @param text The rendered text to add.
+     * @param linked True if the text contains links that should be clickable.
      */
-    private void addText(String text, boolean parseLinks) {
-        text = text.trim();
-        if (text.length() == 0) {
-            return;
-        }
+    private void addText(CharSequence text, boolean linked) {
 
-        // Inflate and configure the text view that gets added to the info layout.
+        // Inflate and configure the text view that gets added to the info layout. Links have been
+        // added to the rendered text already, so the view does not need to look for them again.
         View view = getLayoutInflater().inflate(R.layout.idgames_details_listtext, mLayoutInfo, false);
         TextView textView = view.findViewById(R.id.IdgamesListText_Text);
-        if (parseLinks) {
-            textView.setAutoLinkMask(Linkify.EMAIL_ADDRESSES | Linkify.WEB_URLS);
-        } else {
-            textView.setAutoLinkMask(0);
+        textView.setAutoLinkMask(0);
+        if (linked) {
+            textView.setMovementMethod(LinkMovementMethod.getInstance());
         }
-        textView.setText(Html.fromHtml(text));
+        textView.setText(text);
         
         mLayoutInfo.addView(view);
     }
@@ -406,16 +540,16 @@ public class DetailsActivity extends AppCompatActivity {
     /**
      * Adds a review layout.
      *
-     * @param review Review object to add a layout for.
+     * @param review Rendered review to add a layout for.
      */
-    private void addReview(Review review) {
+    private void addReview(RenderedDetails.RenderedReview review) {
         View view = getLayoutInflater().inflate(R.layout.idgames_details_listreview, mLayoutReviews, false);
         
         TextView textView = view.findViewById(R.id.IdgamesListReview_Text);
         TextView usernameView = view.findViewById(R.id.IdgamesListReview_Username);
         RatingView ratingView = view.findViewById(R.id.IdgamesListReview_Rating);
         
-        textView.setText(Html.fromHtml(review.getText()));
+        textView.setText(review.getText());
         usernameView.setText(review.getUsername());
         ratingView.setRating(review.getRating());
         
@@ -541,9 +675,14 @@ public class DetailsActivity extends AppCompatActivity {
         
         switch (item.getItemId()) {
             case R.id.MenuDetails_ViewText:
-                Intent intent = new Intent(this, TextFileActivity.class);
-                intent.putExtra("textfile", mFile.getTextFileContents());
-                startActivity(intent);
+                // Details that are still held in memory are stored first, so that they have a key.
+                if (mFile.getDetailsKey() != null) {
+                    viewTextFile(mFile.getDetailsKey());
+                } else if (mFile.getDetails() != null) {
+                    TaskScheduler.getInstance().execute(new DetailsStoreTask(this), TaskScheduler.PRIORITY_FOREGROUND, this, mFile.getDetails());
+                } else {
+                    viewTextFile(null);
+                }
                 return true;
                 
             case R.id.MenuDetails_Download:
@@ -555,6 +694,23 @@ public class DetailsActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Displays the text file of the current file entry. The text file is passed by the key of
+     * its details, so that it is not copied into the intent.
+     *
+     * @param detailsKey The blob key of the file entry's details, or null if they could not be stored.
+     */
+    public void viewTextFile(String detailsKey) {
+        if (detailsKey == null) {
+            Toast.makeText(this, this.getString(R.string.IdgamesDetails_ToastNoTextFile), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Intent intent = new Intent(this, TextFileActivity.class);
+        intent.putExtra("detailsKey", detailsKey);
+        startActivity(intent);
+    }
+
     /**
      * Set the current UI state.
      *
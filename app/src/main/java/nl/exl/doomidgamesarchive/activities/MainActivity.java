@@ -33,10 +33,12 @@ import nl.exl.doomidgamesarchive.IdgamesListFragment.IdgamesListener;
 import nl.exl.doomidgamesarchive.MainTabAdapter;
 import nl.exl.doomidgamesarchive.R;
 import nl.exl.doomidgamesarchive.SettingsMenu;
+import nl.exl.doomidgamesarchive.idgamesapi.BlobStore;
 import nl.exl.doomidgamesarchive.idgamesapi.DirectoryEntry;
 import nl.exl.doomidgamesarchive.idgamesapi.Entry;
 import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
 import nl.exl.doomidgamesarchive.idgamesapi.Request;
+import nl.exl.doomidgamesarchive.idgamesapi.SnapshotStore;
 import nl.exl.doomidgamesarchive.idgamesapi.VoteEntry;
 
 
@@ -64,6 +66,8 @@ public class MainActivity extends AppCompatActivity implements IdgamesListener,
         } catch (IOException e) {
             Log.i("MainActivity", "HTTP response cache installation failed: " + e);
         }
+        SnapshotStore.install(new File(getCacheDir(), "snapshots"), Config.SNAPSHOT_STORE_SIZE, true);
+        BlobStore.install(new File(getCacheDir(), "blobs"), Config.BLOB_STORE_SIZE);
 
         setContentView(R.layout.main);
         setupNavigation();
@@ -115,8 +119,10 @@ public class MainActivity extends AppCompatActivity implements IdgamesListener,
             int limit = Integer.parseInt(limitPref);
 
             Bundle args = new Bundle();
+            args.putString("stateKey", TAB_TAG_NEWFILES);
             args.putInt("action", Request.GET_LATESTFILES);
             args.putLong("maxAge", Config.MAXAGE_NEWFILES);
+            args.putLong("maxStale", Config.MAXSTALE_NEWFILES);
             args.putInt("limit", limit);
             args.putBoolean("sort", false);
 
@@ -132,8 +138,10 @@ public class MainActivity extends AppCompatActivity implements IdgamesListener,
             int limit = Integer.parseInt(limitPref);
 
             Bundle args = new Bundle();
+            args.putString("stateKey", TAB_TAG_NEWVOTES);
             args.putInt("action", Request.GET_LATESTVOTES);
             args.putLong("maxAge", Config.MAXAGE_NEWVOTES);
+            args.putLong("maxStale", Config.MAXSTALE_NEWVOTES);
             args.putInt("limit", limit);
             args.putBoolean("sort", false);
 
@@ -146,6 +154,7 @@ public class MainActivity extends AppCompatActivity implements IdgamesListener,
         IdgamesListFragment browseFragment = (IdgamesListFragment)manager.findFragmentByTag(TAB_TAG_BROWSE);
         if (browseFragment == null) {
             Bundle args = new Bundle();
+            args.putString("stateKey", TAB_TAG_BROWSE);
             args.putInt("action", Request.GET_CONTENTS);
             args.putString("directoryName", "");
             args.putLong("maxAge", Config.MAXAGE_BROWSE);
@@ -160,6 +169,7 @@ public class MainActivity extends AppCompatActivity implements IdgamesListener,
         IdgamesListFragment searchFragment = (IdgamesListFragment)manager.findFragmentByTag(TAB_TAG_SEARCH);
         if (searchFragment == null) {
             Bundle args = new Bundle();
+            args.putString("stateKey", TAB_TAG_SEARCH);
             args.putInt("action", Request.SEARCH);
             args.putString("query", null);
             args.putInt("category", Request.CATEGORY_FILENAME);
@@ -235,9 +245,35 @@ public class MainActivity extends AppCompatActivity implements IdgamesListener,
     }
 
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == R.id.MenuMain_Sort) {
+            IdgamesListFragment fragment = getCurrentListFragment();
+            if (fragment != null) {
+                fragment.showSortOrderDialog();
+            }
+            return true;
+        } else if (item.getItemId() == R.id.MenuMain_Filter) {
+            IdgamesListFragment fragment = getCurrentListFragment();
+            if (fragment != null) {
+                fragment.toggleFilter();
+            }
+            return true;
+        }
+
         return SettingsMenu.onOptionsItemSelected(item, this);
     }
 
+    /**
+     * Returns the list fragment of the tab that is displayed. After this activity is recreated,
+     * the pager displays the fragments that it restored rather than those in the tab adapter, so
+     * the fragment is looked up by the tag that the pager gave it.
+     *
+     * @return The fragment, or null if the pager has not added it yet.
+     */
+    private IdgamesListFragment getCurrentListFragment() {
+        long itemId = mTabAdapter.getItemId(mViewPager.getCurrentItem());
+        return (IdgamesListFragment)getSupportFragmentManager().findFragmentByTag("f" + itemId);
+    }
+
     public boolean onCreateOptionsMenu(Menu menu) {
         return SettingsMenu.onCreateOptionsMenu(menu, this);
     }
@@ -3,8 +3,14 @@ package nl.exl.doomidgamesarchive.activities;
 import android.os.Bundle;
 import android.widget.TextView;
 
+import java.io.File;
+
 import androidx.appcompat.app.AppCompatActivity;
+import nl.exl.doomidgamesarchive.Config;
 import nl.exl.doomidgamesarchive.R;
+import nl.exl.doomidgamesarchive.idgamesapi.BlobStore;
+import nl.exl.doomidgamesarchive.tasks.TaskScheduler;
+import nl.exl.doomidgamesarchive.tasks.TextFileTask;
 
 /**
  * Displays the contents of an IdgamesApi file's text file.
@@ -15,11 +21,32 @@ public class TextFileActivity extends AppCompatActivity {
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_idgames_textfile);
-        
-        // Set text file data.
-        TextView text = findViewById(R.id.IdgamesText_Text);
-        String textData = this.getIntent().getExtras().getString("textfile");
+
+        // This activity can be restored without any other activity having been created first.
+        BlobStore.install(new File(getCacheDir(), "blobs"), Config.BLOB_STORE_SIZE);
+
+        // Set text file data. It is loaded from the file's stored details.
+        String detailsKey = this.getIntent().getExtras().getString("detailsKey");
+        if (detailsKey != null) {
+            TaskScheduler.getInstance().execute(new TextFileTask(this), TaskScheduler.PRIORITY_FOREGROUND, this, detailsKey);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        TaskScheduler.getInstance().cancelAll(this);
+    }
+
+    /**
+     * Sets the text file contents to display.
+     *
+     * @param textData The text file contents, or null if they could not be loaded.
+     */
+    public void setText(String textData) {
         if (textData != null) {
+            TextView text = findViewById(R.id.IdgamesText_Text);
             text.setText(textData);
         }
     }
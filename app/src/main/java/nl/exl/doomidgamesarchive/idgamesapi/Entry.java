@@ -1,6 +0,0 @@
-package nl.exl.doomidgamesarchive.idgamesapi;
-
-/**
- * IdgamesApi entry abstract class.
- */
-public abstract class Entry {}
@@ -0,0 +1,54 @@
+package nl.exl.doomidgamesarchive.tasks;
+
+import android.os.AsyncTask;
+
+import java.lang.ref.WeakReference;
+
+import nl.exl.doomidgamesarchive.DetailRenderer;
+import nl.exl.doomidgamesarchive.RenderedDetails;
+import nl.exl.doomidgamesarchive.activities.DetailsActivity;
+import nl.exl.doomidgamesarchive.idgamesapi.FileDetails;
+import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
+
+/**
+ * Task for rendering the text of a file entry's details page. Loads the entry's details first if
+ * they have been offloaded.
+ */
+public class DetailRenderTask extends AsyncTask<FileEntry, Void, RenderedDetails> {
+
+    private WeakReference<DetailsActivity> mDetailsActivity;
+
+    // The file entry that is rendered.
+    private FileEntry mFile;
+
+    public DetailRenderTask(DetailsActivity context) {
+        mDetailsActivity = new WeakReference<>(context);
+    }
+
+    @Override
+    protected RenderedDetails doInBackground(FileEntry... entries) {
+        mFile = entries[0];
+
+        FileDetails details = mFile.getDetails();
+        boolean detailsMissing = false;
+        if (details == null && mFile.getDetailsKey() != null) {
+            details = mFile.loadDetails();
+            detailsMissing = details == null;
+        }
+
+        if (isCancelled()) {
+            return null;
+        }
+        return DetailRenderer.getInstance().render(mFile, details, detailsMissing);
+    }
+
+    @Override
+    protected void onPostExecute(RenderedDetails rendered) {
+        DetailsActivity activity = mDetailsActivity.get();
+        if (activity == null || rendered == null) {
+            return;
+        }
+
+        activity.setRenderedDetails(rendered);
+    }
+}
@@ -0,0 +1,36 @@
+package nl.exl.doomidgamesarchive.tasks;
+
+import android.os.AsyncTask;
+
+import java.lang.ref.WeakReference;
+
+import nl.exl.doomidgamesarchive.activities.DetailsActivity;
+import nl.exl.doomidgamesarchive.idgamesapi.FileDetails;
+
+/**
+ * Task for storing file details that are still held in memory, so that their text file can be
+ * displayed by key.
+ */
+public class DetailsStoreTask extends AsyncTask<FileDetails, Void, String> {
+
+    private WeakReference<DetailsActivity> mDetailsActivity;
+
+    public DetailsStoreTask(DetailsActivity context) {
+        mDetailsActivity = new WeakReference<>(context);
+    }
+
+    @Override
+    protected String doInBackground(FileDetails... details) {
+        return details[0].store();
+    }
+
+    @Override
+    protected void onPostExecute(String detailsKey) {
+        DetailsActivity activity = mDetailsActivity.get();
+        if (activity == null) {
+            return;
+        }
+
+        activity.viewTextFile(detailsKey);
+    }
+}
@@ -2,35 +2,59 @@ package nl.exl.doomidgamesarchive.tasks;
 
 import java.lang.ref.WeakReference;
 
-import nl.exl.doomidgamesarchive.activities.DetailsActivity;
+import nl.exl.doomidgamesarchive.DetailsState;
 import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
 import nl.exl.doomidgamesarchive.idgamesapi.Response;
-import nl.exl.doomidgamesarchive.idgamesapi.ResponseTask;
 
 /**
  * Task for fetching information about a single file.
  */
 public class FileInfoFetchTask extends ResponseTask {
-    private WeakReference<DetailsActivity> activityReference;
+    private WeakReference<DetailsState> stateReference;
 
-    public FileInfoFetchTask(DetailsActivity context) {
-        activityReference = new WeakReference<>(context);
+    public FileInfoFetchTask(DetailsState context) {
+        stateReference = new WeakReference<>(context);
+        setPublishStale(true);
+    }
+
+    /**
+     * Returns the file entry contained in a file info response.
+     *
+     * @param response The response to a file info request.
+     *
+     * @return The file entry, or null if the response does not contain one.
+     */
+    public static FileEntry getFileEntry(Response response) {
+        if (response.getErrorMessage() == null) {
+            if (response.getEntries().size() > 0) {
+                return (FileEntry) response.getEntries().get(0);
+            }
+        }
+
+        return null;
     }
 
     @Override
-    protected void onPostExecute(Response response) {
-        DetailsActivity activity = activityReference.get();
-        if (activity == null) {
+    protected void onStaleResponse(Response response) {
+        DetailsState state = stateReference.get();
+        if (state == null) {
             return;
         }
 
-        FileEntry responseFile = null;
-        if (response.getErrorMessage() == null) {
-            if (response.getEntries().size() > 0) {
-                responseFile = (FileEntry) response.getEntries().get(0);
-            }
+        state.setStaleFile(getFileEntry(response));
+    }
+
+    @Override
+    protected void onPostExecute(Response response) {
+        DetailsState state = stateReference.get();
+        if (state == null) {
+            return;
         }
 
-        activity.setFile(responseFile);
+        if (isRevalidationFailed()) {
+            state.setUnrevalidatedFile(getFileEntry(response));
+        } else {
+            state.setFile(getFileEntry(response));
+        }
     }
 }
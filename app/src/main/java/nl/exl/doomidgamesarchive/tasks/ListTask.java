@@ -1,27 +1,55 @@
 package nl.exl.doomidgamesarchive.tasks;
 
 import java.lang.ref.WeakReference;
+import java.util.List;
 
-import nl.exl.doomidgamesarchive.IdgamesListFragment;
+import nl.exl.doomidgamesarchive.EntryRow;
+import nl.exl.doomidgamesarchive.ListState;
 import nl.exl.doomidgamesarchive.idgamesapi.Response;
-import nl.exl.doomidgamesarchive.idgamesapi.ResponseTask;
 
 public class ListTask extends ResponseTask {
 
-    private WeakReference<IdgamesListFragment> listFragmentReference;
+    private WeakReference<ListState> listStateReference;
 
-    public ListTask(IdgamesListFragment context) {
-        listFragmentReference = new WeakReference<>(context);
+    public ListTask(ListState context) {
+        listStateReference = new WeakReference<>(context);
+        setPublishStale(true);
+        setStreamEntries(true);
+        setPrepareRows(true);
+    }
+
+    @Override
+    protected void onStaleResponse(Response response, List<EntryRow> rows) {
+        ListState listState = listStateReference.get();
+        if (listState == null) {
+            return;
+        }
+
+        listState.setStaleResponse(response, rows);
+    }
+
+    @Override
+    protected void onEntriesParsed(int offset, List<EntryRow> rows) {
+        ListState listState = listStateReference.get();
+        if (listState == null) {
+            return;
+        }
+
+        listState.appendRows(offset, rows);
     }
 
     @Override
     protected void onPostExecute(Response response) {
-        IdgamesListFragment listFragment = listFragmentReference.get();
-        if (listFragment == null) {
+        ListState listState = listStateReference.get();
+        if (listState == null) {
             return;
         }
 
-        listFragment.setResponse(response);
+        if (isRevalidationFailed()) {
+            listState.setUnrevalidatedResponse(response, getRows());
+        } else {
+            listState.setResponse(response, getRows());
+        }
     }
 
 }
@@ -0,0 +1,226 @@
+package nl.exl.doomidgamesarchive.tasks;
+
+import android.os.AsyncTask;
+
+import java.util.List;
+
+import nl.exl.doomidgamesarchive.Config;
+import nl.exl.doomidgamesarchive.EntryRow;
+import nl.exl.doomidgamesarchive.idgamesapi.CancellationToken;
+import nl.exl.doomidgamesarchive.idgamesapi.Entry;
+import nl.exl.doomidgamesarchive.idgamesapi.PooledTransport;
+import nl.exl.doomidgamesarchive.idgamesapi.Request;
+import nl.exl.doomidgamesarchive.idgamesapi.Response;
+import nl.exl.doomidgamesarchive.idgamesapi.ResponseLoader;
+import nl.exl.doomidgamesarchive.idgamesapi.Transport;
+
+/**
+ * Returns an Idgames web API response object, based on a request object. Loads the response
+ * with a ResponseLoader on a background thread, and publishes its progress on the UI thread.
+ */
+public class ResponseTask extends AsyncTask<Request, ResponseTask.Progress, Response> {
+
+    // The loader that all tasks load responses with.
+    private static ResponseLoader sLoader;
+
+    // If true, a stale response is published as progress while it is being revalidated.
+    private boolean mPublishStale;
+
+    // If true, entries are published in batches while a response is being parsed.
+    private boolean mStreamEntries;
+
+    // If true, list rows are prepared for the entries of responses on the background thread.
+    private boolean mPrepareRows;
+
+    // The rows prepared for the loaded response, if rows are prepared.
+    private List<EntryRow> mRows;
+
+    // True if the loaded response is a stale one that could not be revalidated.
+    private boolean mRevalidationFailed;
+
+    // Cancelled when this task is aborted, to stop its web API call and parsing.
+    private final CancellationToken mToken = new CancellationToken();
+
+
+    /**
+     * Progress of a task. Either a stale response, or a batch of entries that was just parsed,
+     * along with their rows if rows are prepared.
+     */
+    public static final class Progress {
+        private final Response mStale;
+        private final int mOffset;
+        private final List<EntryRow> mRows;
+
+        private Progress(Response stale, int offset, List<EntryRow> rows) {
+            mStale = stale;
+            mOffset = offset;
+            mRows = rows;
+        }
+    }
+
+
+    /**
+     * Sets whether this task publishes a stale response as progress before revalidating it.
+     *
+     * @param publishStale True to publish stale responses.
+     */
+    protected void setPublishStale(boolean publishStale) {
+        mPublishStale = publishStale;
+    }
+
+    /**
+     * Sets whether this task publishes parsed entries in batches while a response is being
+     * parsed. Entries are not streamed if a stale response was published already. Streamed
+     * entries are always published as prepared rows.
+     *
+     * @param streamEntries True to publish batches of entries.
+     */
+    protected void setStreamEntries(boolean streamEntries) {
+        mStreamEntries = streamEntries;
+    }
+
+    /**
+     * Sets whether this task prepares list rows for the entries of the responses that it
+     * publishes, so that they do not need to be formatted on the UI thread.
+     *
+     * @param prepareRows True to prepare rows.
+     */
+    protected void setPrepareRows(boolean prepareRows) {
+        mPrepareRows = prepareRows;
+    }
+
+    /**
+     * @return The rows prepared for the loaded response, or null if this task does not prepare
+     * rows or has not finished loading. Can be called from onPostExecute.
+     */
+    protected List<EntryRow> getRows() {
+        return mRows;
+    }
+
+    /**
+     * @return True if the loaded response is a stale one that could not be revalidated, so it is
+     * still expired. Only known if this task publishes stale responses or streams entries. Can be
+     * called from onPostExecute.
+     */
+    protected boolean isRevalidationFailed() {
+        return mRevalidationFailed;
+    }
+
+    /**
+     * Called on the UI thread with a stale response, before it is revalidated.
+     *
+     * @param response The stale response.
+     */
+    protected void onStaleResponse(Response response) {
+    }
+
+    /**
+     * Called on the UI thread with a stale response and its rows, before it is revalidated.
+     * Calls onStaleResponse(Response) by default.
+     *
+     * @param response The stale response.
+     * @param rows The rows of the response's entries, or null if this task does not prepare rows.
+     */
+    protected void onStaleResponse(Response response, List<EntryRow> rows) {
+        onStaleResponse(response);
+    }
+
+    /**
+     * Called on the UI thread with the rows of a batch of entries that has just been parsed. The
+     * complete response is still passed to onPostExecute once it has been parsed.
+     *
+     * @param offset The index of the first entry of the batch. Displayed rows from this index
+     *               onwards should be replaced by the batch.
+     * @param rows The rows of the entries of the batch.
+     */
+    protected void onEntriesParsed(int offset, List<EntryRow> rows) {
+    }
+
+    @Override
+    protected final void onProgressUpdate(Progress... progress) {
+        for (Progress update : progress) {
+            if (update.mStale != null) {
+                onStaleResponse(update.mStale, update.mRows);
+            } else {
+                onEntriesParsed(update.mOffset, update.mRows);
+            }
+        }
+    }
+
+    /**
+     * Sets the transport that all tasks make web API calls with.
+     *
+     * @param transport The transport to use.
+     */
+    public static synchronized void setTransport(Transport transport) {
+        sLoader = new ResponseLoader(transport);
+    }
+
+    private static synchronized ResponseLoader getLoader() {
+        if (sLoader == null) {
+            sLoader = new ResponseLoader(new PooledTransport(Config.TIMEOUT_CONNECT, Config.TIMEOUT_READ, Config.CONNECTION_POOL_SIZE));
+        }
+        return sLoader;
+    }
+
+    /**
+     * Cancels this task, aborting its web API call and stopping the parser if they are in
+     * progress. Nothing that was partially downloaded or parsed is cached.
+     */
+    public final void abort() {
+        mToken.cancel();
+        cancel(true);
+    }
+
+    @Override
+    protected Response doInBackground(Request... requests) {
+        ResponseLoader.Listener listener = null;
+        if (mPublishStale || mStreamEntries) {
+            listener = new ResponseLoader.Listener() {
+                @Override
+                public void onStaleResponse(Response response) {
+                    if (mPublishStale) {
+                        publishProgress(new Progress(response, 0, prepareRows(response)));
+                    }
+                }
+
+                @Override
+                public void onEntriesParsed(int offset, List<Entry> entries) {
+                    if (mStreamEntries) {
+                        publishProgress(new Progress(null, offset, EntryRow.createAll(entries)));
+                    }
+                }
+
+                @Override
+                public void onRevalidationFailed(String errorMessage) {
+                    mRevalidationFailed = true;
+                }
+            };
+        }
+
+        Response response = getLoader().load(requests[0], mToken, listener);
+
+        // A cancelled task never passes on a partially loaded response.
+        if (response == null || isCancelled()) {
+            response = Response.createError("ResponseTask was cancelled.");
+        }
+
+        mRows = prepareRows(response);
+
+        return response;
+    }
+
+    /**
+     * Prepares the rows of a response's entries, if this task prepares rows.
+     *
+     * @param response The response to prepare rows for.
+     *
+     * @return The rows, or null if this task does not prepare rows.
+     */
+    private List<EntryRow> prepareRows(Response response) {
+        if (!mPrepareRows) {
+            return null;
+        }
+        return EntryRow.createAll(response.getTable());
+    }
+}
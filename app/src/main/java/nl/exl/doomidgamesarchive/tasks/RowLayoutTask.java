@@ -0,0 +1,81 @@
+package nl.exl.doomidgamesarchive.tasks;
+
+import android.os.AsyncTask;
+import android.text.TextPaint;
+
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.exl.doomidgamesarchive.EntryRow;
+import nl.exl.doomidgamesarchive.EntryRowLayout;
+import nl.exl.doomidgamesarchive.EntryRowStyle;
+import nl.exl.doomidgamesarchive.IdgamesListAdapter;
+
+/**
+ * Task for laying out the list rows of an adapter before they are displayed. Layouts of rows that
+ * were already laid out at the same width are reused. Rows are laid out without highlights, the
+ * adapter highlights the filter query in the rows that it binds.
+ */
+public class RowLayoutTask extends AsyncTask<List<EntryRow>, Void, Map<EntryRow, EntryRowLayout>> {
+
+    private WeakReference<IdgamesListAdapter> mListAdapter;
+
+    // The style and width to lay out rows with.
+    private final EntryRowStyle mStyle;
+    private final int mWidth;
+
+    // Copies of the style's text paints. Layouts keep a reference to their paints, so these must
+    // not be shared with the UI thread.
+    private final TextPaint mTitlePaint;
+    private final TextPaint mSubtitlePaint;
+
+    // Layouts that were prepared before. These are not modified.
+    private final Map<EntryRow, EntryRowLayout> mPrevious;
+
+    // The rows that are laid out.
+    private List<EntryRow> mRows;
+
+    public RowLayoutTask(IdgamesListAdapter context, EntryRowStyle style, int width, Map<EntryRow, EntryRowLayout> previous) {
+        mListAdapter = new WeakReference<>(context);
+        mStyle = style;
+        mWidth = width;
+        mPrevious = previous;
+
+        // The style's paints are copied here, on the UI thread that owns them.
+        mTitlePaint = style.newTitlePaint();
+        mSubtitlePaint = style.newSubtitlePaint();
+    }
+
+    @Override
+    @SafeVarargs
+    protected final Map<EntryRow, EntryRowLayout> doInBackground(List<EntryRow>... rows) {
+        mRows = rows[0];
+
+        Map<EntryRow, EntryRowLayout> layouts = new IdentityHashMap<>(mRows.size());
+        for (EntryRow row : mRows) {
+            if (isCancelled()) {
+                return null;
+            }
+
+            EntryRowLayout layout = mPrevious.get(row);
+            if (layout == null || layout.getWidth() != mWidth) {
+                layout = EntryRowLayout.create(row, mStyle, mTitlePaint, mSubtitlePaint, mWidth, null);
+            }
+            layouts.put(row, layout);
+        }
+
+        return layouts;
+    }
+
+    @Override
+    protected void onPostExecute(Map<EntryRow, EntryRowLayout> layouts) {
+        IdgamesListAdapter listAdapter = mListAdapter.get();
+        if (listAdapter == null || layouts == null) {
+            return;
+        }
+
+        listAdapter.setRowLayouts(mRows, layouts, mWidth);
+    }
+}
@@ -0,0 +1,46 @@
+package nl.exl.doomidgamesarchive.tasks;
+
+import android.os.AsyncTask;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import nl.exl.doomidgamesarchive.EntryRow;
+import nl.exl.doomidgamesarchive.IdgamesListAdapter;
+import nl.exl.doomidgamesarchive.RowSorter;
+
+/**
+ * Task for sorting the list rows of an adapter before they are displayed.
+ */
+public class RowSortTask extends AsyncTask<List<EntryRow>, Void, List<EntryRow>> {
+
+    private WeakReference<IdgamesListAdapter> mListAdapter;
+
+    // One of the RowSorter.ORDER_* constants.
+    private final int mOrder;
+
+    // The rows that are sorted.
+    private List<EntryRow> mRows;
+
+    public RowSortTask(IdgamesListAdapter context, int order) {
+        mListAdapter = new WeakReference<>(context);
+        mOrder = order;
+    }
+
+    @Override
+    @SafeVarargs
+    protected final List<EntryRow> doInBackground(List<EntryRow>... rows) {
+        mRows = rows[0];
+        return RowSorter.sort(mRows, mOrder);
+    }
+
+    @Override
+    protected void onPostExecute(List<EntryRow> sorted) {
+        IdgamesListAdapter listAdapter = mListAdapter.get();
+        if (listAdapter == null) {
+            return;
+        }
+
+        listAdapter.setSortedRows(mRows, sorted);
+    }
+}
@@ -0,0 +1,112 @@
+package nl.exl.doomidgamesarchive.tasks;
+
+import android.os.AsyncTask;
+
+import java.util.concurrent.Executor;
+
+import nl.exl.doomidgamesarchive.idgamesapi.RequestScheduler;
+
+/**
+ * Runs AsyncTasks for an owner, usually a fragment or activity, so that all of its tasks can be
+ * cancelled when its lifecycle ends.
+ *
+ * Tasks that wait for the web API or for storage are run by the RequestScheduler, ordered by
+ * priority. Tasks that only use the CPU, such as sorting and laying out list rows, are run on the
+ * platform's background thread pool instead, so that they never hold up network work and do not
+ * run at foreground thread priority.
+ */
+public class TaskScheduler {
+
+    // Priority classes, from most to least urgent.
+    public static final int PRIORITY_FOREGROUND = RequestScheduler.PRIORITY_FOREGROUND;
+    public static final int PRIORITY_VISIBLE = RequestScheduler.PRIORITY_VISIBLE;
+    public static final int PRIORITY_PREFETCH = RequestScheduler.PRIORITY_PREFETCH;
+
+    private static TaskScheduler INSTANCE;
+
+    // Orders I/O tasks and keeps track of the tasks of each owner.
+    private final RequestScheduler mScheduler;
+
+
+    /**
+     * Cancels a task when its owner's tasks are cancelled.
+     */
+    private static class TaskHandle implements RequestScheduler.Cancellable {
+        private final AsyncTask<?, ?, ?> mTask;
+
+        private TaskHandle(AsyncTask<?, ?, ?> task) {
+            mTask = task;
+        }
+
+        @Override
+        public void cancel() {
+            // Web API tasks also stop their call and parser.
+            if (mTask instanceof ResponseTask) {
+                ((ResponseTask)mTask).abort();
+            } else {
+                mTask.cancel(true);
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return mTask.getStatus() == AsyncTask.Status.FINISHED;
+        }
+    }
+
+
+    public static synchronized TaskScheduler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new TaskScheduler(RequestScheduler.getInstance());
+        }
+        return INSTANCE;
+    }
+
+    private TaskScheduler(RequestScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Executes a task that waits for I/O, with a priority. The task is cancelled when cancelAll
+     * is called with the same owner.
+     *
+     * @param task The task to execute.
+     * @param priority One of the PRIORITY_* constants.
+     * @param owner The object whose lifecycle the task is tied to.
+     * @param params The parameters to pass to the task.
+     */
+    @SafeVarargs
+    public final <P> void execute(AsyncTask<P, ?, ?> task, final int priority, final Object owner, P... params) {
+        mScheduler.register(owner, new TaskHandle(task));
+        task.executeOnExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                mScheduler.execute(runnable, priority, owner);
+            }
+        }, params);
+    }
+
+    /**
+     * Executes a task that only uses the CPU on the platform's background thread pool. The task
+     * is cancelled when cancelAll is called with the same owner.
+     *
+     * @param task The task to execute.
+     * @param owner The object whose lifecycle the task is tied to.
+     * @param params The parameters to pass to the task.
+     */
+    @SafeVarargs
+    public final <P> void compute(AsyncTask<P, ?, ?> task, Object owner, P... params) {
+        mScheduler.register(owner, new TaskHandle(task));
+        task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, params);
+    }
+
+    /**
+     * Cancels all tasks started for an owner. Tasks that are still queued are dropped without
+     * running at all, web API tasks that are running are aborted.
+     *
+     * @param owner The owner to cancel tasks of.
+     */
+    public void cancelAll(Object owner) {
+        mScheduler.cancelAll(owner);
+    }
+}
@@ -0,0 +1,40 @@
+package nl.exl.doomidgamesarchive.tasks;
+
+import android.os.AsyncTask;
+
+import java.lang.ref.WeakReference;
+
+import nl.exl.doomidgamesarchive.activities.TextFileActivity;
+import nl.exl.doomidgamesarchive.idgamesapi.FileDetails;
+
+/**
+ * Task for loading the text file of a file entry from its offloaded details.
+ */
+public class TextFileTask extends AsyncTask<String, Void, String> {
+
+    private WeakReference<TextFileActivity> mTextFileActivity;
+
+    public TextFileTask(TextFileActivity context) {
+        mTextFileActivity = new WeakReference<>(context);
+    }
+
+    @Override
+    protected String doInBackground(String... detailsKeys) {
+        FileDetails details = FileDetails.load(detailsKeys[0]);
+        if (details == null) {
+            return null;
+        }
+
+        return details.getTextFileContents();
+    }
+
+    @Override
+    protected void onPostExecute(String text) {
+        TextFileActivity activity = mTextFileActivity.get();
+        if (activity == null) {
+            return;
+        }
+
+        activity.setText(text);
+    }
+}
@@ -5,7 +5,6 @@ import java.lang.ref.WeakReference;
 import nl.exl.doomidgamesarchive.IdgamesListAdapter;
 import nl.exl.doomidgamesarchive.idgamesapi.FileEntry;
 import nl.exl.doomidgamesarchive.idgamesapi.Response;
-import nl.exl.doomidgamesarchive.idgamesapi.ResponseTask;
 
 public class VoteUpdateTask extends ResponseTask {
 
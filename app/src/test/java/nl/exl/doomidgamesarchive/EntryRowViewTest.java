@@ -0,0 +1,122 @@
+package nl.exl.doomidgamesarchive;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import androidx.test.core.app.ApplicationProvider;
+import nl.exl.doomidgamesarchive.idgamesapi.Fixtures;
+import nl.exl.doomidgamesarchive.idgamesapi.Request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Binds, measures and draws the rows of recorded responses with a single EntryRowView, the way a
+ * list does while it is scrolled, and reports how long that takes per row.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class EntryRowViewTest {
+
+    // The width that rows are laid out for, in pixels.
+    private static final int WIDTH = 1080;
+
+    // The number of times that all rows are displayed before and while they are timed.
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 20;
+
+    private Context mContext;
+    private EntryRowStyle mStyle;
+    private EntryRowView mView;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mStyle = new EntryRowStyle(mContext);
+        mView = new EntryRowView(mContext);
+        mView.setStyle(mStyle);
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, 512, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void displaysPreparedRows() throws IOException {
+        for (String fixture : new String[] {Fixtures.SEARCH, Fixtures.GETCONTENTS, Fixtures.LATESTVOTES}) {
+            List<EntryRow> rows = loadRows(fixture);
+
+            // Rows are laid out the way a layout task does, with copies of the style's paints.
+            List<EntryRowLayout> layouts = new ArrayList<>(rows.size());
+            for (EntryRow row : rows) {
+                layouts.add(EntryRowLayout.create(row, mStyle, mStyle.newTitlePaint(), mStyle.newSubtitlePaint(), WIDTH, null));
+            }
+
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                displayAll(rows, layouts);
+            }
+
+            long start = System.nanoTime();
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                displayAll(rows, layouts);
+            }
+            double microsPerRow = (System.nanoTime() - start) / 1000.0 / (MEASURED_ROUNDS * rows.size());
+            System.out.println(String.format(Locale.US, "%s: bound, measured and drew a row in %.1f us", fixture, microsPerRow));
+
+            // Measuring a row must not lay it out again.
+            for (int index = 0; index < rows.size(); index++) {
+                display(rows.get(index), layouts.get(index));
+                assertSame(layouts.get(index), mView.getRowLayout());
+                assertEquals(layouts.get(index).getHeight(), mView.getMeasuredHeight());
+            }
+        }
+    }
+
+    @Test
+    public void laysOutUnpreparedRowsWithStylePaints() throws IOException {
+        for (EntryRow row : loadRows(Fixtures.SEARCH)) {
+            display(row, null);
+
+            EntryRowLayout layout = mView.getRowLayout();
+            assertNotNull(layout);
+            assertEquals(WIDTH, layout.getWidth());
+            assertSame(mStyle.getTitlePaint(), layout.getTitle().getPaint());
+            assertSame(mStyle.getSubtitlePaint(), layout.getSubtitle().getPaint());
+        }
+    }
+
+    private static List<EntryRow> loadRows(String fixture) throws IOException {
+        List<EntryRow> rows = EntryRow.createAll(Fixtures.parse(fixture, Request.FORMAT_JSON).getTable());
+        assertTrue(rows.size() > 0);
+        return rows;
+    }
+
+    private void displayAll(List<EntryRow> rows, List<EntryRowLayout> layouts) {
+        for (int index = 0; index < rows.size(); index++) {
+            display(rows.get(index), layouts.get(index));
+        }
+    }
+
+    /**
+     * Binds a row to the View, and measures, lays out and draws it.
+     */
+    private void display(EntryRow row, EntryRowLayout layout) {
+        mView.bind(row, layout);
+        mView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        mView.layout(0, 0, WIDTH, mView.getMeasuredHeight());
+        mView.draw(mCanvas);
+    }
+}
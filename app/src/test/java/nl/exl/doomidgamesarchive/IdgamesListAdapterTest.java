@@ -0,0 +1,151 @@
+package nl.exl.doomidgamesarchive;
+
+import android.content.Context;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+import nl.exl.doomidgamesarchive.idgamesapi.EntryTable;
+import nl.exl.doomidgamesarchive.idgamesapi.Fixtures;
+import nl.exl.doomidgamesarchive.idgamesapi.Request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Binds the rows of a recorded response to list item Views. Binding a row must not format or lay
+ * out anything, except for highlighting a filter query in it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class IdgamesListAdapterTest {
+
+    // The most bytes that binding a single row may allocate. Binding should allocate nothing at
+    // all, this only leaves room for measurement noise. Formatting the subtitle of a single file
+    // row, with its date and file size, allocates more than this.
+    private static final long BIND_BYTES_MAX = 64;
+
+    // The number of times that all rows are bound while allocations are counted.
+    private static final int BIND_ROUNDS = 20;
+
+    // The width of the list that rows are laid out for, in pixels.
+    private static final int WIDTH = 1080;
+
+    private Context mContext;
+    private IdgamesListAdapter mAdapter;
+    private List<EntryRow> mRows;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = ApplicationProvider.getApplicationContext();
+        mAdapter = new IdgamesListAdapter(mContext);
+        mAdapter.setFilterIndex(new RowFilterIndex());
+        mRows = EntryRow.createAll(Fixtures.parse(Fixtures.SEARCH, Request.FORMAT_JSON).getTable());
+
+        // The first rows of an empty list are displayed right away.
+        mAdapter.update(mRows, RowSorter.ORDER_NONE, null);
+        assertEquals(mRows.size(), mAdapter.getItemCount());
+    }
+
+    @Test
+    public void bindsRowsWithoutFormatting() {
+        RecyclerView list = layOutRows();
+        IdgamesListAdapter.ViewHolder holder = mAdapter.onCreateViewHolder(list, EntryTable.KIND_FILE);
+
+        // Binding the first time sets up state that a View keeps for later rows.
+        List<EntryRowLayout> prepared = new ArrayList<>(mRows.size());
+        for (int position = 0; position < mAdapter.getItemCount(); position++) {
+            mAdapter.onBindViewHolder(holder, position);
+            prepared.add(holder.rowView.getRowLayout());
+        }
+
+        long start = getAllocatedBytes();
+        for (int round = 0; round < BIND_ROUNDS; round++) {
+            bindAll(holder);
+        }
+        long bytesPerBind = (getAllocatedBytes() - start) / (BIND_ROUNDS * mRows.size());
+
+        assertTrue("Binding a row allocated " + bytesPerBind + " bytes", bytesPerBind < BIND_BYTES_MAX);
+        assertEquals(mRows.get(mRows.size() - 1).getTitle(), holder.rowView.getContentDescription());
+
+        // Rows are bound with the layouts that the layout task prepared, not with new ones.
+        for (int position = 0; position < mAdapter.getItemCount(); position++) {
+            mAdapter.onBindViewHolder(holder, position);
+            assertNotNull(prepared.get(position));
+            assertEquals(WIDTH, prepared.get(position).getWidth());
+            assertSame(prepared.get(position), holder.rowView.getRowLayout());
+        }
+    }
+
+    @Test
+    public void highlightsQueryInBoundRows() {
+        RecyclerView list = layOutRows();
+
+        // The first row is still displayed, whether or not the differ has filtered the rows yet.
+        EntryRow row = mRows.get(0);
+        mAdapter.setFilterQuery(row.getTitle());
+        IdgamesListAdapter.ViewHolder holder = mAdapter.onCreateViewHolder(list, EntryTable.KIND_FILE);
+        mAdapter.onBindViewHolder(holder, 0);
+        EntryRowLayout highlighted = holder.rowView.getRowLayout();
+        assertEquals(WIDTH, highlighted.getWidth());
+        assertTrue(isHighlighted(highlighted));
+
+        // The query is only highlighted once for each row.
+        mAdapter.onBindViewHolder(holder, 0);
+        assertSame(highlighted, holder.rowView.getRowLayout());
+
+        mAdapter.setFilterQuery("");
+        mAdapter.onBindViewHolder(holder, 0);
+        assertFalse(isHighlighted(holder.rowView.getRowLayout()));
+    }
+
+    /**
+     * Lays out the rows for the width of a list, and waits for the layout task to finish.
+     *
+     * @return The list that displays the rows.
+     */
+    private RecyclerView layOutRows() {
+        RecyclerView list = new RecyclerView(mContext);
+        list.setAdapter(mAdapter);
+        list.layout(0, 0, WIDTH, 1920);
+        Robolectric.flushBackgroundThreadScheduler();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        return list;
+    }
+
+    private static boolean isHighlighted(EntryRowLayout layout) {
+        CharSequence title = layout.getTitle().getText();
+        return title instanceof Spanned && ((Spanned)title).getSpans(0, title.length(), BackgroundColorSpan.class).length > 0;
+    }
+
+    private void bindAll(IdgamesListAdapter.ViewHolder holder) {
+        for (int position = 0; position < mAdapter.getItemCount(); position++) {
+            mAdapter.onBindViewHolder(holder, position);
+        }
+    }
+
+    /**
+     * @return The number of bytes allocated by the current thread so far.
+     */
+    private static long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,65 @@
+package nl.exl.doomidgamesarchive;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import nl.exl.doomidgamesarchive.idgamesapi.Fixtures;
+import nl.exl.doomidgamesarchive.idgamesapi.Request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Filters the rows of a recorded response with a filter index.
+ */
+public class RowFilterIndexTest {
+
+    private RowFilterIndex mIndex;
+    private List<EntryRow> mRows;
+
+    @Before
+    public void setUp() throws IOException {
+        mIndex = new RowFilterIndex();
+        mRows = EntryRow.createAll(Fixtures.parse(Fixtures.LATESTVOTES, Request.FORMAT_JSON).getTable());
+        mIndex.add(mRows);
+    }
+
+    @Test
+    public void matchesTitlesInAnyCase() {
+        EntryRow row = mRows.get(0);
+        RowFilterIndex.Matches matches = mIndex.filter(row.getTitle().toUpperCase());
+        assertTrue(matches.contains(row));
+
+        assertNull(mIndex.filter("  "));
+        assertFalse(mIndex.filter("no row contains this").contains(row));
+    }
+
+    @Test
+    public void skipsRowsWithUnchangedText() {
+        mIndex.add(mRows);
+        assertEquals(mRows.size(), mIndex.size());
+    }
+
+    @Test
+    public void reindexesChangedRowsInPlace() {
+        // Vote titles are fetched one at a time, and every fetched title re-adds the row.
+        EntryRow row = mRows.get(0);
+        for (int i = 0; i < 100; i++) {
+            EntryRow changed = row.withTitle("Zyzzyva " + i);
+            mIndex.add(Collections.singletonList(changed));
+
+            assertTrue(mIndex.filter("zyzzyva " + i).contains(changed));
+            assertTrue(mIndex.filter("" + i).contains(changed));
+        }
+
+        EntryRow last = row.withTitle("Zyzzyva 99");
+        assertFalse(mIndex.filter("zyzzyva 42").contains(last));
+        assertEquals(mRows.size(), mIndex.size());
+    }
+}
@@ -0,0 +1,115 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the entries of recorded list responses as entry objects and as a compacted entry table,
+ * and reads the title of every entry the way a list does. {@link ResponseProfiler} reports the
+ * heap that 1,000 entries retain in each form, next to the time taken to read them all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntryTableBenchmark {
+
+    // The number of responses that are held at once to measure the heap that they retain.
+    private static final int RETAINED_COPIES = 1000;
+
+    // The recorded response to hold.
+    @Param({Fixtures.LATESTFILES, Fixtures.LATESTVOTES, Fixtures.GETCONTENTS, Fixtures.SEARCH})
+    public String fixture;
+
+    // How the entries are held, "objects" as parsed or "table" as cached.
+    @Param({"objects", "table"})
+    public String storage;
+
+    private byte[] mBody;
+    private Response mResponse;
+    private long mRetainedBytes;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        mBody = Fixtures.load(fixture, Request.FORMAT_XML);
+        Response parsed = Fixtures.parse(fixture, Request.FORMAT_XML, mBody);
+        if (storage.equals("table") && parsed.compacted() == parsed) {
+            throw new IllegalStateException("The entries of " + fixture + " cannot be compacted.");
+        }
+        mResponse = create();
+
+        // Each copy retains what another response for the same request would. Short strings that
+        // the string pool shares between responses are only counted once, as they are in the app.
+        long before = getUsedHeap();
+        Response[] copies = new Response[RETAINED_COPIES];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = create();
+        }
+        long retained = (getUsedHeap() - before) / copies.length;
+        mRetainedBytes = retained * 1000 / mResponse.getEntryCount();
+
+        // Keep the copies reachable until the heap has been measured.
+        if (copies[copies.length - 1].getEntryCount() != mResponse.getEntryCount()) {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        ResponseProfiler.setRetained(mRetainedBytes);
+    }
+
+    @Benchmark
+    public int readTitles() {
+        int length = 0;
+        if (storage.equals("table")) {
+            EntryTable table = mResponse.getTable();
+            EntryTable.Row row = table.row();
+            for (int i = 0; i < table.size(); i++) {
+                length += row.moveTo(i).getDisplayTitle().length();
+            }
+        } else {
+            List<Entry> entries = mResponse.getEntries();
+            for (int i = 0; i < entries.size(); i++) {
+                length += entries.get(i).toString().length();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Parses the recorded response, and compacts it if its entries are held as a table.
+     */
+    private Response create() throws IOException {
+        Response response = Fixtures.parse(fixture, Request.FORMAT_XML, mBody);
+        return storage.equals("table") ? response.compacted() : response;
+    }
+
+    /**
+     * @return The bytes of heap in use after collecting garbage.
+     */
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,75 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats the sizes and dates of the files in a recorded response, the way list rows display them.
+ * Every operation formats the values of a single file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileEntryFormatBenchmark {
+
+    // The number of files in the recorded search response.
+    private static final int FILE_COUNT = 100;
+
+    private int[] mSizes;
+    private String[] mDates;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Entry> entries = Fixtures.parse(Fixtures.SEARCH, Request.FORMAT_XML).getEntries();
+        if (entries.size() != FILE_COUNT) {
+            throw new IllegalStateException("Expected " + FILE_COUNT + " files, found " + entries.size());
+        }
+
+        mSizes = new int[FILE_COUNT];
+        mDates = new String[FILE_COUNT];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            FileEntry file = (FileEntry)entries.get(i);
+            mSizes[i] = file.getFileSize();
+            mDates[i] = file.getDate();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILE_COUNT)
+    public void formatFileSize(Blackhole blackhole) {
+        for (int size : mSizes) {
+            blackhole.consume(FileEntry.formatFileSize(size));
+        }
+    }
+
+    /**
+     * Formats the date of new entries, which parses the date and formats it for the default locale.
+     */
+    @Benchmark
+    @OperationsPerInvocation(FILE_COUNT)
+    public void formatLocaleDate(Blackhole blackhole) {
+        for (String date : mDates) {
+            FileEntry file = new FileEntry();
+            file.setDate(date);
+            blackhole.consume(file.getLocaleDate());
+        }
+    }
+}
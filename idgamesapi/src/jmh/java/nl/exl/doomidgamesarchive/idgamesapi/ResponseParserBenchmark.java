@@ -0,0 +1,61 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses recorded responses with each response parser, to compare the formats for each action.
+ * {@link ResponseProfiler} reports the bytes allocated for each parsed entry and the size of each
+ * recorded response, next to the number of responses parsed per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParserBenchmark {
+
+    // The recorded response to parse. JMH parameters are named after their command line option.
+    @Param({Fixtures.LATESTFILES, Fixtures.LATESTVOTES, Fixtures.GETCONTENTS, Fixtures.SEARCH, Fixtures.GET})
+    public String fixture;
+
+    // The format of the recorded response, "xml" or "json".
+    @Param({"xml", "json"})
+    public String format;
+
+    private int mFormat;
+    private byte[] mBody;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        mFormat = format.equals("json") ? Request.FORMAT_JSON : Request.FORMAT_XML;
+        mBody = Fixtures.load(fixture, mFormat);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws IOException {
+        ResponseProfiler.setPayload(mBody);
+    }
+
+    @Benchmark
+    public Response parse() throws IOException {
+        Response response = Fixtures.parse(fixture, mFormat, mBody);
+        ResponseProfiler.count(response);
+        return response;
+    }
+}
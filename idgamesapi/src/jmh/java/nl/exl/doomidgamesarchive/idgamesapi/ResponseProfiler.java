@@ -0,0 +1,112 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JMH profiler that reports the bytes allocated for each entry of the responses that a benchmark
+ * produces, the size of the response bodies it works on and the heap that its entries retain.
+ * Benchmarks pass their responses to count(), their bodies to setPayload() and the heap they
+ * measured to setRetained(). Enable with -prof followed by the name of this class; the jmh task
+ * always does.
+ */
+public class ResponseProfiler implements InternalProfiler {
+
+    // The number of entries that benchmarks produced in the current iteration.
+    private static final AtomicLong ENTRIES = new AtomicLong();
+
+    // The size of the response body that the current iteration works on, uncompressed and gzip
+    // encoded. Negative if there is none.
+    private static volatile long PAYLOAD_BYTES = -1;
+    private static volatile long PAYLOAD_GZIP_BYTES = -1;
+
+    // The heap retained by 1,000 of the entries that the current iteration works on. Negative if
+    // it was not measured.
+    private static volatile long RETAINED_BYTES = -1;
+
+    private final com.sun.management.ThreadMXBean mThreads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    // The bytes that all threads had allocated when the current iteration started.
+    private long mStartBytes;
+
+
+    /**
+     * Counts the entries of a response that a benchmark produced.
+     */
+    static void count(Response response) {
+        ENTRIES.addAndGet(Math.max(1, response.getEntryCount()));
+    }
+
+    /**
+     * Sets the response body that the current iteration works on.
+     */
+    static void setPayload(byte[] body) throws IOException {
+        PAYLOAD_BYTES = body.length;
+        PAYLOAD_GZIP_BYTES = FakeServer.gzip(body).length;
+    }
+
+    /**
+     * Sets the heap retained by 1,000 of the entries that the current iteration works on.
+     */
+    static void setRetained(long bytesPer1000Entries) {
+        RETAINED_BYTES = bytesPer1000Entries;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Bytes allocated per response entry, response body sizes and retained heap";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        ENTRIES.set(0);
+        mStartBytes = getAllocatedBytes();
+    }
+
+    // The profiler interface uses the raw result type.
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        List<ScalarResult> results = new ArrayList<>();
+        long entries = ENTRIES.get();
+        if (entries > 0) {
+            double bytes = getAllocatedBytes() - mStartBytes;
+            results.add(new ScalarResult("·bytesPerEntry", bytes / entries, "B/entry", AggregationPolicy.AVG));
+        }
+
+        if (PAYLOAD_BYTES >= 0) {
+            results.add(new ScalarResult("·payload", PAYLOAD_BYTES, "B", AggregationPolicy.AVG));
+            results.add(new ScalarResult("·payload.gzip", PAYLOAD_GZIP_BYTES, "B", AggregationPolicy.AVG));
+            PAYLOAD_BYTES = -1;
+            PAYLOAD_GZIP_BYTES = -1;
+        }
+
+        if (RETAINED_BYTES >= 0) {
+            results.add(new ScalarResult("·heapPer1000Entries", RETAINED_BYTES, "B", AggregationPolicy.AVG));
+            RETAINED_BYTES = -1;
+        }
+        return results;
+    }
+
+    private long getAllocatedBytes() {
+        long total = 0;
+        for (long bytes : mThreads.getThreadAllocatedBytes(mThreads.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,103 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Restores recorded responses from snapshots, compared to parsing them from the web API's XML.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    // The recorded response to restore.
+    @Param({Fixtures.LATESTFILES, Fixtures.GETCONTENTS, Fixtures.SEARCH, Fixtures.GET})
+    public String fixture;
+
+    private byte[] mXml;
+
+    // The response in its binary form, uncompressed and deflated.
+    private byte[] mBinary;
+    private byte[] mDeflated;
+
+    // A store that holds a compressed snapshot of the response, as the app stores them.
+    private File mDirectory;
+    private SnapshotStore mStore;
+    private Request mRequest;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        mXml = Fixtures.load(fixture, Request.FORMAT_XML);
+        Response response = Fixtures.parse(fixture, Request.FORMAT_XML, mXml);
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        response.writeTo(new DataOutputStream(binary));
+        mBinary = binary.toByteArray();
+
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(deflated));
+        response.writeTo(out);
+        out.close();
+        mDeflated = deflated.toByteArray();
+
+        mDirectory = File.createTempFile("snapshots", "");
+        mDirectory.delete();
+        mStore = new SnapshotStore(mDirectory, 16 * 1024 * 1024, true);
+        mRequest = new Request();
+        mRequest.setAction(Request.GET_CONTENTS);
+        mRequest.setDirectoryName(fixture);
+        mStore.put(mRequest, response, Long.MAX_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mStore.remove(mRequest);
+        mDirectory.delete();
+    }
+
+    @Benchmark
+    public Response parseXml() throws IOException {
+        return Fixtures.parse(fixture, Request.FORMAT_XML, mXml);
+    }
+
+    @Benchmark
+    public Response decode() throws IOException {
+        return Response.readFrom(new DataInputStream(new ByteArrayInputStream(mBinary)));
+    }
+
+    @Benchmark
+    public Response decodeDeflated() throws IOException {
+        return Response.readFrom(new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(mDeflated)), 8192)));
+    }
+
+    @Benchmark
+    public SnapshotStore.Snapshot restore() {
+        return mStore.get(mRequest);
+    }
+}
@@ -0,0 +1,87 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes web API calls with each transport to a local server that serves the recorded responses,
+ * and reads their decoded bodies. Parsing is left out, see {@link ResponseParserBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportBenchmark {
+
+    // The transport to make calls with, "basic" or "pooled".
+    @Param({"basic", "pooled"})
+    public String transport;
+
+    // The recorded response to call for.
+    @Param({Fixtures.LATESTFILES, Fixtures.SEARCH})
+    public String fixture;
+
+    // If true, the server compresses responses for transports that accept that.
+    @Param({"false", "true"})
+    public boolean compress;
+
+    private FakeServer mServer;
+    private Transport mTransport;
+    private String mURL;
+    private final Map<String, String> mHeaders = new HashMap<>();
+    private final byte[] mBuffer = new byte[8192];
+
+
+    @Setup
+    public void setUp() throws IOException {
+        mServer = new FakeServer();
+        mServer.setCompress(compress);
+        mTransport = transport.equals("pooled") ? new PooledTransport(5000, 5000, 4) : new BasicTransport(5000, 5000);
+
+        Request request = new Request();
+        request.setAction(fixture.equals(Fixtures.SEARCH) ? Request.SEARCH : Request.GET_LATESTFILES);
+        request.setQuery("lab");
+        mURL = mServer.getURL(request);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Benchmark
+    public long call() throws IOException {
+        Transport.Connection connection = mTransport.open(mURL, mHeaders);
+        try {
+            connection.getStatus();
+            InputStream body = connection.getBody();
+            long size = 0;
+            int count;
+            while ((count = body.read(mBuffer)) >= 0) {
+                size += count;
+            }
+            body.close();
+            return size + connection.getBytesReceived();
+        } finally {
+            connection.close();
+        }
+    }
+}
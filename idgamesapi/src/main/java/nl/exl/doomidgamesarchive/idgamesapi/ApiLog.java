@@ -0,0 +1,24 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs warnings through java.util.logging, so that this library does not depend on Android.
+ * Android passes these messages on to its own log.
+ */
+final class ApiLog {
+
+    private ApiLog() {
+    }
+
+    /**
+     * Logs a warning.
+     *
+     * @param tag The name of the class that logs the warning.
+     * @param message The warning message.
+     */
+    static void w(String tag, String message) {
+        Logger.getLogger(tag).log(Level.WARNING, message);
+    }
+}
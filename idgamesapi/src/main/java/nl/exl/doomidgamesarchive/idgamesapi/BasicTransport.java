@@ -0,0 +1,88 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Transport that opens a new, uncompressed connection for every call and closes it afterwards.
+ * Serves as a baseline to compare other transports against.
+ */
+public class BasicTransport implements Transport {
+
+    private final int mConnectTimeout;
+    private final int mReadTimeout;
+
+
+    /**
+     * @param connectTimeout Timeout for establishing a connection, in milliseconds.
+     * @param readTimeout Timeout for each read from a connection, in milliseconds.
+     */
+    public BasicTransport(int connectTimeout, int readTimeout) {
+        mConnectTimeout = connectTimeout;
+        mReadTimeout = readTimeout;
+    }
+
+    @Override
+    public Connection open(String url, Map<String, String> headers) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection)new URL(url).openConnection();
+        urlConnection.setConnectTimeout(mConnectTimeout);
+        urlConnection.setReadTimeout(mReadTimeout);
+        urlConnection.setUseCaches(false);
+        urlConnection.setRequestProperty("Accept-Encoding", "identity");
+        urlConnection.setRequestProperty("Connection", "close");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            urlConnection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        return new BasicConnection(urlConnection);
+    }
+
+    /**
+     * A call made over its own HttpURLConnection.
+     */
+    private static class BasicConnection implements Connection {
+        private final HttpURLConnection mConnection;
+
+        // Counts the bytes of the response body, once it has been opened.
+        private CountingInputStream mCounter;
+
+        private BasicConnection(HttpURLConnection connection) {
+            mConnection = connection;
+        }
+
+        @Override
+        public int getStatus() throws IOException {
+            return mConnection.getResponseCode();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            mCounter = new CountingInputStream(mConnection.getInputStream());
+            return new BufferedInputStream(mCounter, 8192);
+        }
+
+        @Override
+        public long getBytesReceived() {
+            return mCounter != null ? mCounter.getCount() : 0;
+        }
+
+        @Override
+        public void abort() {
+            mConnection.disconnect();
+        }
+
+        @Override
+        public void close() {
+            mConnection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Stores large blobs of data on disk, addressed by a hash of their contents. Storing the same
+ * data twice stores it only once, and a key always refers to the same data.
+ *
+ * Blobs are compressed, and written to a temporary file first, synced to disk and then renamed,
+ * so a blob is never partially written. When the total size of all blobs exceeds the maximum size, the least
+ * recently used blobs are deleted, so a key may stop referring to any data at all.
+ */
+public class BlobStore {
+
+    private static final String EXTENSION = ".blob";
+    private static final String EXTENSION_TEMP = ".tmp";
+
+    private static BlobStore INSTANCE;
+
+    // The directory that blobs are stored in.
+    private final File mDirectory;
+
+    // The maximum size of all blob files.
+    private final long mSizeMax;
+
+    // The current size of all blob files. -1 if it has not been determined yet.
+    private long mSize = -1;
+
+
+    /**
+     * Installs the process-wide blob store. If one is installed already, that one is returned.
+     *
+     * @param directory The directory to store blobs in.
+     * @param sizeMax The maximum size of all blobs, in bytes.
+     *
+     * @return The installed blob store.
+     */
+    public static synchronized BlobStore install(File directory, long sizeMax) {
+        if (INSTANCE == null) {
+            INSTANCE = new BlobStore(directory, sizeMax);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @return The installed blob store, or null if none has been installed.
+     */
+    public static synchronized BlobStore getInstalled() {
+        return INSTANCE;
+    }
+
+    BlobStore(File directory, long sizeMax) {
+        mDirectory = directory;
+        mSizeMax = sizeMax;
+    }
+
+    /**
+     * Stores a blob, unless the same data is stored already.
+     *
+     * @param data The data to store.
+     *
+     * @return The key of the blob, or null if it could not be stored.
+     */
+    synchronized String put(byte[] data) {
+        String key = hash(data);
+        File file = getFile(key);
+        if (file.exists()) {
+            // Mark the blob as recently used.
+            file.setLastModified(System.currentTimeMillis());
+            return key;
+        }
+
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            ApiLog.w("BlobStore", "Cannot create blob directory " + mDirectory);
+            return null;
+        }
+        ensureSize();
+
+        File temp = new File(mDirectory, file.getName() + EXTENSION_TEMP);
+        OutputStream out = null;
+        try {
+            FileOutputStream fileOut = new FileOutputStream(temp);
+            DeflaterOutputStream deflater = new DeflaterOutputStream(new BufferedOutputStream(fileOut, 8192));
+            out = deflater;
+            deflater.write(data);
+            deflater.finish();
+            deflater.flush();
+
+            // The rename below can reach the disk before the data does, which would leave an
+            // empty or truncated blob behind if the device loses power in between.
+            fileOut.getFD().sync();
+            out.close();
+            out = null;
+
+        } catch (IOException e) {
+            ApiLog.w("BlobStore", "Cannot write blob: " + e.toString());
+            close(out);
+            temp.delete();
+            return null;
+
+        } finally {
+            close(out);
+        }
+
+        if (!temp.renameTo(file)) {
+            ApiLog.w("BlobStore", "Cannot move blob into place: " + file);
+            temp.delete();
+            return null;
+        }
+
+        mSize += file.length();
+        trim();
+
+        return key;
+    }
+
+    /**
+     * Opens a stored blob for reading. The blob's data is decompressed while it is read.
+     *
+     * @param key The key of the blob.
+     *
+     * @return A stream of the blob's data that must be closed after reading, or null if the blob
+     * is not stored.
+     */
+    public synchronized InputStream open(String key) {
+        if (!isKey(key)) {
+            return null;
+        }
+
+        File file = getFile(key);
+        try {
+            InputStream input = new InflaterInputStream(new BufferedInputStream(new FileInputStream(file), 8192));
+
+            // Mark the blob as recently used.
+            file.setLastModified(System.currentTimeMillis());
+
+            return input;
+
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(mDirectory, key + EXTENSION);
+    }
+
+    private void delete(File file) {
+        long size = file.length();
+        if (file.delete() && mSize >= 0) {
+            mSize -= size;
+        }
+    }
+
+    /**
+     * Determines the size of all stored blobs, if that has not been done yet.
+     * Temporary files left behind by an interrupted write are removed.
+     */
+    private void ensureSize() {
+        if (mSize >= 0) {
+            return;
+        }
+
+        mSize = 0;
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.getName().endsWith(EXTENSION)) {
+                mSize += file.length();
+            } else if (file.getName().endsWith(EXTENSION_TEMP)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used blobs until the store is within its size limit.
+     */
+    private void trim() {
+        if (mSize <= mSizeMax) {
+            return;
+        }
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                return Long.compare(lhs.lastModified(), rhs.lastModified());
+            }
+        });
+
+        for (File file : files) {
+            if (mSize <= mSizeMax) {
+                break;
+            }
+            if (file.getName().endsWith(EXTENSION)) {
+                delete(file);
+            }
+        }
+    }
+
+    /**
+     * @return True if a string is a key that could have been returned by put.
+     */
+    private static boolean isKey(String key) {
+        if (key == null || key.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < key.length(); i++) {
+            if (Character.digit(key.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hexadecimal SHA-1 hash of some data, for use as a file name.
+     */
+    static String hash(byte[] data) {
+        byte[] bytes;
+        try {
+            bytes = MessageDigest.getInstance("SHA-1").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(Arrays.hashCode(data));
+        }
+
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            ApiLog.w("BlobStore", "Cannot close blob file: " + e.toString());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+/**
+ * Signals that the work of a task should stop. Long running work checks the token regularly,
+ * blocking work registers a callback that unblocks it when the token is cancelled.
+ */
+public class CancellationToken {
+
+    // True once this token has been cancelled.
+    private volatile boolean mCancelled;
+
+    // Called when this token is cancelled, or null.
+    private Runnable mOnCancel;
+
+
+    /**
+     * Cancels this token, and runs the registered callback if there is one.
+     */
+    public void cancel() {
+        Runnable onCancel;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelled = true;
+            onCancel = mOnCancel;
+            mOnCancel = null;
+        }
+
+        if (onCancel != null) {
+            onCancel.run();
+        }
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Sets the callback to run when this token is cancelled. If the token has already been
+     * cancelled, the callback is run immediately.
+     *
+     * @param onCancel The callback to run, or null to remove the current one.
+     */
+    void setOnCancel(Runnable onCancel) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mOnCancel = onCancel;
+                return;
+            }
+        }
+
+        if (onCancel != null) {
+            onCancel.run();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+/**
+ * Stops calls to a host after it has failed a number of times in a row, so that a host that is
+ * down fails fast instead of being called over and over again.
+ *
+ * Once the breaker has been open for a while, a single trial call is let through. If it succeeds
+ * the breaker closes again, if it fails the breaker stays open for another period.
+ */
+class CircuitBreaker {
+
+    // Number of consecutive failures after which the breaker opens.
+    private static final int FAILURE_THRESHOLD = 5;
+
+    // Time that the breaker stays open before a trial call is allowed, in milliseconds.
+    private static final long OPEN_DURATION = 30 * 1000;
+
+    // The number of consecutive failed calls.
+    private int mFailures;
+
+    // The time until which the breaker stays open, in milliseconds since the epoch.
+    private long mOpenUntil;
+
+    // True while a trial call is in progress.
+    private boolean mTrialPending;
+
+
+    /**
+     * @return True if a call may be made now. If so, its outcome must be recorded afterwards.
+     */
+    synchronized boolean allowCall() {
+        if (mFailures < FAILURE_THRESHOLD) {
+            return true;
+        }
+
+        if (mTrialPending || System.currentTimeMillis() < mOpenUntil) {
+            return false;
+        }
+
+        mTrialPending = true;
+        return true;
+    }
+
+    synchronized void recordSuccess() {
+        mFailures = 0;
+        mTrialPending = false;
+    }
+
+    synchronized void recordFailure() {
+        mFailures++;
+        mTrialPending = false;
+
+        if (mFailures >= FAILURE_THRESHOLD) {
+            mOpenUntil = System.currentTimeMillis() + OPEN_DURATION;
+        }
+    }
+
+    /**
+     * Records a call that was cancelled before it had an outcome.
+     */
+    synchronized void recordCancelled() {
+        mTrialPending = false;
+    }
+}
@@ -0,0 +1,60 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the number of bytes read from an input stream, and whether it has been closed.
+ */
+class CountingInputStream extends FilterInputStream {
+
+    // The number of bytes read so far.
+    private long mCount;
+
+    // True once this stream has been closed.
+    private boolean mClosed;
+
+    CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+            mCount++;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = super.read(buffer, offset, length);
+        if (count > 0) {
+            mCount += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(count);
+        mCount += skipped;
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mClosed = true;
+        super.close();
+    }
+
+    long getCount() {
+        return mCount;
+    }
+
+    boolean isClosed() {
+        return mClosed;
+    }
+}
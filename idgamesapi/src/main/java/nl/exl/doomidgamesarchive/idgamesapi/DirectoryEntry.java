@@ -0,0 +1,82 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.File;
+import java.util.regex.Pattern;
+
+import androidx.annotation.NonNull;
+
+/**
+ * IdgamesApi directory entry.
+ */
+public class DirectoryEntry extends Entry {
+
+    // The database ID of this directory entry.
+    private int mId = -1;
+    
+    // The name of this directory.
+    private String mName = "";
+
+    public void setId(int id) {
+        mId = id;
+    }
+
+    void setName(String name) {
+        mName = name;
+    }
+    
+    public int getId() {
+        return mId;
+    }
+    
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    int estimateSize() {
+        return OBJECT_SIZE + 8 + stringSize(mName);
+    }
+
+    @Override
+    public boolean isContentEqual(Entry other) {
+        if (!(other instanceof DirectoryEntry)) {
+            return false;
+        }
+
+        DirectoryEntry directory = (DirectoryEntry)other;
+        return mId == directory.mId && equal(mName, directory.mName);
+    }
+
+    @Override
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(mId);
+        writeString(out, mName);
+    }
+
+    static DirectoryEntry readFrom(DataInput in) throws IOException {
+        DirectoryEntry entry = new DirectoryEntry();
+        entry.mId = in.readInt();
+        entry.mName = StringPool.getInstance().intern(readString(in));
+        return entry;
+    }
+
+    /**
+     * Returns the last component of a directory path.
+     *
+     * @param name The path of a directory.
+     *
+     * @return The name of the directory itself.
+     */
+    static String lastPathComponent(String name) {
+        String[] paths = name.split(Pattern.quote(File.separator));
+        return paths[paths.length - 1];
+    }
+
+    @NonNull
+    public String toString() {
+        return lastPathComponent(mName);
+    }
+}
@@ -0,0 +1,95 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * IdgamesApi entry abstract class.
+ */
+public abstract class Entry {
+
+    // Estimated size of an object header and reference, in bytes.
+    static final int OBJECT_SIZE = 16;
+
+    /**
+     * Returns an estimate of the memory used by this entry.
+     *
+     * @return The estimated size in bytes.
+     */
+    abstract int estimateSize();
+
+    /**
+     * Returns whether another entry is of the same type and has the same contents as this one.
+     *
+     * @param other The entry to compare with.
+     *
+     * @return True if both entries have equal contents.
+     */
+    public abstract boolean isContentEqual(Entry other);
+
+    /**
+     * Writes this entry's fields in a compact binary form.
+     *
+     * @param out The output to write to.
+     */
+    abstract void writeTo(DataOutput out) throws IOException;
+
+    /**
+     * Returns an estimate of the memory used by a string.
+     *
+     * @param value The string to estimate the size of. May be null.
+     *
+     * @return The estimated size in bytes.
+     */
+    static int stringSize(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return OBJECT_SIZE * 2 + value.length() * 2;
+    }
+
+    /**
+     * Compares two strings that may be null.
+     */
+    static boolean equal(String a, String b) {
+        return Objects.equals(a, b);
+    }
+
+    /**
+     * Writes a string that may be null and may be longer than DataOutput.writeUTF allows.
+     *
+     * @param out The output to write to.
+     * @param value The string to write.
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     *
+     * @param in The input to read from.
+     *
+     * @return The string that was read, or null.
+     */
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects parsed entries into batches for an entry listener. Batches start small, so that the
+ * first entries are available as soon as possible, and grow as parsing continues.
+ */
+class EntryBatcher {
+
+    // Minimum and maximum number of entries in a batch.
+    private static final int BATCH_SIZE_MIN = 4;
+    private static final int BATCH_SIZE_MAX = 64;
+
+    // Maximum time that parsed entries are held back from the listener, in milliseconds.
+    private static final long BATCH_INTERVAL = 100;
+
+    private final ResponseParser.EntryListener mListener;
+
+    // Entries added since the last batch was published, and the size of the next batch.
+    private List<Entry> mBatch = new ArrayList<>();
+    private int mBatchSize = BATCH_SIZE_MIN;
+
+    // The number of entries published so far, and when the last batch was published.
+    private int mPublished;
+    private long mPublishedTime = System.currentTimeMillis();
+
+
+    EntryBatcher(ResponseParser.EntryListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Adds a completely parsed entry, and publishes the current batch if it is large or old enough.
+     */
+    void add(Entry entry) {
+        mBatch.add(entry);
+
+        long now = System.currentTimeMillis();
+        if (mBatch.size() < mBatchSize && now - mPublishedTime < BATCH_INTERVAL) {
+            return;
+        }
+
+        mListener.onEntries(mPublished, mBatch);
+        mPublished += mBatch.size();
+        mPublishedTime = now;
+        mBatch = new ArrayList<>();
+        mBatchSize = Math.min(mBatchSize * 2, BATCH_SIZE_MAX);
+    }
+}
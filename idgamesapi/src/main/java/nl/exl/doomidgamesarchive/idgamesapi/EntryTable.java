@@ -0,0 +1,424 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact, immutable storage for the entries of a list response.
+ *
+ * Instead of an object with a dozen strings per entry, a table stores its entries in columns:
+ * packed arrays for numeric fields, and a single pooled string for all text. Rows are read
+ * through a reusable Row cursor, so that a list can be displayed without an object per entry.
+ * Entries can still be materialized from a row when one is needed as an object.
+ *
+ * File details are not part of a table. Only the key of offloaded details is stored, details
+ * that are held in memory are left out.
+ */
+public final class EntryTable {
+
+    // Kinds of entries.
+    public static final int KIND_FILE = 0;
+    public static final int KIND_DIRECTORY = 1;
+    public static final int KIND_VOTE = 2;
+
+    // Text columns. Directories store their name in the path column, and votes store their
+    // review text in the description column.
+    public static final int COLUMN_TITLE = 0;
+    public static final int COLUMN_AUTHOR = 1;
+    public static final int COLUMN_EMAIL = 2;
+    public static final int COLUMN_DESCRIPTION = 3;
+    public static final int COLUMN_PATH = 4;
+    public static final int COLUMN_FILENAME = 5;
+    public static final int COLUMN_DATE = 6;
+    public static final int COLUMN_LOCALE_DATE = 7;
+    public static final int COLUMN_DETAILS_KEY = 8;
+    private static final int COLUMN_COUNT = 9;
+
+    // The number of rows in this table.
+    private final int mSize;
+
+    // Numeric columns. The file id column is only used by votes.
+    private final byte[] mKinds;
+    private final int[] mIds;
+    private final int[] mFileIds;
+    private final int[] mFileSizes;
+    private final float[] mRatings;
+    private final int[] mVoteCounts;
+
+    // The text of all rows and columns, back to back. A single string is stored as compactly as
+    // the platform stores any string, and has no per-value object overhead.
+    private final String mText;
+
+    // The start of every text value in the pool, by row * COLUMN_COUNT + column. A value ends
+    // where the next one starts, so the array has one extra element for the end of the last value.
+    private final int[] mOffsets;
+
+
+    /**
+     * A cursor over the rows of a table. Moving a row to another index does not allocate, so a
+     * single row can be used to read an entire table.
+     */
+    public final class Row {
+
+        // The index of the row that is read.
+        private int mIndex;
+
+        private Row() {
+        }
+
+        /**
+         * Moves this cursor to another row.
+         *
+         * @param index The index of the row to read.
+         *
+         * @return This row.
+         */
+        public Row moveTo(int index) {
+            if (index < 0 || index >= mSize) {
+                throw new IndexOutOfBoundsException("Row " + index + " of " + mSize);
+            }
+            mIndex = index;
+            return this;
+        }
+
+        public int getIndex() {
+            return mIndex;
+        }
+
+        /**
+         * @return One of the KIND_* constants.
+         */
+        public int getKind() {
+            return mKinds[mIndex];
+        }
+
+        public int getId() {
+            return mIds[mIndex];
+        }
+
+        public int getFileId() {
+            return mFileIds[mIndex];
+        }
+
+        public int getFileSize() {
+            return mFileSizes[mIndex];
+        }
+
+        public float getRating() {
+            return mRatings[mIndex];
+        }
+
+        public int getVoteCount() {
+            return mVoteCounts[mIndex];
+        }
+
+        /**
+         * Returns the text of a column as a new string.
+         *
+         * @param column One of the COLUMN_* constants.
+         *
+         * @return The text of the column, or an empty string if it has none.
+         */
+        public String getString(int column) {
+            int offset = mIndex * COLUMN_COUNT + column;
+            return mText.substring(mOffsets[offset], mOffsets[offset + 1]);
+        }
+
+        /**
+         * Returns where the text of a column starts in the text pool of the table.
+         *
+         * @param column One of the COLUMN_* constants.
+         *
+         * @return The offset of the text in the pool returned by getText.
+         */
+        public int getStart(int column) {
+            return mOffsets[mIndex * COLUMN_COUNT + column];
+        }
+
+        /**
+         * @param column One of the COLUMN_* constants.
+         *
+         * @return The length of the text of a column.
+         */
+        public int getLength(int column) {
+            int offset = mIndex * COLUMN_COUNT + column;
+            return mOffsets[offset + 1] - mOffsets[offset];
+        }
+
+        /**
+         * Returns the title of this row, in the same way as the toString method of its entry.
+         *
+         * @return The title to display for this row.
+         */
+        public String getDisplayTitle() {
+            int kind = getKind();
+            if (kind == KIND_DIRECTORY) {
+                return DirectoryEntry.lastPathComponent(getString(COLUMN_PATH));
+            } else if (kind == KIND_FILE && getLength(COLUMN_TITLE) == 0) {
+                if (getLength(COLUMN_FILENAME) == 0) {
+                    return "Unknown";
+                }
+                return getString(COLUMN_FILENAME);
+            }
+            return getString(COLUMN_TITLE);
+        }
+    }
+
+    /**
+     * Builds a table from entries.
+     */
+    private static final class Builder {
+        private final int mCapacity;
+        private int mSize;
+
+        private final byte[] mKinds;
+        private final int[] mIds;
+        private final int[] mFileIds;
+        private final int[] mFileSizes;
+        private final float[] mRatings;
+        private final int[] mVoteCounts;
+        private final StringBuilder mText = new StringBuilder();
+        private final int[] mOffsets;
+
+        private Builder(int capacity) {
+            mCapacity = capacity;
+            mKinds = new byte[capacity];
+            mIds = new int[capacity];
+            mFileIds = new int[capacity];
+            mFileSizes = new int[capacity];
+            mRatings = new float[capacity];
+            mVoteCounts = new int[capacity];
+            mOffsets = new int[capacity * COLUMN_COUNT + 1];
+        }
+
+        private void add(Entry entry) {
+            if (mSize == mCapacity) {
+                throw new IllegalStateException("Table is full.");
+            }
+
+            String[] text = new String[COLUMN_COUNT];
+            if (entry instanceof FileEntry) {
+                FileEntry file = (FileEntry)entry;
+                mKinds[mSize] = KIND_FILE;
+                mIds[mSize] = file.getId();
+                mFileSizes[mSize] = file.getFileSize();
+                mRatings[mSize] = (float)file.getRating();
+                mVoteCounts[mSize] = file.getVoteCount();
+                text[COLUMN_TITLE] = file.getTitle();
+                text[COLUMN_AUTHOR] = file.getAuthor();
+                text[COLUMN_EMAIL] = file.getEmail();
+                text[COLUMN_DESCRIPTION] = file.getDescription();
+                text[COLUMN_PATH] = file.getFilePath();
+                text[COLUMN_FILENAME] = file.getFileName();
+                text[COLUMN_DATE] = file.getDate();
+                text[COLUMN_LOCALE_DATE] = file.getLocaleDate();
+                text[COLUMN_DETAILS_KEY] = file.getDetailsKey();
+
+            } else if (entry instanceof DirectoryEntry) {
+                DirectoryEntry directory = (DirectoryEntry)entry;
+                mKinds[mSize] = KIND_DIRECTORY;
+                mIds[mSize] = directory.getId();
+                text[COLUMN_PATH] = directory.getName();
+
+            } else if (entry instanceof VoteEntry) {
+                VoteEntry vote = (VoteEntry)entry;
+                mKinds[mSize] = KIND_VOTE;
+                mIds[mSize] = vote.getId();
+                mFileIds[mSize] = vote.getFileId();
+                mRatings[mSize] = (float)vote.getRating();
+                text[COLUMN_TITLE] = vote.getTitle();
+                text[COLUMN_AUTHOR] = vote.getAuthor();
+                text[COLUMN_DESCRIPTION] = vote.getReviewText();
+
+            } else {
+                throw new IllegalArgumentException("Cannot store entry of type " + entry.getClass().getName());
+            }
+
+            int offset = mSize * COLUMN_COUNT;
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                mOffsets[offset + column] = mText.length();
+                if (text[column] != null) {
+                    mText.append(text[column]);
+                }
+            }
+            mOffsets[offset + COLUMN_COUNT] = mText.length();
+
+            mSize++;
+        }
+
+        private EntryTable build() {
+            return new EntryTable(mSize, mKinds, mIds, mFileIds, mFileSizes, mRatings, mVoteCounts, mText.toString(), mOffsets);
+        }
+    }
+
+
+    private EntryTable(int size, byte[] kinds, int[] ids, int[] fileIds, int[] fileSizes, float[] ratings, int[] voteCounts, String text, int[] offsets) {
+        mSize = size;
+        mKinds = kinds;
+        mIds = ids;
+        mFileIds = fileIds;
+        mFileSizes = fileSizes;
+        mRatings = ratings;
+        mVoteCounts = voteCounts;
+        mText = text;
+        mOffsets = offsets;
+    }
+
+    /**
+     * Creates a table from a list of entries.
+     *
+     * @param entries The entries to store.
+     *
+     * @return The new table.
+     */
+    public static EntryTable of(List<Entry> entries) {
+        Builder builder = new Builder(entries.size());
+        for (Entry entry : entries) {
+            builder.add(entry);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return True if a list of entries can be stored in a table without leaving out any details.
+     */
+    static boolean canStore(List<Entry> entries) {
+        for (Entry entry : entries) {
+            if (entry instanceof FileEntry && ((FileEntry)entry).getDetails() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of rows in this table.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return A new cursor for the rows of this table, positioned at the first row.
+     */
+    public Row row() {
+        return new Row();
+    }
+
+    /**
+     * Returns the pool that holds the text of all rows. The text of a row's column can be copied
+     * from it without allocating a string, using the start and length of the column.
+     *
+     * @return The text pool.
+     */
+    public String getText() {
+        return mText;
+    }
+
+    /**
+     * Creates a new entry object with the contents of a row.
+     *
+     * @param index The index of the row.
+     *
+     * @return The new entry.
+     */
+    public Entry getEntry(int index) {
+        Row row = row().moveTo(index);
+        StringPool pool = StringPool.getInstance();
+
+        switch (row.getKind()) {
+            case KIND_DIRECTORY:
+                DirectoryEntry directory = new DirectoryEntry();
+                directory.setId(row.getId());
+                directory.setName(pool.intern(row.getString(COLUMN_PATH)));
+                return directory;
+
+            case KIND_VOTE:
+                VoteEntry vote = new VoteEntry();
+                vote.setId(row.getId());
+                vote.setFileId(row.getFileId());
+                vote.setRating(row.getRating());
+                vote.setTitle(row.getString(COLUMN_TITLE));
+                vote.setAuthor(pool.intern(row.getString(COLUMN_AUTHOR)));
+                vote.setReviewText(row.getString(COLUMN_DESCRIPTION));
+                return vote;
+
+            default:
+                FileEntry file = new FileEntry();
+                file.setId(row.getId());
+                file.setFileSize(row.getFileSize());
+                file.setRating(row.getRating());
+                file.setVoteCount(row.getVoteCount());
+                file.setTitle(row.getString(COLUMN_TITLE));
+                file.setAuthor(pool.intern(row.getString(COLUMN_AUTHOR)));
+                file.setEmail(row.getString(COLUMN_EMAIL));
+                file.setDescription(row.getString(COLUMN_DESCRIPTION));
+                file.setFilePath(pool.intern(row.getString(COLUMN_PATH)));
+                file.setFileName(row.getString(COLUMN_FILENAME));
+                file.setDate(pool.intern(row.getString(COLUMN_DATE)));
+                file.setLocaleDate(pool.intern(row.getString(COLUMN_LOCALE_DATE)));
+                if (row.getLength(COLUMN_DETAILS_KEY) > 0) {
+                    file.setDetailsKey(row.getString(COLUMN_DETAILS_KEY));
+                }
+                return file;
+        }
+    }
+
+    /**
+     * Creates new entry objects with the contents of all rows.
+     *
+     * @return The new entries, in row order.
+     */
+    public List<Entry> toEntries() {
+        List<Entry> entries = new ArrayList<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            entries.add(getEntry(i));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns whether a row has the same contents as a row of another table.
+     *
+     * @param index The index of the row in this table.
+     * @param other The other table.
+     * @param otherIndex The index of the row in the other table.
+     *
+     * @return True if both rows have equal contents.
+     */
+    public boolean isContentEqual(int index, EntryTable other, int otherIndex) {
+        if (mKinds[index] != other.mKinds[otherIndex] || mIds[index] != other.mIds[otherIndex] ||
+            mFileIds[index] != other.mFileIds[otherIndex] || mFileSizes[index] != other.mFileSizes[otherIndex] ||
+            mRatings[index] != other.mRatings[otherIndex] || mVoteCounts[index] != other.mVoteCounts[otherIndex]) {
+            return false;
+        }
+
+        int offset = index * COLUMN_COUNT;
+        int otherOffset = otherIndex * COLUMN_COUNT;
+        int start = mOffsets[offset];
+        int end = mOffsets[offset + COLUMN_COUNT];
+        int otherStart = other.mOffsets[otherOffset];
+        if (end - start != other.mOffsets[otherOffset + COLUMN_COUNT] - otherStart) {
+            return false;
+        }
+
+        // Equal text with equal column boundaries means equal columns.
+        for (int column = 1; column < COLUMN_COUNT; column++) {
+            if (mOffsets[offset + column] - start != other.mOffsets[otherOffset + column] - otherStart) {
+                return false;
+            }
+        }
+        return mText.regionMatches(start, other.mText, otherStart, end - start);
+    }
+
+    /**
+     * Returns an estimate of the memory used by this table.
+     *
+     * @return The estimated size in bytes.
+     */
+    int estimateSize() {
+        return Entry.OBJECT_SIZE * 10 + mKinds.length + mIds.length * 4 * 4 + mRatings.length * 4 +
+            Entry.stringSize(mText) + mOffsets.length * 4;
+    }
+
+}
@@ -0,0 +1,244 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Integer tokens for the names used in web API responses. XML responses use them as element
+ * names and JSON responses as member names. The meaning of some names depends on where in the
+ * response they appear.
+ *
+ * Also stores field values in entries by token, so that every response format fills entries in
+ * the same way.
+ */
+final class Fields {
+
+    static final int UNKNOWN = 0;
+    static final int RESPONSE = 1;
+    static final int ERROR = 2;
+    static final int WARNING = 3;
+    static final int CONTENT = 4;
+    static final int FILE = 5;
+    static final int VOTE = 6;
+    static final int DIR = 7;
+    static final int REVIEW = 8;
+    static final int ID = 9;
+    static final int TITLE = 10;
+    static final int FILENAME = 11;
+    static final int SIZE = 12;
+    static final int DATE = 13;
+    static final int AUTHOR = 14;
+    static final int EMAIL = 15;
+    static final int DESCRIPTION = 16;
+    static final int RATING = 17;
+    static final int VOTES = 18;
+    static final int CREDITS = 19;
+    static final int BASE = 20;
+    static final int BUILDTIME = 21;
+    static final int EDITORS = 22;
+    static final int BUGS = 23;
+    static final int TEXTFILE = 24;
+    static final int TEXT = 25;
+    static final int USERNAME = 26;
+    static final int REVIEWTEXT = 27;
+    static final int NAME = 28;
+    static final int TYPE = 29;
+    static final int MESSAGE = 30;
+    static final int META = 31;
+    static final int VERSION = 32;
+    static final int REVIEWS = 33;
+
+    // Names by token.
+    private static final String[] NAMES = {
+        null, "idgames-response", "error", "warning", "content", "file", "vote", "dir", "review",
+        "id", "title", "filename", "size", "date", "author", "email", "description", "rating",
+        "votes", "credits", "base", "buildtime", "editors", "bugs", "textfile", "text", "username",
+        "reviewtext", "name", "type", "message", "meta", "version", "reviews"
+    };
+
+    // All file entry fields, as a mask of token bits.
+    static final long FILE_FIELDS = bit(ID) | bit(TITLE) | bit(DIR) | bit(FILENAME) | bit(SIZE) |
+        bit(DATE) | bit(AUTHOR) | bit(EMAIL) | bit(DESCRIPTION) | bit(RATING) | bit(VOTES) | bit(CREDITS) |
+        bit(BASE) | bit(BUILDTIME) | bit(EDITORS) | bit(BUGS) | bit(TEXTFILE);
+
+    // File entry fields parsed for each projection, as masks of token bits.
+    static final long PROJECTION_TITLE_ONLY = bit(ID) | bit(TITLE) | bit(FILENAME);
+    static final long PROJECTION_SUMMARY = PROJECTION_TITLE_ONLY |
+        bit(DIR) | bit(SIZE) | bit(DATE) | bit(AUTHOR) | bit(EMAIL) | bit(DESCRIPTION) | bit(RATING) | bit(VOTES);
+    static final long PROJECTION_FULL = -1;
+
+    // Tokens by name, for names that are available as strings.
+    private static final Map<String, Integer> TOKENS = new HashMap<>();
+
+    // Open addressing hash table of tokens, for names that are still in a character buffer.
+    private static final int[] TABLE = new int[128];
+
+    static {
+        for (int token = 1; token < NAMES.length; token++) {
+            TOKENS.put(NAMES[token], token);
+
+            int index = NAMES[token].hashCode() & (TABLE.length - 1);
+            while (TABLE[index] != UNKNOWN) {
+                index = (index + 1) & (TABLE.length - 1);
+            }
+            TABLE[index] = token;
+        }
+    }
+
+    private Fields() {
+    }
+
+    static long bit(int token) {
+        return 1L << token;
+    }
+
+    /**
+     * @return The mask of file entry fields for a projection, one of the Request.PROJECTION_* constants.
+     */
+    static long forProjection(int projection) {
+        if (projection == Request.PROJECTION_TITLE_ONLY) {
+            return PROJECTION_TITLE_ONLY;
+        } else if (projection == Request.PROJECTION_SUMMARY) {
+            return PROJECTION_SUMMARY;
+        }
+        return PROJECTION_FULL;
+    }
+
+    /**
+     * @return The token of a name, or UNKNOWN.
+     */
+    static int get(String name) {
+        Integer token = TOKENS.get(name);
+        return token != null ? token : UNKNOWN;
+    }
+
+    /**
+     * Returns the token of a name in a character buffer, without creating a string for it.
+     *
+     * @return The token of the name, or UNKNOWN.
+     */
+    static int get(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        int index = hash & (TABLE.length - 1);
+        int token;
+        while ((token = TABLE[index]) != UNKNOWN) {
+            if (matches(NAMES[token], buffer, offset, length)) {
+                return token;
+            }
+            index = (index + 1) & (TABLE.length - 1);
+        }
+
+        return UNKNOWN;
+    }
+
+    private static boolean matches(String name, char[] buffer, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the value of a file field in a file entry. Empty values are ignored.
+     *
+     * @param entry The entry to store the value in.
+     * @param field The token of the field.
+     * @param text A buffer containing the value.
+     * @param length The length of the value in the buffer.
+     */
+    static void setFileField(FileEntry entry, int field, char[] text, int length) {
+        if (length == 0) {
+            return;
+        }
+
+        switch (field) {
+            case ID: entry.setId(NumberParser.parseInt(text, 0, length)); break;
+            case TITLE: entry.setTitle(new String(text, 0, length)); break;
+            case DIR: entry.setFilePath(pooled(text, length)); break;
+            case FILENAME: entry.setFileName(new String(text, 0, length)); break;
+            case SIZE: entry.setFileSize(NumberParser.parseInt(text, 0, length)); break;
+            case DATE: entry.setDate(pooled(text, length)); break;
+            case AUTHOR: entry.setAuthor(pooled(text, length)); break;
+            case EMAIL: entry.setEmail(new String(text, 0, length)); break;
+            case DESCRIPTION: entry.setDescription(new String(text, 0, length)); break;
+            case RATING: entry.setRating(NumberParser.parseDouble(text, 0, length)); break;
+            case VOTES: entry.setVoteCount(NumberParser.parseInt(text, 0, length)); break;
+
+            // Single file fields only.
+            case CREDITS: entry.setCredits(new String(text, 0, length)); break;
+            case BASE: entry.setBase(new String(text, 0, length)); break;
+            case BUILDTIME: entry.setBuildTime(new String(text, 0, length)); break;
+            case EDITORS: entry.setEditorsUsed(new String(text, 0, length)); break;
+            case BUGS: entry.setBugs(new String(text, 0, length)); break;
+            case TEXTFILE: entry.setTextFileContents(new String(text, 0, length)); break;
+        }
+    }
+
+    /**
+     * Stores the value of a vote field in a vote entry. Empty values are ignored.
+     */
+    static void setVoteField(VoteEntry entry, int field, char[] text, int length) {
+        if (length == 0) {
+            return;
+        }
+
+        switch (field) {
+            case ID: entry.setId(NumberParser.parseInt(text, 0, length)); break;
+            case FILE: entry.setFileId(NumberParser.parseInt(text, 0, length)); break;
+            case REVIEWTEXT: entry.setReviewText(new String(text, 0, length)); break;
+            case TITLE: entry.setTitle(new String(text, 0, length)); break;
+            case RATING: entry.setRating(NumberParser.parseDouble(text, 0, length)); break;
+            case AUTHOR: entry.setAuthor(pooled(text, length)); break;
+        }
+    }
+
+    /**
+     * Stores the value of a directory field in a directory entry. Empty values are ignored.
+     */
+    static void setDirectoryField(DirectoryEntry entry, int field, char[] text, int length) {
+        if (length == 0) {
+            return;
+        }
+
+        switch (field) {
+            case ID: entry.setId(NumberParser.parseInt(text, 0, length)); break;
+            case NAME: entry.setName(pooled(text, length)); break;
+        }
+    }
+
+    /**
+     * Stores the value of a review field in a review. Empty values are ignored.
+     */
+    static void setReviewField(Review review, int field, char[] text, int length) {
+        if (length == 0) {
+            return;
+        }
+
+        switch (field) {
+            case TEXT: review.setText(new String(text, 0, length)); break;
+            case VOTE: review.setRating((float)NumberParser.parseDouble(text, 0, length)); break;
+            case USERNAME: review.setUsername(pooled(text, length)); break;
+        }
+    }
+
+    /**
+     * Returns a string from the string pool for a value that is likely to occur in many entries.
+     *
+     * @param text A buffer containing the value.
+     * @param length The length of the value in the buffer.
+     *
+     * @return The pooled string.
+     */
+    private static String pooled(char[] text, int length) {
+        return StringPool.getInstance().intern(text, 0, length);
+    }
+}
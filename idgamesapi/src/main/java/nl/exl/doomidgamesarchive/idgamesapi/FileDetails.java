@@ -0,0 +1,230 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The large, rarely displayed part of an IdgamesApi file entry: miscellaneous info, the text
+ * file and reviews. Only a single file response contains these.
+ */
+public class FileDetails {
+
+    // Miscellaneous info of the file.
+    private String mCredits = "";
+    private String mBase = "";
+    private String mBuildTime = "";
+    private String mEditorsUsed = "";
+    private String mBugs = "";
+
+    // The complete contents of the text file describing the file.
+    private String mTextFileContents = "";
+
+    // List of associated reviews.
+    private final List<Review> mReviews = new ArrayList<>();
+
+
+    /**
+     * Loads details that were stored in the installed blob store.
+     *
+     * @param key The blob key of the details.
+     *
+     * @return The details, or null if they are no longer stored or no blob store is installed.
+     */
+    public static FileDetails load(String key) {
+        BlobStore store = BlobStore.getInstalled();
+        if (store == null) {
+            return null;
+        }
+
+        InputStream input = store.open(key);
+        if (input == null) {
+            return null;
+        }
+
+        try {
+            return readFrom(new DataInputStream(input));
+        } catch (IOException e) {
+            ApiLog.w("FileDetails", "Cannot read file details: " + e.toString());
+            return null;
+        } finally {
+            BlobStore.close(input);
+        }
+    }
+
+    /**
+     * Stores these details in the installed blob store, so that they can be passed around by key.
+     * May block, so this should be called on a background thread.
+     *
+     * @return The blob key of the details, or null if no blob store is installed or they could
+     * not be stored.
+     */
+    public String store() {
+        BlobStore store = BlobStore.getInstalled();
+        if (store == null) {
+            return null;
+        }
+        return storeIn(store);
+    }
+
+    /**
+     * Stores these details in a blob store.
+     *
+     * @return The blob key of the details, or null if they could not be stored.
+     */
+    String storeIn(BlobStore store) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeTo(out);
+            out.flush();
+            return store.put(bytes.toByteArray());
+
+        } catch (IOException e) {
+            ApiLog.w("FileDetails", "Cannot store file details: " + e.toString());
+            return null;
+        }
+    }
+
+    void setCredits(String credits) {
+        mCredits = credits;
+    }
+
+    void setBase(String base) {
+        mBase = base;
+    }
+
+    void setBuildTime(String buildTime) {
+        mBuildTime = buildTime;
+    }
+
+    void setEditorsUsed(String editorsUsed) {
+        mEditorsUsed = editorsUsed;
+    }
+
+    void setBugs(String bugs) {
+        mBugs = bugs;
+    }
+
+    void setTextFileContents(String textFileContents) {
+        mTextFileContents = textFileContents;
+    }
+
+    void addReview(Review review) {
+        mReviews.add(review);
+    }
+
+    public String getCredits() {
+        return mCredits;
+    }
+
+    public String getBase() {
+        return mBase;
+    }
+
+    public String getBuildTime() {
+        return mBuildTime;
+    }
+
+    public String getEditorsUsed() {
+        return mEditorsUsed;
+    }
+
+    public String getBugs() {
+        return mBugs;
+    }
+
+    public String getTextFileContents() {
+        return mTextFileContents;
+    }
+
+    public List<Review> getReviews() {
+        return mReviews;
+    }
+
+    /**
+     * Returns an estimate of the memory used by these details.
+     *
+     * @return The estimated size in bytes.
+     */
+    int estimateSize() {
+        int size = Entry.OBJECT_SIZE + 28;
+        size += Entry.stringSize(mCredits) + Entry.stringSize(mBase) + Entry.stringSize(mBuildTime);
+        size += Entry.stringSize(mEditorsUsed) + Entry.stringSize(mBugs) + Entry.stringSize(mTextFileContents);
+
+        size += Entry.OBJECT_SIZE + mReviews.size() * 4;
+        for (Review review : mReviews) {
+            size += review.estimateSize();
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns whether other details have the same contents as these.
+     *
+     * @param other The details to compare with.
+     *
+     * @return True if both have equal contents.
+     */
+    boolean isContentEqual(FileDetails other) {
+        if (!Entry.equal(mCredits, other.mCredits) || !Entry.equal(mBase, other.mBase) ||
+            !Entry.equal(mBuildTime, other.mBuildTime) || !Entry.equal(mEditorsUsed, other.mEditorsUsed) ||
+            !Entry.equal(mBugs, other.mBugs) || !Entry.equal(mTextFileContents, other.mTextFileContents)) {
+            return false;
+        }
+
+        if (mReviews.size() != other.mReviews.size()) {
+            return false;
+        }
+        for (int i = 0; i < mReviews.size(); i++) {
+            if (!mReviews.get(i).isContentEqual(other.mReviews.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes these details in a compact binary form.
+     *
+     * @param out The output to write to.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        Entry.writeString(out, mCredits);
+        Entry.writeString(out, mBase);
+        Entry.writeString(out, mBuildTime);
+        Entry.writeString(out, mEditorsUsed);
+        Entry.writeString(out, mBugs);
+        Entry.writeString(out, mTextFileContents);
+
+        out.writeInt(mReviews.size());
+        for (Review review : mReviews) {
+            review.writeTo(out);
+        }
+    }
+
+    static FileDetails readFrom(DataInput in) throws IOException {
+        FileDetails details = new FileDetails();
+        details.mCredits = Entry.readString(in);
+        details.mBase = Entry.readString(in);
+        details.mBuildTime = Entry.readString(in);
+        details.mEditorsUsed = Entry.readString(in);
+        details.mBugs = Entry.readString(in);
+        details.mTextFileContents = Entry.readString(in);
+
+        int reviewCount = in.readInt();
+        for (int i = 0; i < reviewCount; i++) {
+            details.mReviews.add(Review.readFrom(in));
+        }
+
+        return details;
+    }
+}
@@ -0,0 +1,441 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An IdgamesApi file entry. Contains a title, author, description, rating and more.
+ *
+ * The entry itself only holds a small summary of the file. Its details are held in memory only
+ * until they are offloaded to the blob store, after which they are loaded again when needed.
+ */
+public class FileEntry extends Entry {
+
+    // Prefixes of file size units, in multiples of 1024 bytes.
+    private static final String SIZE_PREFIXES = "kMGTPE";
+
+    // Formatters shared by all entries. Date and number formats are not thread safe, so every
+    // thread that formats entries gets its own instances.
+    private static final ThreadLocal<DateFormat> sApiDateFormat = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        }
+    };
+    private static final ThreadLocal<DateFormat> sLocaleDateFormat = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return DateFormat.getDateInstance();
+        }
+    };
+    private static final ThreadLocal<NumberFormat> sSizeFormat = new ThreadLocal<NumberFormat>() {
+        @Override
+        protected NumberFormat initialValue() {
+            NumberFormat format = NumberFormat.getNumberInstance();
+            format.setMinimumFractionDigits(1);
+            format.setMaximumFractionDigits(1);
+            format.setGroupingUsed(false);
+            return format;
+        }
+    };
+
+    // File database id.
+    private int mId = -1;
+    
+    // Title of this entry.
+    private String mTitle = "";
+    
+    // The author of this entry.
+    private String mAuthor = "";
+    
+    // The email of this entry's author.
+    private String mEmail = "";
+    
+    // A description of this entry.
+    private String mDescription = "";
+    
+    // File info of this entry.
+    private String mFileName = "";
+    private String mFilePath = "";
+    private int mFileSize;
+    private String mFileSizeString;
+    
+    // Temporal info of this entry.
+    private String mDate = "";
+    private String mLocaleDate;
+    
+    // Rating info of this entry.
+    private double mRating;
+    private int mVoteCount;
+
+    // Details of this entry, or null if it has none or they have been offloaded.
+    private FileDetails mDetails;
+
+    // The blob key of this entry's offloaded details, or null if they have not been offloaded.
+    private String mDetailsKey;
+    
+    
+    FileEntry() {
+    }
+
+    public void setId(int id) {
+        mId = id;
+    }
+
+    void setTitle(String title) {
+        mTitle = title;
+    }
+
+    void setAuthor(String author) {
+        mAuthor = author;
+    }
+
+    void setDescription(String description) {
+        mDescription = description;
+    }
+
+    void setEmail(String email) {
+        mEmail = email;
+    }
+
+    void setFileName(String fileName) {
+        mFileName = fileName;
+    }
+
+    void setFilePath(String filePath) {
+        mFilePath = filePath;
+    }
+
+    void setFileSize(int fileSize) {
+        mFileSize = fileSize;
+    }
+
+    void setDate(String date) {
+        mDate = date;
+    }
+
+    void setLocaleDate(String localeDate) {
+        mLocaleDate = localeDate;
+    }
+
+    void setDetailsKey(String detailsKey) {
+        mDetailsKey = detailsKey;
+    }
+    
+    public void setRating(double rating) {
+        mRating = rating;
+    }
+
+    void setVoteCount(int voteCount) {
+        mVoteCount = voteCount;
+    }
+
+    void setCredits(String credits) {
+        details().setCredits(credits);
+    }
+
+    void setBase(String base) {
+        details().setBase(base);
+    }
+
+    void setBuildTime(String buildTime) {
+        details().setBuildTime(buildTime);
+    }
+
+    void setEditorsUsed(String editorsUsed) {
+        details().setEditorsUsed(editorsUsed);
+    }
+
+    void setBugs(String bugs) {
+        details().setBugs(bugs);
+    }
+
+    void setTextFileContents(String textFileContents) {
+        details().setTextFileContents(textFileContents);
+    }
+
+    void addReview(Review review) {
+        details().addReview(review);
+    }
+
+    private FileDetails details() {
+        if (mDetails == null) {
+            mDetails = new FileDetails();
+        }
+        return mDetails;
+    }
+
+    public int getId() {
+        return mId;
+    }
+    
+    public String getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * Returns this entry's author name.
+     * 
+     * @return "Unknown" if there is no author name, the author name otherwise.
+     */
+    public String getAuthor() {
+        if (mAuthor.isEmpty()) {
+            return "Unknown";
+        } else {
+            return mAuthor;
+        }
+    }
+
+    public String getDescription() {
+        return mDescription;
+    }
+
+    public String getEmail() {
+        return mEmail;
+    }
+
+    public String getFileName() {
+        return mFileName;
+    }
+
+    public String getFilePath() {
+        return mFilePath;
+    }
+
+    public String getDate() {
+        return mDate;
+    }
+
+    public int getFileSize() {
+        return mFileSize;
+    }
+    
+    /**
+     * Returns the size of this file as a formatted size string.
+     *  
+     * @return The file size.
+     */
+    public String getFileSizeString() {
+        if (mFileSizeString == null) {
+            mFileSizeString = formatFileSize(mFileSize);
+        }
+
+        return mFileSizeString;
+    }
+
+    /**
+     * Formats a file size as a size string. Can be called on any thread.
+     *
+     * @param fileSize The file size in bytes.
+     *
+     * @return The formatted file size.
+     */
+    public static String formatFileSize(int fileSize) {
+        if (fileSize < 1024) {
+            return fileSize + " B";
+        }
+
+        int exp = 0;
+        long unit = 1;
+        while (fileSize / unit >= 1024 && exp < SIZE_PREFIXES.length()) {
+            unit *= 1024;
+            exp++;
+        }
+        return sSizeFormat.get().format(fileSize / (double)unit) + " " + SIZE_PREFIXES.charAt(exp - 1) + "B";
+    }
+
+    /**
+     * Returns this entry's date as a locale formatted date.
+     * 
+     * @return The locale formatted date of this entry.
+     */
+    public String getLocaleDate() {
+
+        // Parse the date string and construct a localized date string.
+        if (mLocaleDate == null) {
+            Date date = null;
+            try {
+                date = sApiDateFormat.get().parse(mDate);
+            } catch (ParseException e) {
+                ApiLog.w("FileEntry", "Could not parse date " + mDate);
+            }
+
+            // Store the localized string to prevent date parsing next time it is needed.
+            if (date != null) {
+                mLocaleDate = StringPool.getInstance().intern(sLocaleDateFormat.get().format(date));
+            } else {
+                mLocaleDate = "";
+            }
+        }
+
+        return mLocaleDate;
+    }
+
+    public double getRating() {
+        return mRating;
+    }
+
+    public int getVoteCount() {
+        return mVoteCount;
+    }
+
+    /**
+     * @return The details of this entry if they are held in memory, null if this entry has none
+     * or they have been offloaded.
+     */
+    public FileDetails getDetails() {
+        return mDetails;
+    }
+
+    /**
+     * @return The blob key of this entry's offloaded details, or null if they have not been offloaded.
+     */
+    public String getDetailsKey() {
+        return mDetailsKey;
+    }
+
+    /**
+     * Returns the details of this entry, loading them from the blob store if they have been
+     * offloaded. Loaded details are not kept in memory by this entry. May block, so this should
+     * not be called on the UI thread.
+     *
+     * @return The details, empty details if this entry has none, or null if the offloaded details
+     * could not be loaded.
+     */
+    public FileDetails loadDetails() {
+        if (mDetails != null) {
+            return mDetails;
+        }
+        if (mDetailsKey != null) {
+            return FileDetails.load(mDetailsKey);
+        }
+        return new FileDetails();
+    }
+
+    /**
+     * Moves the details of this entry out of memory and into a blob store. If they cannot be
+     * stored, they are kept in memory.
+     *
+     * @param store The blob store to store the details in.
+     */
+    void offloadDetails(BlobStore store) {
+        if (mDetails == null) {
+            return;
+        }
+
+        String key = mDetails.storeIn(store);
+        if (key != null) {
+            mDetailsKey = key;
+            mDetails = null;
+        }
+    }
+    
+    @Override
+    int estimateSize() {
+        int size = OBJECT_SIZE + 36;
+
+        size += stringSize(mTitle) + stringSize(mAuthor) + stringSize(mEmail) + stringSize(mDescription);
+        size += stringSize(mFileName) + stringSize(mFilePath) + stringSize(mDate) + stringSize(mLocaleDate) + stringSize(mFileSizeString);
+        size += stringSize(mDetailsKey);
+        if (mDetails != null) {
+            size += mDetails.estimateSize();
+        }
+
+        return size;
+    }
+
+    @Override
+    public boolean isContentEqual(Entry other) {
+        if (!(other instanceof FileEntry)) {
+            return false;
+        }
+
+        FileEntry file = (FileEntry)other;
+        if (mId != file.mId || mFileSize != file.mFileSize || mRating != file.mRating || mVoteCount != file.mVoteCount) {
+            return false;
+        }
+
+        if (!equal(mTitle, file.mTitle) || !equal(mAuthor, file.mAuthor) || !equal(mEmail, file.mEmail) ||
+            !equal(mDescription, file.mDescription) || !equal(mFileName, file.mFileName) ||
+            !equal(mFilePath, file.mFilePath) || !equal(mDate, file.mDate)) {
+            return false;
+        }
+
+        // Offloaded details are addressed by their contents, so equal keys mean equal details.
+        if (mDetails != null && file.mDetails != null) {
+            return mDetails.isContentEqual(file.mDetails);
+        }
+        return mDetails == null && file.mDetails == null && equal(mDetailsKey, file.mDetailsKey);
+    }
+
+    @Override
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(mId);
+        writeString(out, mTitle);
+        writeString(out, mAuthor);
+        writeString(out, mEmail);
+        writeString(out, mDescription);
+        writeString(out, mFileName);
+        writeString(out, mFilePath);
+        out.writeInt(mFileSize);
+        writeString(out, mDate);
+        out.writeDouble(mRating);
+        out.writeInt(mVoteCount);
+
+        // Offloaded details are stored by key only.
+        writeString(out, mDetailsKey);
+        out.writeBoolean(mDetails != null);
+        if (mDetails != null) {
+            mDetails.writeTo(out);
+        }
+    }
+
+    static FileEntry readFrom(DataInput in) throws IOException {
+        FileEntry entry = new FileEntry();
+        entry.mId = in.readInt();
+        entry.mTitle = readString(in);
+        entry.mAuthor = StringPool.getInstance().intern(readString(in));
+        entry.mEmail = readString(in);
+        entry.mDescription = readString(in);
+        entry.mFileName = readString(in);
+        entry.mFilePath = StringPool.getInstance().intern(readString(in));
+        entry.mFileSize = in.readInt();
+        entry.mDate = StringPool.getInstance().intern(readString(in));
+        entry.mRating = in.readDouble();
+        entry.mVoteCount = in.readInt();
+
+        entry.mDetailsKey = readString(in);
+        if (in.readBoolean()) {
+            entry.mDetails = FileDetails.readFrom(in);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns this entry's title. If the entry has no title, the filename is returned instead.
+     *
+     * @return String
+     */
+    @NonNull
+    public String toString() {
+        if (mTitle.isEmpty()) {
+            if (mFileName.isEmpty()) {
+                return "Unknown";
+            } else {
+                return mFileName;
+            }
+        } else {
+            return mTitle;
+        }
+    }
+}
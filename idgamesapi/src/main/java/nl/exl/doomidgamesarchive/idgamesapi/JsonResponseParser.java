@@ -0,0 +1,398 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses JSON from an input stream into an Idgames response object, while it is being read.
+ *
+ * The web API converts its XML responses to JSON, so element names become member names. A list
+ * of entries becomes an array, unless it contains only a single entry, in which case it becomes
+ * a single object.
+ */
+class JsonResponseParser implements ResponseParser {
+
+    private JsonTokenizer mTokenizer;
+
+    // The response object being constructed.
+    private Response mResponse;
+
+    // If true, indicates that the JSON contains a single Idgames file's information instead of
+    // multiple entries' information.
+    private boolean mContainsSingleFile;
+
+    // The file entry fields to parse.
+    private long mFields = Fields.PROJECTION_FULL;
+
+    // Token that stops parsing when cancelled, or null.
+    private CancellationToken mToken;
+
+    // Collects parsed entries into batches for an entry listener, or null.
+    private EntryBatcher mEntryBatcher;
+
+    // True once parsing should stop, because it was cancelled or all projected fields were parsed.
+    private boolean mStopped;
+
+
+    @Override
+    public void parse(InputStream input) throws IOException {
+        mResponse = new Response();
+        mTokenizer = new JsonTokenizer(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        try {
+            parseRoot();
+        } catch (JsonTokenizer.MalformedJsonException e) {
+            ApiLog.w("JsonResponseParser", "Cannot parse JSON: " + e.toString());
+        } catch (IOException e) {
+            // Reads fail when the connection is aborted by cancelling.
+            if (!isCancelled()) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void setContainsSingleFile() {
+        mContainsSingleFile = true;
+    }
+
+    @Override
+    public void setProjection(int projection) {
+        mFields = Fields.forProjection(projection);
+    }
+
+    @Override
+    public void setEntryListener(EntryListener listener) {
+        mEntryBatcher = listener != null ? new EntryBatcher(listener) : null;
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        mToken = token;
+    }
+
+    @Override
+    public Response getResponse() {
+        return mResponse;
+    }
+
+    private boolean isCancelled() {
+        return mToken != null && mToken.isCancelled();
+    }
+
+    /**
+     * @return True if parsing should continue.
+     */
+    private boolean isRunning() {
+        if (isCancelled()) {
+            mStopped = true;
+        }
+        return !mStopped;
+    }
+
+    private void addEntry(Entry entry) {
+        mResponse.addEntry(entry);
+        if (mEntryBatcher != null) {
+            mEntryBatcher.add(entry);
+        }
+    }
+
+    private void parseRoot() throws IOException {
+        mTokenizer.beginObject();
+        while (isRunning() && mTokenizer.hasNext()) {
+            switch (mTokenizer.nextName()) {
+                case Fields.CONTENT:
+                    parseContent();
+                    break;
+
+                // Messages.
+                case Fields.ERROR:
+                    parseMessage(true);
+                    break;
+                case Fields.WARNING:
+                    parseMessage(false);
+                    break;
+
+                case Fields.META:
+                    parseMeta();
+                    break;
+
+                default:
+                    mTokenizer.skipValue();
+            }
+        }
+    }
+
+    /**
+     * Parses an error or warning message.
+     *
+     * @param isError True if the message is an error, false if it is a warning.
+     */
+    private void parseMessage(boolean isError) throws IOException {
+        if (!beginObject()) {
+            return;
+        }
+
+        while (isRunning() && mTokenizer.hasNext()) {
+            int name = mTokenizer.nextName();
+            if (name != (isError ? Fields.MESSAGE : Fields.TYPE)) {
+                mTokenizer.skipValue();
+            } else if (nextValue()) {
+                if (isError) {
+                    mResponse.setErrorMessage(mTokenizer.getString());
+                } else {
+                    mResponse.setWarningType(mTokenizer.getString());
+                }
+            }
+        }
+        endObject();
+    }
+
+    private void parseMeta() throws IOException {
+        if (!beginObject()) {
+            return;
+        }
+
+        while (isRunning() && mTokenizer.hasNext()) {
+            if (mTokenizer.nextName() == Fields.VERSION && nextValue()) {
+                mResponse.setVersion((float)NumberParser.parseDouble(mTokenizer.getText(), 0, mTokenizer.getTextLength()));
+            } else {
+                mTokenizer.skipValue();
+            }
+        }
+        endObject();
+    }
+
+    private void parseContent() throws IOException {
+        if (mContainsSingleFile) {
+            FileEntry fileEntry = parseFile();
+            if (fileEntry != null) {
+                addEntry(fileEntry);
+            }
+            return;
+        }
+
+        if (!beginObject()) {
+            return;
+        }
+
+        while (isRunning() && mTokenizer.hasNext()) {
+            int name = mTokenizer.nextName();
+            if (name == Fields.FILE || name == Fields.VOTE || name == Fields.DIR) {
+                parseEntries(name);
+            } else {
+                mTokenizer.skipValue();
+            }
+        }
+        endObject();
+    }
+
+    /**
+     * Parses a list of entries of one type, which is either an array or a single object.
+     *
+     * @param type The token of the entry type.
+     */
+    private void parseEntries(int type) throws IOException {
+        if (mTokenizer.peekKind() != JsonTokenizer.KIND_ARRAY) {
+            parseEntry(type);
+            return;
+        }
+
+        mTokenizer.beginArray();
+        while (isRunning() && mTokenizer.hasNext()) {
+            parseEntry(type);
+        }
+        if (isRunning()) {
+            mTokenizer.endArray();
+        }
+    }
+
+    private void parseEntry(int type) throws IOException {
+        Entry entry;
+        if (type == Fields.FILE) {
+            entry = parseFile();
+        } else if (type == Fields.VOTE) {
+            entry = parseVote();
+        } else {
+            entry = parseDirectory();
+        }
+
+        if (entry != null) {
+            addEntry(entry);
+        }
+    }
+
+    /**
+     * Parses a file entry. For a single file with a projection, parsing stops as soon as all
+     * projected fields have been parsed.
+     *
+     * @return The file entry, or null if it was not an object or parsing was cancelled.
+     */
+    private FileEntry parseFile() throws IOException {
+        if (!beginObject()) {
+            return null;
+        }
+
+        FileEntry fileEntry = new FileEntry();
+        long parsed = 0;
+        while (isRunning() && mTokenizer.hasNext()) {
+            int name = mTokenizer.nextName();
+
+            // Reviews are only parsed without a projection.
+            if (name == Fields.REVIEWS && mFields == Fields.PROJECTION_FULL) {
+                parseReviews(fileEntry);
+                continue;
+            }
+
+            if ((Fields.FILE_FIELDS & mFields & Fields.bit(name)) == 0) {
+                mTokenizer.skipValue();
+                continue;
+            }
+
+            if (nextValue()) {
+                Fields.setFileField(fileEntry, name, mTokenizer.getText(), mTokenizer.getTextLength());
+            }
+
+            // Stop as soon as all projected fields of a single file have been parsed.
+            parsed |= Fields.bit(name);
+            if (mContainsSingleFile && mFields != Fields.PROJECTION_FULL && (parsed & mFields) == mFields) {
+                mStopped = true;
+                return fileEntry;
+            }
+        }
+
+        if (!endObject()) {
+            return null;
+        }
+        return fileEntry;
+    }
+
+    private VoteEntry parseVote() throws IOException {
+        if (!beginObject()) {
+            return null;
+        }
+
+        VoteEntry voteEntry = new VoteEntry();
+        while (isRunning() && mTokenizer.hasNext()) {
+            int name = mTokenizer.nextName();
+            if (nextValue()) {
+                Fields.setVoteField(voteEntry, name, mTokenizer.getText(), mTokenizer.getTextLength());
+            }
+        }
+
+        if (!endObject()) {
+            return null;
+        }
+        return voteEntry;
+    }
+
+    private DirectoryEntry parseDirectory() throws IOException {
+        if (!beginObject()) {
+            return null;
+        }
+
+        DirectoryEntry directoryEntry = new DirectoryEntry();
+        while (isRunning() && mTokenizer.hasNext()) {
+            int name = mTokenizer.nextName();
+            if (nextValue()) {
+                Fields.setDirectoryField(directoryEntry, name, mTokenizer.getText(), mTokenizer.getTextLength());
+            }
+        }
+
+        if (!endObject()) {
+            return null;
+        }
+        return directoryEntry;
+    }
+
+    /**
+     * Parses the reviews of a file, which are either an array or a single object.
+     */
+    private void parseReviews(FileEntry fileEntry) throws IOException {
+        if (!beginObject()) {
+            return;
+        }
+
+        while (isRunning() && mTokenizer.hasNext()) {
+            if (mTokenizer.nextName() != Fields.REVIEW) {
+                mTokenizer.skipValue();
+            } else if (mTokenizer.peekKind() != JsonTokenizer.KIND_ARRAY) {
+                parseReview(fileEntry);
+            } else {
+                mTokenizer.beginArray();
+                while (isRunning() && mTokenizer.hasNext()) {
+                    parseReview(fileEntry);
+                }
+                if (isRunning()) {
+                    mTokenizer.endArray();
+                }
+            }
+        }
+        endObject();
+    }
+
+    private void parseReview(FileEntry fileEntry) throws IOException {
+        if (!beginObject()) {
+            return;
+        }
+
+        Review review = new Review();
+        while (isRunning() && mTokenizer.hasNext()) {
+            int name = mTokenizer.nextName();
+            if (nextValue()) {
+                Fields.setReviewField(review, name, mTokenizer.getText(), mTokenizer.getTextLength());
+            }
+        }
+
+        if (endObject()) {
+            fileEntry.addReview(review);
+        }
+    }
+
+    /**
+     * Begins reading an object. Any other value is skipped.
+     *
+     * @return True if an object was begun.
+     */
+    private boolean beginObject() throws IOException {
+        if (mTokenizer.peekKind() != JsonTokenizer.KIND_OBJECT) {
+            mTokenizer.skipValue();
+            return false;
+        }
+
+        mTokenizer.beginObject();
+        return true;
+    }
+
+    /**
+     * Ends reading an object, unless parsing was stopped halfway through it.
+     *
+     * @return True if the object was read completely.
+     */
+    private boolean endObject() throws IOException {
+        if (!isRunning()) {
+            return false;
+        }
+
+        mTokenizer.endObject();
+        return true;
+    }
+
+    /**
+     * Reads the next scalar value into the tokenizer's text buffer. Nested objects and arrays
+     * are skipped.
+     *
+     * @return True if there is a value, false if it is null, an object or an array.
+     */
+    private boolean nextValue() throws IOException {
+        int kind = mTokenizer.peekKind();
+        if (kind == JsonTokenizer.KIND_OBJECT || kind == JsonTokenizer.KIND_ARRAY) {
+            mTokenizer.skipValue();
+            return false;
+        }
+
+        return mTokenizer.nextValue();
+    }
+}
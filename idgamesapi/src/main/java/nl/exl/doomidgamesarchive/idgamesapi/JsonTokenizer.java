@@ -0,0 +1,332 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads JSON from a character stream one token at a time, without building a document tree.
+ *
+ * Member names are returned as field tokens, and scalar values are read into a reusable text
+ * buffer, so that only values that are actually used are turned into strings.
+ */
+class JsonTokenizer {
+
+    // Kinds of values.
+    static final int KIND_OBJECT = 0;
+    static final int KIND_ARRAY = 1;
+    static final int KIND_STRING = 2;
+    static final int KIND_LITERAL = 3;
+    static final int KIND_END = 4;
+
+    private final Reader mReader;
+
+    // Buffered input, and the position and limit of unread characters in it.
+    private final char[] mInput = new char[8192];
+    private int mPosition;
+    private int mLimit;
+
+    // The text of the last scalar value or member name that was read.
+    private char[] mText = new char[256];
+    private int mTextLength;
+
+
+    /**
+     * Thrown when the input is not valid JSON.
+     */
+    static class MalformedJsonException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+
+
+    JsonTokenizer(Reader reader) {
+        mReader = reader;
+    }
+
+    /**
+     * @return The kind of the next value, one of the KIND_* constants. KIND_END if the next
+     * character closes an object or array, or the input has ended.
+     */
+    int peekKind() throws IOException {
+        int c = peekSignificant();
+        switch (c) {
+            case '{': return KIND_OBJECT;
+            case '[': return KIND_ARRAY;
+            case '"': return KIND_STRING;
+            case '}':
+            case ']':
+            case -1:
+                return KIND_END;
+            default:
+                return KIND_LITERAL;
+        }
+    }
+
+    void beginObject() throws IOException {
+        expect('{');
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * @return True if the current object or array has another member or element.
+     */
+    boolean hasNext() throws IOException {
+        int c = peekSignificant();
+        if (c == ',') {
+            mPosition++;
+            c = peekSignificant();
+        }
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /**
+     * Reads the name of the next object member.
+     *
+     * @return The field token of the name, or Fields.UNKNOWN.
+     */
+    int nextName() throws IOException {
+        if (peekSignificant() != '"') {
+            throw syntaxError("Expected a member name");
+        }
+        readString();
+        expect(':');
+
+        return Fields.get(mText, 0, mTextLength);
+    }
+
+    /**
+     * Reads the next scalar value into the text buffer. Strings are unescaped, numbers and
+     * literals are read as they are.
+     *
+     * @return False if the value is null.
+     */
+    boolean nextValue() throws IOException {
+        int kind = peekKind();
+        if (kind == KIND_STRING) {
+            readString();
+            return true;
+        }
+        if (kind != KIND_LITERAL) {
+            throw syntaxError("Expected a value");
+        }
+
+        readLiteral();
+        return !(mTextLength == 4 && mText[0] == 'n' && mText[1] == 'u' && mText[2] == 'l' && mText[3] == 'l');
+    }
+
+    /**
+     * Skips the next value, including any nested objects and arrays, without storing it.
+     */
+    void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            int c = peekSignificant();
+            if (c == -1) {
+                throw syntaxError("Unexpected end of input");
+            }
+
+            if (c == '{' || c == '[') {
+                mPosition++;
+                depth++;
+            } else if (c == '}' || c == ']') {
+                mPosition++;
+                depth--;
+            } else if (c == ',' || c == ':') {
+                mPosition++;
+            } else if (c == '"') {
+                skipString();
+            } else {
+                skipLiteral();
+            }
+        } while (depth > 0);
+    }
+
+    char[] getText() {
+        return mText;
+    }
+
+    int getTextLength() {
+        return mTextLength;
+    }
+
+    String getString() {
+        return new String(mText, 0, mTextLength);
+    }
+
+    private void readString() throws IOException {
+        mPosition++;
+        mTextLength = 0;
+
+        while (true) {
+            if (mPosition == mLimit && !fill()) {
+                throw syntaxError("Unterminated string");
+            }
+
+            // Copy runs of plain characters at once.
+            int start = mPosition;
+            while (mPosition < mLimit) {
+                char c = mInput[mPosition];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                mPosition++;
+            }
+            append(mInput, start, mPosition - start);
+            if (mPosition == mLimit) {
+                continue;
+            }
+
+            char c = mInput[mPosition++];
+            if (c == '"') {
+                return;
+            }
+            appendEscape();
+        }
+    }
+
+    private void appendEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'n': append('\n'); break;
+            case 't': append('\t'); break;
+            case 'r': append('\r'); break;
+            case 'b': append('\b'); break;
+            case 'f': append('\f'); break;
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                append((char)value);
+                break;
+            case -1:
+                throw syntaxError("Unterminated escape");
+            default:
+                append((char)c);
+        }
+    }
+
+    private void skipString() throws IOException {
+        mPosition++;
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            } else if (c == '\\') {
+                read();
+            } else if (c == '"') {
+                return;
+            }
+        }
+    }
+
+    private void readLiteral() throws IOException {
+        mTextLength = 0;
+        int c;
+        while ((c = peek()) != -1 && isLiteralChar((char)c)) {
+            append((char)c);
+            mPosition++;
+        }
+        if (mTextLength == 0) {
+            throw syntaxError("Unexpected character");
+        }
+    }
+
+    private void skipLiteral() throws IOException {
+        int length = 0;
+        int c;
+        while ((c = peek()) != -1 && isLiteralChar((char)c)) {
+            mPosition++;
+            length++;
+        }
+        if (length == 0) {
+            throw syntaxError("Unexpected character");
+        }
+    }
+
+    private static boolean isLiteralChar(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-' || c == '+' || c == '.';
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peekSignificant() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        mPosition++;
+    }
+
+    /**
+     * @return The next character that is not whitespace, without consuming it. -1 at the end of the input.
+     */
+    private int peekSignificant() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            mPosition++;
+        }
+    }
+
+    private int peek() throws IOException {
+        if (mPosition == mLimit && !fill()) {
+            return -1;
+        }
+        return mInput[mPosition];
+    }
+
+    private int read() throws IOException {
+        if (mPosition == mLimit && !fill()) {
+            return -1;
+        }
+        return mInput[mPosition++];
+    }
+
+    private boolean fill() throws IOException {
+        int count = mReader.read(mInput, 0, mInput.length);
+        if (count <= 0) {
+            return false;
+        }
+        mPosition = 0;
+        mLimit = count;
+        return true;
+    }
+
+    private void append(char c) {
+        if (mTextLength == mText.length) {
+            mText = Arrays.copyOf(mText, mText.length * 2);
+        }
+        mText[mTextLength++] = c;
+    }
+
+    private void append(char[] chars, int offset, int length) {
+        if (mTextLength + length > mText.length) {
+            mText = Arrays.copyOf(mText, Math.max(mText.length * 2, mTextLength + length));
+        }
+        System.arraycopy(chars, offset, mText, mTextLength, length);
+        mTextLength += length;
+    }
+
+    private MalformedJsonException syntaxError(String message) {
+        return new MalformedJsonException(message);
+    }
+}
@@ -0,0 +1,115 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+/**
+ * Parses numbers directly from character buffers, without creating intermediate strings.
+ */
+final class NumberParser {
+
+    // Powers of ten that can be represented exactly as a double.
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // The maximum number of significant digits that fit in a long.
+    private static final int DIGITS_MAX = 18;
+
+    private NumberParser() {
+    }
+
+    /**
+     * Parses a decimal integer. Surrounding whitespace is ignored.
+     *
+     * @return The parsed value, or 0 if the characters do not contain an integer.
+     */
+    static int parseInt(char[] buffer, int offset, int length) {
+        int end = offset + length;
+        while (offset < end && Character.isWhitespace(buffer[offset])) {
+            offset++;
+        }
+
+        boolean negative = false;
+        if (offset < end && (buffer[offset] == '-' || buffer[offset] == '+')) {
+            negative = buffer[offset] == '-';
+            offset++;
+        }
+
+        long value = 0;
+        while (offset < end) {
+            char c = buffer[offset];
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                return 0;
+            }
+            offset++;
+        }
+
+        return (int)(negative ? -value : value);
+    }
+
+    /**
+     * Parses a decimal floating point number. Surrounding whitespace is ignored. Numbers that
+     * are not plain decimals, or have too many significant digits, are parsed by
+     * Double.parseDouble instead.
+     *
+     * @return The parsed value, or 0 if the characters do not contain a number.
+     */
+    static double parseDouble(char[] buffer, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (offset < end && Character.isWhitespace(buffer[offset])) {
+            offset++;
+        }
+        while (end > offset && Character.isWhitespace(buffer[end - 1])) {
+            end--;
+        }
+
+        boolean negative = false;
+        if (offset < end && (buffer[offset] == '-' || buffer[offset] == '+')) {
+            negative = buffer[offset] == '-';
+            offset++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        for (; offset < end; offset++) {
+            char c = buffer[offset];
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                if (digits == DIGITS_MAX) {
+                    return parseSlow(buffer, start, length);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (fraction) {
+                    fractionDigits++;
+                }
+            } else {
+                return parseSlow(buffer, start, length);
+            }
+        }
+
+        if (fractionDigits >= POWERS_OF_TEN.length) {
+            return parseSlow(buffer, start, length);
+        }
+
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static double parseSlow(char[] buffer, int offset, int length) {
+        try {
+            return Double.parseDouble(new String(buffer, offset, length).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
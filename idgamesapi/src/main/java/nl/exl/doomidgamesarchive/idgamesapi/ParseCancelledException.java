@@ -0,0 +1,14 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Thrown by the response handler to stop parsing once its request has been cancelled.
+ */
+class ParseCancelledException extends SAXException {
+    private static final long serialVersionUID = 1L;
+
+    ParseCancelledException() {
+        super("Parsing was cancelled.");
+    }
+}
@@ -0,0 +1,177 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Transport that reuses keep-alive connections from the shared platform connection pool, with
+ * explicit timeouts and compressed responses.
+ *
+ * Compressed bodies are decoded while they are being read, so the parser never waits for a whole
+ * response. A body is drained before its connection is closed, because only fully read
+ * connections are returned to the pool.
+ */
+public class PooledTransport implements Transport {
+
+    // Size of the buffer that response bodies are read through.
+    private static final int BUFFER_SIZE = 8192;
+
+    // Maximum number of unread bytes that are drained from a body to keep its connection alive.
+    private static final int DRAIN_MAX = 16 * 1024;
+
+    private final int mConnectTimeout;
+    private final int mReadTimeout;
+
+
+    /**
+     * @param connectTimeout Timeout for establishing a connection, in milliseconds.
+     * @param readTimeout Timeout for each read from a connection, in milliseconds.
+     * @param poolSize The maximum number of idle connections kept in the shared pool.
+     */
+    public PooledTransport(int connectTimeout, int readTimeout, int poolSize) {
+        mConnectTimeout = connectTimeout;
+        mReadTimeout = readTimeout;
+
+        // The platform connection pool is configured through system properties.
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", Integer.toString(poolSize));
+
+        // Bodies are drained here before closing them. Without this, the platform would instead
+        // drain an aborted body in the background, and block the thread that was reading it
+        // until that completes.
+        System.setProperty("http.KeepAlive.remainingData", "0");
+    }
+
+    @Override
+    public Connection open(String url, Map<String, String> headers) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection)new URL(url).openConnection();
+        urlConnection.setConnectTimeout(mConnectTimeout);
+        urlConnection.setReadTimeout(mReadTimeout);
+        urlConnection.setUseCaches(true);
+        urlConnection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            urlConnection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        return new PooledConnection(urlConnection);
+    }
+
+    /**
+     * Returns a stream that decodes a response body according to its content encoding.
+     */
+    private static InputStream decode(InputStream body, String encoding) throws IOException {
+        if (encoding == null || encoding.equalsIgnoreCase("identity")) {
+            return body;
+        }
+
+        if (encoding.equalsIgnoreCase("gzip")) {
+            return new GZIPInputStream(body, BUFFER_SIZE);
+        }
+
+        // Deflate should be zlib wrapped, but some servers send raw deflate data instead.
+        if (encoding.equalsIgnoreCase("deflate")) {
+            body.mark(2);
+            int cmf = body.read();
+            int flg = body.read();
+            body.reset();
+
+            boolean isZlib = (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+            return new InflaterInputStream(body, new Inflater(!isZlib), BUFFER_SIZE);
+        }
+
+        throw new IOException("Unsupported content encoding " + encoding);
+    }
+
+    /**
+     * A call made over a pooled HttpURLConnection.
+     */
+    private static class PooledConnection implements Connection {
+        private final HttpURLConnection mConnection;
+
+        // The raw response body, once it has been opened.
+        private InputStream mRaw;
+
+        // Counts the bytes of the raw response body, before they are decoded.
+        private CountingInputStream mCounter;
+
+        // True if this call was aborted.
+        private volatile boolean mAborted;
+
+        private PooledConnection(HttpURLConnection connection) {
+            mConnection = connection;
+        }
+
+        @Override
+        public int getStatus() throws IOException {
+            return mConnection.getResponseCode();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            mCounter = new CountingInputStream(mConnection.getInputStream());
+            mRaw = new BufferedInputStream(mCounter, BUFFER_SIZE);
+            return decode(mRaw, mConnection.getContentEncoding());
+        }
+
+        @Override
+        public long getBytesReceived() {
+            return mCounter != null ? mCounter.getCount() : 0;
+        }
+
+        @Override
+        public void abort() {
+            mAborted = true;
+            mConnection.disconnect();
+        }
+
+        @Override
+        public void close() {
+            if (mAborted) {
+                return;
+            }
+
+            // Without a body there is no connection to return to the pool.
+            if (mRaw == null) {
+                mConnection.disconnect();
+                return;
+            }
+
+            // Parsers close the body once they have read it, which already returns the connection
+            // to the pool, or closes it if it was not read completely.
+            if (mCounter.isClosed()) {
+                return;
+            }
+
+            try {
+                // Only connections whose body has been read completely can be reused.
+                byte[] buffer = new byte[1024];
+                int drained = 0;
+                int count;
+                while (drained < DRAIN_MAX && (count = mRaw.read(buffer)) >= 0) {
+                    drained += count;
+                }
+                mRaw.close();
+
+                if (drained >= DRAIN_MAX) {
+                    mConnection.disconnect();
+                }
+
+            } catch (IOException e) {
+                ApiLog.w("PooledTransport", "Cannot release connection: " + e.toString());
+                mConnection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * Generates an Idgames API request URL from an action and a number of parameters.  
+ */
+public class Request {
+
+    // The URL of the Idgames API
+    private static final String API_URL = "https://www.doomworld.com/idgames/api/api.php?";
+    
+    // Supported actions.
+    public static final int GET_CONTENTS = 0;
+    public static final int GET_LATESTFILES = 1;
+    public static final int GET_LATESTVOTES = 2;
+    public static final int GET_FILE = 3;
+    public static final int SEARCH = 4;
+    
+    // Field projections. These limit which fields of a file entry are parsed from a response.
+    public static final int PROJECTION_FULL = 0;
+    public static final int PROJECTION_SUMMARY = 1;
+    public static final int PROJECTION_TITLE_ONLY = 2;
+
+    // Response formats.
+    public static final int FORMAT_XML = 0;
+    public static final int FORMAT_JSON = 1;
+
+    // Search categories.
+    public static final int CATEGORY_FILENAME = 0;
+    private static final int CATEGORY_TITLE = 1;
+    private static final int CATEGORY_AUTHOR = 2;
+    private static final int CATEGORY_EMAIL = 3;
+    private static final int CATEGORY_DESCRIPTION = 4;
+    private static final int CATEGORY_CREDITS = 5;
+    private static final int CATEGORY_EDITORS = 6;
+    private static final int CATEGORY_TEXTFILE = 7;
+
+    // Defaults for new requests.
+    public static final int LIMIT_DEFAULT = 30;
+    public static final long MAXAGE_DEFAULT = 60 * 60 * 12;
+    public static final long MAXSTALE_DEFAULT = 60 * 60 * 24 * 7;
+    public static final int CATEGORY_DEFAULT = CATEGORY_FILENAME;
+    public static final int FORMAT_DEFAULT = FORMAT_XML;
+    
+    // The action to execute.
+    private int mAction;
+    
+    // The name of the directory to retrieve.
+    private String mDirectoryName;
+    
+    // The database ID of the file to retrieve.
+    private int mFileId;
+    
+    // The search query to execute.
+    private String mQuery;
+    
+    // The search category type.
+    private int mCategory;
+    
+    // The maximum number of entries to retrieve.
+    private int mLimit = LIMIT_DEFAULT;
+    
+    // The maximum age of this request, in seconds. This is used by the ResponseCache to determine
+    // when a new request needs to be sent to the web API.
+    private long mMaxAge = MAXAGE_DEFAULT;
+
+    // The time after expiring, in seconds, during which a response to this request may still be
+    // displayed while it is being revalidated.
+    private long mMaxStale = MAXSTALE_DEFAULT;
+
+    // The fields of file entries to parse from the response.
+    private int mProjection = PROJECTION_FULL;
+
+    // The format that the web API is asked to respond in.
+    private int mFormat = FORMAT_DEFAULT;
+    
+    
+    public void setAction(int action) {
+        this.mAction = action;
+    }
+    
+    public void setDirectoryName(String newDirectoryName) {
+        mDirectoryName = newDirectoryName;
+    }
+    
+    public void setLimit(int limit) {
+        this.mLimit = limit;
+    }
+
+    public int getLimit() {
+        return mLimit;
+    }
+    
+    public void setQuery(String query) {
+        mQuery = query;
+    }
+
+    public String getQuery() {
+        return mQuery;
+    }
+    
+    public void setCategory(int category) {
+        mCategory = category;
+    }
+
+    public int getCategory() {
+        return mCategory;
+    }
+    
+    public void setMaxAge(long maxAge) {
+        this.mMaxAge = maxAge;
+    }
+
+    public long getMaxAge() {
+        return this.mMaxAge;
+    }
+
+    public void setMaxStale(long maxStale) {
+        this.mMaxStale = maxStale;
+    }
+
+    public long getMaxStale() {
+        return this.mMaxStale;
+    }
+
+    /**
+     * Sets which fields of file entries are parsed from the response. Responses with fewer fields
+     * need less memory, and a single file response is only read until all of its projected fields
+     * have been parsed.
+     *
+     * @param projection One of the PROJECTION_* constants.
+     */
+    public void setProjection(int projection) {
+        this.mProjection = projection;
+    }
+
+    public int getProjection() {
+        return this.mProjection;
+    }
+
+    /**
+     * Sets the format that the web API is asked to respond in. Both formats are parsed into the
+     * same response, so the format is not part of this request's key.
+     *
+     * @param format One of the FORMAT_* constants.
+     */
+    public void setFormat(int format) {
+        this.mFormat = format;
+    }
+
+    public int getFormat() {
+        return this.mFormat;
+    }
+
+    /**
+     * Returns whether a response that expires at a given time may still be displayed while it
+     * is being revalidated.
+     *
+     * @param expires The time at which the response expires, in milliseconds since the epoch.
+     *
+     * @return True if the response is fresh, or stale but still usable.
+     */
+    boolean isUsable(long expires) {
+        return expires + mMaxStale * 1000 > System.currentTimeMillis();
+    }
+
+    public String getDirectoryName() {
+        return mDirectoryName;
+    }
+
+    public void setFileId(int fileId) {
+        this.mFileId = fileId;
+    }
+
+    public int getFileId() {
+        return mFileId;
+    }
+    
+    public int getAction() {
+        return mAction;
+    }
+
+    /**
+     * Returns a key that uniquely identifies the response to this request. Two requests with the
+     * same key will receive the same response from the web API, so parameters that the action
+     * does not use are not part of the key.
+     *
+     * @return The canonical key of this request.
+     */
+    public String getKey() {
+        StringBuilder key = new StringBuilder();
+        key.append(mAction);
+
+        switch (mAction) {
+            case GET_CONTENTS:
+                key.append("|dir=");
+                if (mDirectoryName != null) {
+                    key.append(mDirectoryName);
+                }
+                break;
+
+            case GET_LATESTFILES:
+            case GET_LATESTVOTES:
+                key.append("|limit=").append(mLimit);
+                break;
+
+            case GET_FILE:
+                key.append("|id=").append(mFileId);
+                break;
+
+            // The query is placed last so that its contents cannot be mistaken for another parameter.
+            case SEARCH:
+                key.append("|category=").append(mCategory);
+                key.append("|query=").append(mQuery);
+                break;
+        }
+
+        // A projected response only contains part of the full response.
+        if (mProjection != PROJECTION_FULL) {
+            key.insert(0, "p" + mProjection + "|");
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * @return True if this request can safely be made more than once, for retries and hedging.
+     */
+    boolean isIdempotent() {
+        switch (mAction) {
+            case GET_CONTENTS:
+            case GET_LATESTFILES:
+            case GET_LATESTVOTES:
+            case GET_FILE:
+            case SEARCH:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Request)) {
+            return false;
+        }
+        return getKey().equals(((Request)other).getKey());
+    }
+
+    @Override
+    public int hashCode() {
+        return getKey().hashCode();
+    }
+
+    /**
+     * Returns the HTTP URL to execute for this request.
+     * 
+     * @return The HTTP URL string to make this request with.
+     */
+    String getURL() {
+        StringBuilder url = new StringBuilder(API_URL);
+        
+        switch (mAction) {
+            // Action for retrieving the contents of a directory.
+            case GET_CONTENTS:
+                appendQueryParameter(url, "action", "getcontents");
+                if (mDirectoryName == null || mDirectoryName.isEmpty())
+                    appendQueryParameter(url, "id", "0");
+                else
+                    appendQueryParameter(url, "name", mDirectoryName);
+                break;
+                
+            // Action for retrieving the newest files.
+            case GET_LATESTFILES:
+                appendQueryParameter(url, "action", "latestfiles");
+                appendQueryParameter(url, "limit", Integer.toString(mLimit));
+                break;
+                
+            // Action for retrieving the newest votes.
+            case GET_LATESTVOTES:
+                appendQueryParameter(url, "action", "latestvotes");
+                appendQueryParameter(url, "limit", Integer.toString(mLimit));
+                break;
+                
+            // Action for retrieving a single file's details.
+            case GET_FILE:
+                appendQueryParameter(url, "action", "get");
+                appendQueryParameter(url, "id", Integer.toString(mFileId));
+                break;
+                
+            case SEARCH:
+                appendQueryParameter(url, "action", "search");
+                appendQueryParameter(url, "query", mQuery);
+                appendQueryParameter(url, "type", categoryString(mCategory));
+                break;
+                
+            default:
+                ApiLog.w("Request", "Invalid or unhandled request action type.");
+        }
+
+        if (mFormat == FORMAT_JSON) {
+            appendQueryParameter(url, "out", "json");
+        }
+        
+        return url.toString();
+    }
+
+    /**
+     * Appends an encoded query parameter to a URL.
+     *
+     * @param url The URL to append to. Ends with the start of the query string if this is the first parameter.
+     * @param name The name of the parameter.
+     * @param value The value of the parameter.
+     */
+    private static void appendQueryParameter(StringBuilder url, String name, String value) {
+        if (url.charAt(url.length() - 1) != '?') {
+            url.append('&');
+        }
+
+        try {
+            // Spaces are encoded the same way as in the path of a URL.
+            url.append(name).append('=').append(URLEncoder.encode(value, "UTF-8").replace("+", "%20"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Returns a string that represents the category type in an Idgames request.
+     * 
+     * @param category The category id to return in string form.
+     * 
+     * @return A string that can be used in an Idgames request.
+     */
+    private String categoryString(int category) {
+        if (category == CATEGORY_FILENAME) {
+            return "filename";
+        } else if (category == CATEGORY_TITLE) {
+            return "title";
+        } else if (category == CATEGORY_AUTHOR) {
+            return "author";
+        } else if (category == CATEGORY_EMAIL) {
+            return "email";
+        } else if (category == CATEGORY_DESCRIPTION) {
+            return "description";
+        } else if (category == CATEGORY_CREDITS) {
+            return "credits";
+        } else if (category == CATEGORY_EDITORS) {
+            return "editors";
+        } else if (category == CATEGORY_TEXTFILE) {
+            return "textfile";
+        }
+        
+        return null;
+    }
+}
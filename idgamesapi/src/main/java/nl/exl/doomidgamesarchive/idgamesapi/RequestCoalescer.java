@@ -0,0 +1,89 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Makes sure that only a single web API call is made for identical requests that are in
+ * flight at the same time. Callers that arrive while a call for the same request key is pending
+ * wait for, and receive, the response of that call.
+ */
+class RequestCoalescer {
+
+    private static RequestCoalescer INSTANCE;
+
+    // Calls that are currently pending, by request key.
+    private final Map<String, Call> mCalls = new HashMap<>();
+
+
+    /**
+     * A single pending call shared by one or more callers.
+     */
+    private static class Call {
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private Response mResponse;
+    }
+
+
+    static synchronized RequestCoalescer getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new RequestCoalescer();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the response for a request. If an identical request is already in flight, this
+     * waits for its response instead of calling the loader.
+     *
+     * The loader returns null if its caller was cancelled. Callers that were waiting for that
+     * call then make the call again themselves.
+     *
+     * @param request The request to get a response for.
+     * @param loader Loads the response if no identical request is in flight.
+     *
+     * @return The response, or null if the loader was cancelled.
+     *
+     * @throws InterruptedException If the calling thread was interrupted while waiting for another call.
+     */
+    Response fetch(Request request, Callable<Response> loader) throws InterruptedException {
+        String key = request.getKey();
+        Call call;
+        boolean isLeader = false;
+
+        while (true) {
+            synchronized (mCalls) {
+                call = mCalls.get(key);
+                if (call == null) {
+                    call = new Call();
+                    mCalls.put(key, call);
+                    isLeader = true;
+                }
+            }
+            if (isLeader) {
+                break;
+            }
+
+            // Attach to the pending call.
+            call.mDone.await();
+            if (call.mResponse != null) {
+                return call.mResponse;
+            }
+        }
+
+        try {
+            call.mResponse = loader.call();
+        } catch (Exception e) {
+            call.mResponse = Response.createError(e.toString());
+        } finally {
+            synchronized (mCalls) {
+                mCalls.remove(key);
+            }
+            call.mDone.countDown();
+        }
+
+        return call.mResponse;
+    }
+}
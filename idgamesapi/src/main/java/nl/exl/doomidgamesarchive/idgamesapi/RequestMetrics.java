@@ -0,0 +1,185 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects process-wide statistics about web API calls, per request action. Statistics are not
+ * kept per request key, because every search query and directory has its own key.
+ */
+public class RequestMetrics {
+
+    private static RequestMetrics INSTANCE;
+
+    // Statistics by request action.
+    private final Map<Integer, Metrics> mMetrics = new HashMap<>();
+
+    // Statistics of all requests combined.
+    private final Metrics mTotal = new Metrics();
+
+
+    /**
+     * Statistics of a single request action, or of all requests combined.
+     */
+    public static class Metrics {
+
+        // The number of calls made to the web API.
+        private int mCalls;
+
+        // The number of calls that were answered with a not modified reply.
+        private int mNotModified;
+
+        // The number of response body bytes that were downloaded, as they were sent over the
+        // network. Compressed bodies are counted before they are decoded.
+        private long mBytesReceived;
+
+        // The number of response body bytes that did not need to be downloaded because the
+        // response had not been modified, counted in the same way.
+        private long mBytesSaved;
+
+        // The number of calls that were retried after a failure.
+        private int mRetries;
+
+        // The number of hedged calls made, and how many of those completed before the original call.
+        private int mHedges;
+        private int mHedgeWins;
+
+        public int getCalls() {
+            return mCalls;
+        }
+
+        public int getNotModified() {
+            return mNotModified;
+        }
+
+        public long getBytesReceived() {
+            return mBytesReceived;
+        }
+
+        public long getBytesSaved() {
+            return mBytesSaved;
+        }
+
+        public int getRetries() {
+            return mRetries;
+        }
+
+        public int getHedges() {
+            return mHedges;
+        }
+
+        public int getHedgeWins() {
+            return mHedgeWins;
+        }
+
+        private Metrics copy() {
+            Metrics copy = new Metrics();
+            copy.mCalls = mCalls;
+            copy.mNotModified = mNotModified;
+            copy.mBytesReceived = mBytesReceived;
+            copy.mBytesSaved = mBytesSaved;
+            copy.mRetries = mRetries;
+            copy.mHedges = mHedges;
+            copy.mHedgeWins = mHedgeWins;
+
+            return copy;
+        }
+    }
+
+
+    public static synchronized RequestMetrics getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new RequestMetrics();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Records a call that downloaded a full response.
+     *
+     * @param request The request that the call was made for.
+     * @param bytesReceived The size of the response body as it was received, in bytes.
+     */
+    synchronized void recordDownload(Request request, long bytesReceived) {
+        Metrics metrics = getMetrics(request);
+        metrics.mCalls++;
+        metrics.mBytesReceived += bytesReceived;
+
+        mTotal.mCalls++;
+        mTotal.mBytesReceived += bytesReceived;
+    }
+
+    /**
+     * Records a call that was answered with a not modified reply.
+     *
+     * @param request The request that the call was made for.
+     * @param bytesSaved The size of the response body that did not need to be downloaded, in bytes.
+     */
+    synchronized void recordNotModified(Request request, long bytesSaved) {
+        Metrics metrics = getMetrics(request);
+        metrics.mCalls++;
+        metrics.mNotModified++;
+        metrics.mBytesSaved += bytesSaved;
+
+        mTotal.mCalls++;
+        mTotal.mNotModified++;
+        mTotal.mBytesSaved += bytesSaved;
+    }
+
+    /**
+     * Records that a call was retried after a failure.
+     *
+     * @param request The request that the call was made for.
+     */
+    synchronized void recordRetry(Request request) {
+        getMetrics(request).mRetries++;
+        mTotal.mRetries++;
+    }
+
+    /**
+     * Records that a hedged call was made because the original call was slow.
+     *
+     * @param request The request that the call was made for.
+     * @param won True if the hedged call completed before the original call.
+     */
+    synchronized void recordHedge(Request request, boolean won) {
+        Metrics metrics = getMetrics(request);
+        metrics.mHedges++;
+        mTotal.mHedges++;
+        if (won) {
+            metrics.mHedgeWins++;
+            mTotal.mHedgeWins++;
+        }
+    }
+
+    /**
+     * Returns a copy of the statistics of a request action.
+     *
+     * @param action The action to return statistics of, one of the Request action constants.
+     *
+     * @return The statistics, or null if no calls were made for the action.
+     */
+    public synchronized Metrics get(int action) {
+        Metrics metrics = mMetrics.get(action);
+        if (metrics == null) {
+            return null;
+        }
+        return metrics.copy();
+    }
+
+    /**
+     * @return A copy of the statistics of all requests combined.
+     */
+    public synchronized Metrics getTotal() {
+        return mTotal.copy();
+    }
+
+    private Metrics getMetrics(Request request) {
+        Metrics metrics = mMetrics.get(request.getAction());
+        if (metrics == null) {
+            metrics = new Metrics();
+            mMetrics.put(request.getAction(), metrics);
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,233 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.WeakHashMap;
+
+/**
+ * Runs web API work on a bounded pool of worker threads, ordered by priority.
+ *
+ * Queued work of a lower priority is always passed by newly queued work of a higher priority.
+ * Prefetch work can never occupy all workers, so that foreground work does not have to wait
+ * for a batch of prefetches to complete. Work is queued for an owner, usually a fragment or
+ * activity, so that all of its work can be cancelled when its lifecycle ends.
+ */
+public class RequestScheduler {
+
+    // Priority classes, from most to least urgent.
+    public static final int PRIORITY_FOREGROUND = 0;
+    public static final int PRIORITY_VISIBLE = 1;
+    public static final int PRIORITY_PREFETCH = 2;
+
+    // Number of worker threads. Work spends most of its time waiting for network I/O, so this
+    // is not related to the number of CPU cores.
+    private static final int WORKER_COUNT = 4;
+
+    private static RequestScheduler INSTANCE;
+
+    // Queued jobs, ordered by priority and then by the order in which they were queued.
+    private final PriorityQueue<Job> mQueue = new PriorityQueue<>();
+
+    // Work that was started by each owner, to cancel along with its queued jobs.
+    private final Map<Object, List<Cancellable>> mOwnerWork = new WeakHashMap<>();
+
+    // The maximum number of workers that can run prefetch jobs at the same time.
+    private final int mPrefetchMax;
+
+    // The number of prefetch jobs that are currently running.
+    private int mPrefetchRunning;
+
+    // Sequence number of the next job, used to keep jobs of equal priority in order.
+    private long mSequence;
+
+
+    /**
+     * Work that can be cancelled while it is running.
+     */
+    public interface Cancellable {
+
+        /**
+         * Cancels the work. Called from the thread that cancels its owner's work.
+         */
+        void cancel();
+
+        /**
+         * @return True if the work has completed, so that it no longer needs to be cancelled.
+         */
+        boolean isFinished();
+    }
+
+    /**
+     * A single queued runnable.
+     */
+    private static class Job implements Comparable<Job> {
+        private final Runnable mRunnable;
+        private final int mPriority;
+        private final long mSequence;
+        private final WeakReference<Object> mOwner;
+
+        private Job(Runnable runnable, int priority, long sequence, Object owner) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sequence;
+            mOwner = new WeakReference<>(owner);
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (mPriority != other.mPriority) {
+                return mPriority < other.mPriority ? -1 : 1;
+            }
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+
+
+    public static synchronized RequestScheduler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new RequestScheduler(WORKER_COUNT);
+        }
+        return INSTANCE;
+    }
+
+    RequestScheduler(int workerCount) {
+        mPrefetchMax = Math.max(1, workerCount - 1);
+
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runWorker();
+                }
+            }, "RequestScheduler #" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues a runnable with a priority. The runnable is dropped if cancelAll is called with the
+     * same owner before it has started.
+     *
+     * @param runnable The runnable to run on a worker thread.
+     * @param priority One of the PRIORITY_* constants.
+     * @param owner The object whose lifecycle the runnable is tied to.
+     */
+    public void execute(Runnable runnable, int priority, Object owner) {
+        synchronized (mQueue) {
+            mQueue.add(new Job(runnable, priority, mSequence++, owner));
+            mQueue.notifyAll();
+        }
+    }
+
+    /**
+     * Registers work that is cancelled when cancelAll is called with the same owner.
+     *
+     * @param owner The object whose lifecycle the work is tied to.
+     * @param work The work to cancel.
+     */
+    public void register(Object owner, Cancellable work) {
+        synchronized (mQueue) {
+            List<Cancellable> ownerWork = mOwnerWork.get(owner);
+            if (ownerWork == null) {
+                ownerWork = new ArrayList<>();
+                mOwnerWork.put(owner, ownerWork);
+            }
+
+            // Forget about this owner's work that has already finished.
+            Iterator<Cancellable> iterator = ownerWork.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isFinished()) {
+                    iterator.remove();
+                }
+            }
+            ownerWork.add(work);
+        }
+    }
+
+    /**
+     * Cancels all work of an owner. Jobs that are still queued are dropped without running at
+     * all, registered work is cancelled.
+     *
+     * @param owner The owner to cancel work of.
+     */
+    public void cancelAll(Object owner) {
+        List<Cancellable> ownerWork;
+
+        synchronized (mQueue) {
+            Iterator<Job> iterator = mQueue.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().mOwner.get() == owner) {
+                    iterator.remove();
+                }
+            }
+
+            ownerWork = mOwnerWork.remove(owner);
+        }
+
+        if (ownerWork != null) {
+            for (Cancellable work : ownerWork) {
+                work.cancel();
+            }
+        }
+    }
+
+    /**
+     * Takes the next job that may run from the queue.
+     *
+     * @return The next job, or null if no job can run right now.
+     */
+    private Job takeJob() {
+        Job job = mQueue.peek();
+        if (job == null) {
+            return null;
+        }
+
+        // The queue is ordered by priority, so if this is a prefetch job that cannot run now,
+        // no other job can either.
+        if (job.mPriority == PRIORITY_PREFETCH) {
+            if (mPrefetchRunning >= mPrefetchMax) {
+                return null;
+            }
+            mPrefetchRunning++;
+        }
+
+        return mQueue.poll();
+    }
+
+    private void runWorker() {
+        while (true) {
+            Job job;
+
+            synchronized (mQueue) {
+                while ((job = takeJob()) == null) {
+                    try {
+                        mQueue.wait();
+                    } catch (InterruptedException e) {
+                        // Interrupts are only meant for cancelling a running job.
+                    }
+                }
+            }
+
+            try {
+                job.mRunnable.run();
+            } catch (RuntimeException e) {
+                ApiLog.w("RequestScheduler", "Uncaught exception in scheduled job: " + e.toString());
+            } finally {
+                // A cancelled job may have interrupted this thread, which must not affect the next job.
+                Thread.interrupted();
+
+                if (job.mPriority == PRIORITY_PREFETCH) {
+                    synchronized (mQueue) {
+                        mPrefetchRunning--;
+                        mQueue.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes web API calls resilient against flaky networks and unavailable hosts.
+ *
+ * Failed calls for idempotent requests are retried with a jittered exponential backoff. Each
+ * host has a circuit breaker that fails calls fast while the host appears to be down. If enabled,
+ * a second, hedged call is made when the response to the first one takes longer to arrive than
+ * most recent responses to the same action did. The call whose response arrives first is used
+ * and the other one is aborted, so only a single response body is ever read. A call whose
+ * response has started arriving is never hedged.
+ */
+class ResilientCaller {
+
+    // The maximum number of attempts made for an idempotent request.
+    private static final int ATTEMPTS_MAX = 3;
+
+    // Base and maximum delay before retrying, in milliseconds.
+    private static final long BACKOFF_BASE = 500;
+    private static final long BACKOFF_MAX = 8000;
+
+    // Latency percentile after which a hedged call is made.
+    private static final double HEDGE_PERCENTILE = 0.95;
+
+    // Number of recent latencies kept per action, and the number needed before hedging starts.
+    private static final int LATENCY_SAMPLES = 64;
+    private static final int LATENCY_SAMPLES_MIN = 16;
+
+    private static ResilientCaller INSTANCE;
+
+    // Circuit breakers, by host.
+    private final Map<String, CircuitBreaker> mBreakers = new HashMap<>();
+
+    // Recent latencies until a response started arriving, by request action.
+    private final Map<Integer, LatencyTracker> mLatencies = new HashMap<>();
+
+    private final Random mRandom = new Random();
+
+    // Runs the calls of hedged requests. Null if hedging is disabled.
+    private final ExecutorService mHedgeExecutor;
+
+
+    /**
+     * A single attempt at a call.
+     */
+    interface Attempt<T> {
+
+        /**
+         * @param token Aborts the attempt when cancelled.
+         * @param signal Must be told when the response has started arriving, before its body is read.
+         *
+         * @return The result, or null if the token was cancelled or the response must not be read.
+         *
+         * @throws IOException If the attempt failed and may be retried.
+         */
+        T run(CancellationToken token, ResponseSignal signal) throws IOException;
+    }
+
+    /**
+     * Tells the caller when the response to an attempt has started arriving.
+     */
+    interface ResponseSignal {
+
+        /**
+         * Called once the status and headers of a response have been received, before its body
+         * is read.
+         *
+         * @return True if the body should be read. False if the response to another attempt of
+         * the same call is already being read, in which case the attempt should stop.
+         */
+        boolean onResponse();
+    }
+
+    /**
+     * Keeps the latencies of the most recent responses to an action.
+     */
+    private static class LatencyTracker {
+        private final long[] mSamples = new long[LATENCY_SAMPLES];
+        private int mCount;
+        private int mNext;
+
+        private synchronized void add(long latency) {
+            mSamples[mNext] = latency;
+            mNext = (mNext + 1) % mSamples.length;
+            mCount = Math.min(mCount + 1, mSamples.length);
+        }
+
+        /**
+         * @return The latency at a percentile, or -1 if too few latencies are known.
+         */
+        private synchronized long getPercentile(double percentile) {
+            if (mCount < LATENCY_SAMPLES_MIN) {
+                return -1;
+            }
+
+            long[] sorted = Arrays.copyOf(mSamples, mCount);
+            Arrays.sort(sorted);
+            return sorted[Math.min(mCount - 1, (int)(mCount * percentile))];
+        }
+    }
+
+
+    static synchronized ResilientCaller getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new ResilientCaller(true);
+        }
+        return INSTANCE;
+    }
+
+    ResilientCaller(boolean hedge) {
+        if (!hedge) {
+            mHedgeExecutor = null;
+            return;
+        }
+
+        mHedgeExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ResilientCaller hedge");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Makes a call for a request, retrying and hedging it if the request is idempotent.
+     *
+     * @param request The request that the call is made for.
+     * @param attempt Makes a single attempt at the call.
+     * @param token Stops retrying and aborts attempts when cancelled.
+     *
+     * @return The result, or null if the token was cancelled.
+     *
+     * @throws IOException The failure of the last attempt, or if the host is unavailable.
+     */
+    <T> T call(Request request, Attempt<T> attempt, CancellationToken token) throws IOException {
+        String host = new URL(request.getURL()).getHost();
+        CircuitBreaker breaker = getBreaker(host);
+        LatencyTracker latencies = getLatencies(request.getAction());
+        int attempts = request.isIdempotent() ? ATTEMPTS_MAX : 1;
+        IOException failure = null;
+
+        for (int index = 0; index < attempts; index++) {
+            if (index > 0) {
+                RequestMetrics.getInstance().recordRetry(request);
+                try {
+                    Thread.sleep(getBackoff(index));
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+
+            if (token.isCancelled()) {
+                return null;
+            }
+            if (!breaker.allowCall()) {
+                throw new IOException("Host " + host + " is unavailable.");
+            }
+
+            try {
+                T result;
+                long hedgeDelay = latencies.getPercentile(HEDGE_PERCENTILE);
+                if (mHedgeExecutor != null && hedgeDelay >= 0 && request.isIdempotent()) {
+                    result = callHedged(request, attempt, token, latencies, hedgeDelay);
+                } else {
+                    result = attempt.run(token, new Race(latencies).enter(token));
+                }
+
+                if (result == null) {
+                    breaker.recordCancelled();
+                    return null;
+                }
+
+                breaker.recordSuccess();
+                return result;
+
+            } catch (IOException e) {
+                if (token.isCancelled()) {
+                    breaker.recordCancelled();
+                    return null;
+                }
+
+                breaker.recordFailure();
+                failure = e;
+            }
+        }
+
+        throw failure;
+    }
+
+    /**
+     * Makes a call, and a hedged second call if no response to the first one has started arriving
+     * after a delay. The call whose response arrives first is used, the other call is aborted.
+     */
+    private <T> T callHedged(Request request, Attempt<T> attempt, CancellationToken token, LatencyTracker latencies, long delay) throws IOException {
+        final CancellationToken primaryToken = new CancellationToken();
+        final CancellationToken hedgeToken = new CancellationToken();
+        token.setOnCancel(new Runnable() {
+            @Override
+            public void run() {
+                primaryToken.cancel();
+                hedgeToken.cancel();
+            }
+        });
+
+        Race race = new Race(latencies);
+        CompletionService<T> completion = new ExecutorCompletionService<>(mHedgeExecutor);
+        try {
+            completion.submit(toCallable(attempt, primaryToken, race));
+            Future<T> hedge = null;
+            int pending = 1;
+
+            // Once the primary call is reading its response, a hedged call cannot be faster.
+            Future<T> done = null;
+            if (!race.awaitResponse(delay)) {
+                done = completion.poll();
+                if (done == null) {
+                    hedge = completion.submit(toCallable(attempt, hedgeToken, race));
+                    pending++;
+                }
+            }
+
+            IOException failure = null;
+            while (pending > 0) {
+                if (done == null) {
+                    done = completion.take();
+                }
+                pending--;
+
+                try {
+                    T result = done.get();
+                    if (result != null) {
+                        if (hedge != null) {
+                            RequestMetrics.getInstance().recordHedge(request, done == hedge);
+                        }
+                        return result;
+                    }
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        failure = (IOException)e.getCause();
+                    } else {
+                        failure = new IOException(e.getCause());
+                    }
+                }
+
+                // The other call may still succeed.
+                done = null;
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+
+        } catch (InterruptedException e) {
+            return null;
+
+        } finally {
+            // Abort the call that did not complete first.
+            token.setOnCancel(null);
+            primaryToken.cancel();
+            hedgeToken.cancel();
+        }
+    }
+
+    private static <T> Callable<T> toCallable(final Attempt<T> attempt, final CancellationToken token, final Race race) {
+        final ResponseSignal signal = race.enter(token);
+        return new Callable<T>() {
+            @Override
+            public T call() throws IOException {
+                try {
+                    return attempt.run(token, signal);
+                } finally {
+                    race.finish();
+                }
+            }
+        };
+    }
+
+    /**
+     * Decides which of the attempts of a call reads its response, and records how long each
+     * response took to start arriving. The first attempt to receive a response wins, and the
+     * other attempts are aborted.
+     */
+    private static class Race {
+        private final LatencyTracker mLatencies;
+
+        // The token of the attempt whose response is being read, or null if no response has arrived yet.
+        private CancellationToken mWinner;
+
+        // The tokens of the attempts that have entered this race.
+        private final List<CancellationToken> mTokens = new ArrayList<>(2);
+
+        // The number of attempts that have finished.
+        private int mFinished;
+
+        private Race(LatencyTracker latencies) {
+            mLatencies = latencies;
+        }
+
+        /**
+         * Enters an attempt into this race.
+         *
+         * @param token The token that aborts the attempt.
+         *
+         * @return The signal that the attempt must give when its response arrives.
+         */
+        private synchronized ResponseSignal enter(final CancellationToken token) {
+            mTokens.add(token);
+            final long start = System.nanoTime();
+            return new ResponseSignal() {
+                @Override
+                public boolean onResponse() {
+                    mLatencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return win(token);
+                }
+            };
+        }
+
+        private boolean win(CancellationToken token) {
+            List<CancellationToken> losers = new ArrayList<>(mTokens.size());
+            synchronized (this) {
+                if (mWinner != null) {
+                    return false;
+                }
+                mWinner = token;
+                notifyAll();
+
+                for (CancellationToken other : mTokens) {
+                    if (other != token) {
+                        losers.add(other);
+                    }
+                }
+            }
+
+            for (CancellationToken loser : losers) {
+                loser.cancel();
+            }
+            return true;
+        }
+
+        private synchronized void finish() {
+            mFinished++;
+            notifyAll();
+        }
+
+        /**
+         * Waits until the response to an attempt has started arriving, or an attempt has finished
+         * without one.
+         *
+         * @param timeout The maximum time to wait, in milliseconds.
+         *
+         * @return True if a response has started arriving.
+         */
+        private synchronized boolean awaitResponse(long timeout) throws InterruptedException {
+            long end = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while (mWinner == null && mFinished == 0 && remaining > 0) {
+                wait(remaining);
+                remaining = end - System.currentTimeMillis();
+            }
+            return mWinner != null;
+        }
+    }
+
+    /**
+     * Returns the delay before a retry, with equal jitter so that clients that failed at the
+     * same time do not all retry at the same time.
+     *
+     * @param retry The number of the retry, starting at 1.
+     */
+    private long getBackoff(int retry) {
+        long backoff = Math.min(BACKOFF_MAX, BACKOFF_BASE << (retry - 1));
+        synchronized (mRandom) {
+            return backoff / 2 + (long)(mRandom.nextDouble() * (backoff / 2));
+        }
+    }
+
+    private synchronized CircuitBreaker getBreaker(String host) {
+        CircuitBreaker breaker = mBreakers.get(host);
+        if (breaker == null) {
+            breaker = new CircuitBreaker();
+            mBreakers.put(host, breaker);
+        }
+        return breaker;
+    }
+
+    private synchronized LatencyTracker getLatencies(int action) {
+        LatencyTracker latencies = mLatencies.get(action);
+        if (latencies == null) {
+            latencies = new LatencyTracker();
+            mLatencies.put(action, latencies);
+        }
+        return latencies;
+    }
+}
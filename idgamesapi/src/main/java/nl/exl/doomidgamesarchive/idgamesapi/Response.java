@@ -0,0 +1,250 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manages a single response from the Idgames web API.
+ */
+public class Response {
+
+    // Version of the binary format written by writeTo. Increase this when the format changes.
+    static final int BINARY_VERSION = 2;
+
+    // Entry types in the binary format.
+    private static final int BINARY_TYPE_FILE = 1;
+    private static final int BINARY_TYPE_DIRECTORY = 2;
+    private static final int BINARY_TYPE_VOTE = 3;
+
+    // The version number of the response.
+    private Float mVersion;
+    
+    // The error returned in the response, if any.
+    private String mErrorMessage;
+    
+    // The warning returned in the response, if any.
+    private String mWarningType;
+    
+    // THe entries returned in the response, if any. Null once they have been compacted.
+    private List<Entry> mEntries;
+
+    // The entries of the response in columnar form, once they have been compacted.
+    private EntryTable mTable;
+    
+    
+    Response() {
+        mEntries = new ArrayList<>();
+    }
+
+    /**
+     * Creates a response without entries that reports an error, for requests that could not be
+     * completed.
+     *
+     * @param errorMessage The message describing the error.
+     *
+     * @return The new response.
+     */
+    public static Response createError(String errorMessage) {
+        Response response = new Response();
+        response.setErrorMessage(errorMessage);
+        return response;
+    }
+
+    public float getVersion() {
+        return this.mVersion;
+    }
+    
+    public void setVersion(float newVersion) {
+        this.mVersion = newVersion;
+    }
+
+    public String getWarningType() {
+        return this.mWarningType;
+    }
+    
+    void setWarningType(String newWarningType) {
+        this.mWarningType = newWarningType;
+    }
+
+    void addEntry(Entry entry) {
+        this.mEntries.add(entry);
+    }
+    
+    /**
+     * Returns the entries of this response. If the entries have been compacted into a table, a
+     * new list of entries is created from it on every call, so getTable should be preferred for
+     * reading a compacted response.
+     *
+     * @return The entries of this response.
+     */
+    public List<Entry> getEntries() {
+        if (mEntries == null) {
+            return mTable.toEntries();
+        }
+        return this.mEntries;
+    }
+
+    /**
+     * Returns the entries of this response as a table. If the entries have not been compacted,
+     * a new table is created from them on every call.
+     *
+     * @return The entries of this response in columnar form.
+     */
+    public EntryTable getTable() {
+        if (mTable != null) {
+            return mTable;
+        }
+        return EntryTable.of(mEntries);
+    }
+
+    /**
+     * @return The number of entries in this response.
+     */
+    public int getEntryCount() {
+        if (mEntries == null) {
+            return mTable.size();
+        }
+        return mEntries.size();
+    }
+
+    /**
+     * Returns a copy of this response with its entries compacted into a table, to reduce the memory
+     * that it uses while it is cached. This response itself is not changed, because other threads
+     * may already be reading it.
+     *
+     * @return The compacted copy, or this response if it is compacted already or if its entries
+     * hold their details in memory, which are not compacted.
+     */
+    Response compacted() {
+        if (mEntries == null || !EntryTable.canStore(mEntries)) {
+            return this;
+        }
+
+        Response compacted = new Response();
+        compacted.mVersion = mVersion;
+        compacted.mErrorMessage = mErrorMessage;
+        compacted.mWarningType = mWarningType;
+        compacted.mTable = EntryTable.of(mEntries);
+        compacted.mEntries = null;
+        return compacted;
+    }
+
+    public String getErrorMessage() {
+        return mErrorMessage;
+    }
+
+    void setErrorMessage(String errorMessage) {
+        this.mErrorMessage = errorMessage;
+    }
+
+    /**
+     * Moves the details of all file entries out of memory and into a blob store.
+     *
+     * @param store The blob store to store the details in.
+     */
+    void offloadDetails(BlobStore store) {
+        if (mEntries == null) {
+            return;
+        }
+
+        for (Entry entry : mEntries) {
+            if (entry instanceof FileEntry) {
+                ((FileEntry)entry).offloadDetails(store);
+            }
+        }
+    }
+
+    /**
+     * Returns an estimate of the memory used by this response and its entries.
+     *
+     * @return The estimated size in bytes.
+     */
+    int estimateSize() {
+        int size = Entry.OBJECT_SIZE * 3;
+        size += Entry.stringSize(mErrorMessage) + Entry.stringSize(mWarningType);
+
+        if (mEntries == null) {
+            return size + mTable.estimateSize();
+        }
+
+        size += mEntries.size() * 4;
+        for (Entry entry : mEntries) {
+            size += entry.estimateSize();
+        }
+
+        return size;
+    }
+
+    /**
+     * Writes this response and its entries in a compact binary form.
+     *
+     * @param out The output to write to.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(BINARY_VERSION);
+
+        out.writeBoolean(mVersion != null);
+        if (mVersion != null) {
+            out.writeFloat(mVersion);
+        }
+        Entry.writeString(out, mErrorMessage);
+        Entry.writeString(out, mWarningType);
+
+        List<Entry> entries = getEntries();
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            if (entry instanceof FileEntry) {
+                out.writeByte(BINARY_TYPE_FILE);
+            } else if (entry instanceof DirectoryEntry) {
+                out.writeByte(BINARY_TYPE_DIRECTORY);
+            } else if (entry instanceof VoteEntry) {
+                out.writeByte(BINARY_TYPE_VOTE);
+            } else {
+                throw new IOException("Cannot write entry of type " + entry.getClass().getName());
+            }
+            entry.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a response written by writeTo.
+     *
+     * @param in The input to read from.
+     *
+     * @return The response that was read.
+     *
+     * @throws IOException If the input could not be read or was written in another format version.
+     */
+    static Response readFrom(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported binary response version " + version);
+        }
+
+        Response response = new Response();
+        if (in.readBoolean()) {
+            response.mVersion = in.readFloat();
+        }
+        response.mErrorMessage = Entry.readString(in);
+        response.mWarningType = Entry.readString(in);
+
+        int entryCount = in.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            int type = in.readByte();
+            if (type == BINARY_TYPE_FILE) {
+                response.mEntries.add(FileEntry.readFrom(in));
+            } else if (type == BINARY_TYPE_DIRECTORY) {
+                response.mEntries.add(DirectoryEntry.readFrom(in));
+            } else if (type == BINARY_TYPE_VOTE) {
+                response.mEntries.add(VoteEntry.readFrom(in));
+            } else {
+                throw new IOException("Unknown binary entry type " + type);
+            }
+        }
+
+        return response;
+    }
+}
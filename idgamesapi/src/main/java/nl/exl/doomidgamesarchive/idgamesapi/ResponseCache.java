@@ -0,0 +1,216 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide in-memory cache of parsed responses, keyed by request.
+ *
+ * Responses expire after the maximum age of the request they were stored for, but are kept
+ * until the request's maximum staleness has passed as well. The cache is bounded by the
+ * estimated memory size of the responses in it, and evicts the least recently used responses
+ * first.
+ */
+public class ResponseCache {
+
+    // Default maximum estimated size of all cached responses, in bytes.
+    private static final int SIZE_MAX_DEFAULT = 2 * 1024 * 1024;
+
+    private static ResponseCache INSTANCE;
+
+    // Cached items by request key, in least to most recently used order.
+    private final LinkedHashMap<String, Item> mItems = new LinkedHashMap<>(32, 0.75f, true);
+
+    // The maximum estimated size of all cached responses.
+    private final int mSizeMax;
+
+    // The current estimated size of all cached responses.
+    private int mSize;
+
+
+    /**
+     * A single cached response.
+     */
+    private static class Item {
+        private final Response mResponse;
+        private final long mExpires;
+        private final Validators mValidators;
+        private final int mSize;
+
+        private Item(Response response, long expires, Validators validators, int size) {
+            mResponse = response;
+            mExpires = expires;
+            mValidators = validators;
+            mSize = size;
+        }
+    }
+
+
+    public static synchronized ResponseCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new ResponseCache(SIZE_MAX_DEFAULT);
+        }
+        return INSTANCE;
+    }
+
+    ResponseCache(int sizeMax) {
+        mSizeMax = sizeMax;
+    }
+
+    /**
+     * Returns the cached response for a request, if it has not expired yet.
+     *
+     * @param request The request to return a response for.
+     *
+     * @return The cached response, or null if there is no fresh response for the request.
+     */
+    public synchronized Response get(Request request) {
+        String key = request.getKey();
+        Item item = mItems.get(key);
+        if (item == null) {
+            return null;
+        }
+
+        // Expired responses are kept around, they can still be displayed while being revalidated.
+        if (item.mExpires <= System.currentTimeMillis()) {
+            return null;
+        }
+
+        return item.mResponse;
+    }
+
+    /**
+     * Returns the cached response for a request, even if it has expired, as long as it is still
+     * within the request's maximum staleness.
+     *
+     * @param request The request to return a response for.
+     *
+     * @return The cached response, or null if there is no usable response for the request.
+     */
+    public synchronized Response getStale(Request request) {
+        String key = request.getKey();
+        Item item = mItems.get(key);
+        if (item == null) {
+            return null;
+        }
+
+        if (!request.isUsable(item.mExpires)) {
+            remove(key);
+            return null;
+        }
+
+        return item.mResponse;
+    }
+
+    /**
+     * Returns the validators of the cached response for a request, fresh or not.
+     *
+     * @param request The request to return validators for.
+     *
+     * @return The validators, or null if there is no cached response or it has none.
+     */
+    synchronized Validators getValidators(Request request) {
+        Item item = mItems.get(request.getKey());
+        if (item == null) {
+            return null;
+        }
+        return item.mValidators;
+    }
+
+    /**
+     * Stores a response for a request. Responses that contain an error are not stored.
+     *
+     * @param request The request that the response is for.
+     * @param response The response to store.
+     */
+    public synchronized void put(Request request, Response response) {
+        put(request, response, System.currentTimeMillis() + request.getMaxAge() * 1000);
+    }
+
+    /**
+     * Stores a response for a request, with an explicit expiry time. Responses that contain an
+     * error are not stored.
+     *
+     * @param request The request that the response is for.
+     * @param response The response to store.
+     * @param expires The time at which the response expires, in milliseconds since the epoch.
+     */
+    public synchronized void put(Request request, Response response, long expires) {
+        put(request, response, expires, null);
+    }
+
+    /**
+     * Stores a response for a request, with an explicit expiry time and the validators to
+     * revalidate it with once it has expired.
+     *
+     * @param request The request that the response is for.
+     * @param response The response to store.
+     * @param expires The time at which the response expires, in milliseconds since the epoch.
+     * @param validators The validators of the response, or null.
+     *
+     * @return The response as it is stored, which is a compacted copy for lists. Callers should
+     * use it instead of the response that they passed in, so that only one copy is kept in memory.
+     * The response itself if it contains an error.
+     */
+    synchronized Response put(Request request, Response response, long expires, Validators validators) {
+        if (response.getErrorMessage() != null) {
+            return response;
+        }
+
+        String key = request.getKey();
+        remove(key);
+
+        // Lists are kept in columnar form. Single files are not, their entry is used as a whole.
+        if (request.getAction() != Request.GET_FILE) {
+            response = response.compacted();
+        }
+
+        // Responses that would not fit in the cache at all are not stored.
+        int size = response.estimateSize();
+        if (size > mSizeMax) {
+            return response;
+        }
+
+        mItems.put(key, new Item(response, expires, validators, size));
+        mSize += size;
+
+        trim();
+        return response;
+    }
+
+    /**
+     * Removes the cached response to a request.
+     *
+     * @param request The request to remove the response of.
+     */
+    public synchronized void remove(Request request) {
+        remove(request.getKey());
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public synchronized void clear() {
+        mItems.clear();
+        mSize = 0;
+    }
+
+    private void remove(String key) {
+        Item item = mItems.remove(key);
+        if (item != null) {
+            mSize -= item.mSize;
+        }
+    }
+
+    /**
+     * Evicts the least recently used responses until the cache is within its size limit.
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, Item>> iterator = mItems.entrySet().iterator();
+        while (mSize > mSizeMax && iterator.hasNext()) {
+            mSize -= iterator.next().getValue().mSize;
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Loads Idgames web API responses for requests, from the response cache, the snapshot store or
+ * the web API itself. Loading blocks, so it must be done on a background thread.
+ */
+public class ResponseLoader {
+
+    // The transport that web API calls are made with.
+    private final Transport mTransport;
+
+    // Retries and hedges the web API calls.
+    private final ResilientCaller mCaller;
+
+
+    /**
+     * Receives progress while a response is being loaded. Methods are called on the loading thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called with a stale response, before it is revalidated.
+         *
+         * @param response The stale response.
+         */
+        void onStaleResponse(Response response);
+
+        /**
+         * Called with a batch of entries that has just been parsed. Only called if no stale
+         * response was passed to onStaleResponse.
+         *
+         * @param offset The index of the first entry of the batch. Entries from this index
+         *               onwards should be replaced by the batch.
+         * @param entries The entries of the batch.
+         */
+        void onEntriesParsed(int offset, List<Entry> entries);
+
+        /**
+         * Called when a stale response that was passed to onStaleResponse could not be
+         * revalidated. The stale response is still returned, but it has not become fresh.
+         *
+         * @param errorMessage Why the response could not be revalidated.
+         */
+        void onRevalidationFailed(String errorMessage);
+    }
+
+    /**
+     * Passes batches of parsed entries on to a listener. Only the batches of the attempt whose
+     * response body is being read are passed on. A retried attempt takes over from a failed one,
+     * and starts publishing from the first entry again.
+     */
+    private static class EntryStream {
+        private final Listener mListener;
+        private CancellationToken mSource;
+
+        private EntryStream(Listener listener) {
+            mListener = listener;
+        }
+
+        /**
+         * Starts passing on the batches of an attempt, instead of those of any earlier attempt.
+         *
+         * @param source The token of the attempt.
+         */
+        private synchronized ResponseParser.EntryListener listenTo(final CancellationToken source) {
+            mSource = source;
+            return new ResponseParser.EntryListener() {
+                @Override
+                public void onEntries(int offset, List<Entry> entries) {
+                    publish(source, offset, entries);
+                }
+            };
+        }
+
+        private synchronized void publish(CancellationToken source, int offset, List<Entry> entries) {
+            if (mSource != source) {
+                return;
+            }
+
+            mListener.onEntriesParsed(offset, entries);
+        }
+    }
+
+
+    /**
+     * @param transport The transport to make web API calls with.
+     */
+    public ResponseLoader(Transport transport) {
+        this(transport, ResilientCaller.getInstance());
+    }
+
+    /**
+     * @param transport The transport to make web API calls with.
+     * @param caller Retries and hedges the web API calls.
+     */
+    ResponseLoader(Transport transport, ResilientCaller caller) {
+        mTransport = transport;
+        mCaller = caller;
+    }
+
+    /**
+     * Loads the response to a request.
+     *
+     * @param request The request to load a response for.
+     * @param token Aborts the web API call and stops parsing when cancelled.
+     * @param listener Receives progress while the response is loaded, or null.
+     *
+     * @return The response, or a response with an error message if anything went wrong. A stale
+     * response that could not be revalidated is returned instead of the error. Null if the token
+     * was cancelled.
+     */
+    public Response load(final Request request, final CancellationToken token, Listener listener) {
+        final ResponseCache cache = ResponseCache.getInstance();
+        final SnapshotStore store = SnapshotStore.getInstalled();
+
+        // Use an already parsed response if there is a fresh one.
+        Response response = cache.get(request);
+        if (response != null) {
+            return response;
+        }
+
+        // Find the last known response, from memory or from a snapshot stored on disk earlier.
+        Response stale = cache.getStale(request);
+        if (stale == null && store != null) {
+            SnapshotStore.Snapshot snapshot = store.get(request);
+            if (snapshot != null && request.isUsable(snapshot.getExpires())) {
+                Response restored = cache.put(request, snapshot.getResponse(), snapshot.getExpires(), snapshot.getValidators());
+                if (!snapshot.isExpired()) {
+                    return restored;
+                }
+                stale = restored;
+            }
+        }
+
+        // Display the stale response while it is being revalidated.
+        if (stale != null && listener != null) {
+            listener.onStaleResponse(stale);
+        }
+
+        // Without a stale response to display, show entries as soon as they have been parsed.
+        final EntryStream stream = listener != null && stale == null ? new EntryStream(listener) : null;
+
+        // Identical requests that are already in flight share a single web API call.
+        final Response lastKnown = stale;
+        try {
+            response = RequestCoalescer.getInstance().fetch(request, new Callable<Response>() {
+                @Override
+                public Response call() {
+                    // An identical call may have completed since the cache was last checked.
+                    Response loaded = cache.get(request);
+                    if (loaded != null) {
+                        return loaded;
+                    }
+
+                    // Only ask the web API whether the last known response has changed.
+                    Validators validators = lastKnown != null ? cache.getValidators(request) : null;
+                    LoadResult result = fetch(request, validators, token, stream);
+                    if (result == null || token.isCancelled()) {
+                        return null;
+                    }
+                    long expires = System.currentTimeMillis() + request.getMaxAge() * 1000;
+
+                    // The last known response is still current, so it only needs a new lifetime.
+                    if (result.mResponse == null) {
+                        Response current = cache.put(request, lastKnown, expires, result.mValidators);
+                        if (store != null) {
+                            store.refresh(request, expires);
+                        }
+                        return current;
+                    }
+
+                    // Large file details are kept on disk until they are displayed.
+                    loaded = result.mResponse;
+                    BlobStore blobs = BlobStore.getInstalled();
+                    if (blobs != null) {
+                        loaded.offloadDetails(blobs);
+                    }
+                    loaded = cache.put(request, loaded, expires, result.mValidators);
+                    if (store != null) {
+                        store.put(request, loaded, expires, result.mValidators);
+                    }
+                    return loaded;
+                }
+            });
+        } catch (InterruptedException e) {
+            return null;
+        }
+
+        if (response == null || token.isCancelled()) {
+            return null;
+        }
+
+        // Keep using the stale response if it could not be revalidated.
+        if (response.getErrorMessage() != null && stale != null) {
+            if (listener != null) {
+                listener.onRevalidationFailed(response.getErrorMessage());
+            }
+            return stale;
+        }
+
+        return response;
+    }
+
+    /**
+     * Fetches and parses a response from the Idgames web API. Failed calls are retried.
+     *
+     * @param request The request to load a response for.
+     * @param validators The validators of the last known response, or null to always load a full response.
+     * @param token Aborts the call and stops parsing when cancelled.
+     * @param stream Receives batches of entries while they are being parsed, or null.
+     *
+     * @return The result. Contains a parsed response, a response with an error message if anything
+     * went wrong, or no response at all if the last known response has not been modified. Null if
+     * the token was cancelled.
+     */
+    private LoadResult fetch(final Request request, final Validators validators, CancellationToken token, final EntryStream stream) {
+        try {
+            return mCaller.call(request, new ResilientCaller.Attempt<LoadResult>() {
+                @Override
+                public LoadResult run(CancellationToken attemptToken, ResilientCaller.ResponseSignal signal) throws IOException {
+                    return fetchOnce(request, validators, attemptToken, signal, stream);
+                }
+            }, token);
+
+        } catch (MalformedURLException e) {
+            ApiLog.w("ResponseLoader", "Malformed URL: " + e.toString());
+            return LoadResult.failure(e.toString());
+
+        } catch (IOException e) {
+            if (token.isCancelled()) {
+                return null;
+            }
+            ApiLog.w("ResponseLoader", "IO exception while retrieving data: " + e.toString());
+            return LoadResult.failure(e.toString());
+        }
+    }
+
+    /**
+     * Makes a single attempt at fetching and parsing a response from the Idgames web API.
+     *
+     * @param signal Told when the response has arrived, and decides whether its body should be read.
+     *
+     * @return The result, or null if the token was cancelled or another attempt is reading its response.
+     *
+     * @throws IOException If the call failed in a way that may succeed when retried.
+     */
+    private LoadResult fetchOnce(Request request, Validators validators, CancellationToken token, ResilientCaller.ResponseSignal signal, EntryStream stream) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cache-Control", "max-age=" + request.getMaxAge());
+        if (validators != null) {
+            validators.addTo(headers);
+        }
+
+        Transport.Connection connection = null;
+        try {
+            // Attempt a connection.
+            connection = mTransport.open(request.getURL(), headers);
+
+            // Cancelling aborts the connection, which unblocks any read in progress.
+            final Transport.Connection aborted = connection;
+            token.setOnCancel(new Runnable() {
+                @Override
+                public void run() {
+                    aborted.abort();
+                }
+            });
+
+            // Server errors may be temporary.
+            int status = connection.getStatus();
+            if (status >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                throw new IOException("Server error, HTTP status " + status);
+            }
+
+            // Leave the response to a hedged attempt that has already started reading its own.
+            if (!signal.onResponse()) {
+                return null;
+            }
+
+            // Nothing needs to be downloaded or parsed if the last known response is still current.
+            if (validators != null && status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                RequestMetrics.getInstance().recordNotModified(request, validators.getBodySize());
+                return new LoadResult(null, validators.update(connection));
+            }
+
+            // Client errors are not temporary.
+            if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                return LoadResult.failure("Request failed, HTTP status " + status);
+            }
+
+            // Parse the response into a response object while it is being downloaded.
+            InputStream content = connection.getBody();
+            ResponseParser responseParser = createParser(request);
+            if (request.getAction() == Request.GET_FILE) {
+                responseParser.setContainsSingleFile();
+            }
+            responseParser.setProjection(request.getProjection());
+            responseParser.setCancellationToken(token);
+            if (stream != null) {
+                responseParser.setEntryListener(stream.listenTo(token));
+            }
+            responseParser.parse(content);
+            if (token.isCancelled()) {
+                return null;
+            }
+            Response response = responseParser.getResponse();
+
+            long bytesReceived = connection.getBytesReceived();
+            RequestMetrics.getInstance().recordDownload(request, bytesReceived);
+
+            return new LoadResult(response, Validators.fromConnection(connection, bytesReceived));
+
+        } catch (IOException e) {
+            if (token.isCancelled()) {
+                return null;
+            }
+            throw e;
+
+        } finally {
+            token.setOnCancel(null);
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * @return A new parser for the format that a request asks the web API to respond in.
+     */
+    private static ResponseParser createParser(Request request) {
+        if (request.getFormat() == Request.FORMAT_JSON) {
+            return new JsonResponseParser();
+        }
+        return new XmlResponseParser();
+    }
+
+    /**
+     * The result of loading a response from the web API.
+     */
+    private static class LoadResult {
+
+        // The loaded response, or null if the last known response has not been modified.
+        private final Response mResponse;
+
+        // The validators of the response, or null if it has none.
+        private final Validators mValidators;
+
+        private LoadResult(Response response, Validators validators) {
+            mResponse = response;
+            mValidators = validators;
+        }
+
+        // Returns the result of a load that went wrong.
+        private static LoadResult failure(String message) {
+            return new LoadResult(Response.createError(message), null);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Parses a web API response from an input stream into an Idgames response object. There is an
+ * implementation for each response format.
+ */
+interface ResponseParser {
+
+    /**
+     * Receives entries in batches while they are being parsed.
+     */
+    interface EntryListener {
+
+        /**
+         * Called from the parsing thread with the next batch of parsed entries.
+         *
+         * @param offset The index of the first entry of the batch in the complete response.
+         * @param entries The entries of the batch.
+         */
+        void onEntries(int offset, List<Entry> entries);
+    }
+
+    /**
+     * Attempts to parse the InputStream object.
+     *
+     * @param input The input to parse.
+     *
+     * @throws IOException If the input could not be read, so that the response is incomplete.
+     */
+    void parse(InputStream input) throws IOException;
+
+    /**
+     * Indicates that the response contains a single Idgames file's information instead of
+     * multiple entries' information.
+     */
+    void setContainsSingleFile();
+
+    /**
+     * Sets which fields of file entries are parsed. A single file response is only parsed until
+     * all of its projected fields have been parsed.
+     *
+     * @param projection One of the Request.PROJECTION_* constants.
+     */
+    void setProjection(int projection);
+
+    /**
+     * Sets a listener that receives entries in batches while they are being parsed.
+     *
+     * @param listener The listener, or null.
+     */
+    void setEntryListener(EntryListener listener);
+
+    /**
+     * Sets the token that is checked regularly to stop parsing early.
+     *
+     * @param token The cancellation token.
+     */
+    void setCancellationToken(CancellationToken token);
+
+    Response getResponse();
+}
@@ -0,0 +1,84 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Describes a single Idgames API review.
+ */
+public class Review {
+
+    // The text inside this review.
+    private String mText = "";
+    
+    // Reviewer rating.
+    private float mRating = 0.0f;
+    
+    // Reviewer name. "Anonymous" if there is none.
+    private String mUsername = "Anonymous";
+    
+    
+    public String getText() {
+        return mText;
+    }
+    
+    public String getUsername() {
+        return mUsername;
+    }
+    
+    public float getRating() {
+        return mRating;
+    }
+    
+    public void setText(String text) {
+        mText = text;
+    }
+    
+    void setUsername(String username) {
+        mUsername = username;
+    }
+    
+    public void setRating(float rating) {
+        mRating = rating;
+    }
+
+    /**
+     * Returns an estimate of the memory used by this review.
+     *
+     * @return The estimated size in bytes.
+     */
+    int estimateSize() {
+        return Entry.OBJECT_SIZE + 8 + Entry.stringSize(mText) + Entry.stringSize(mUsername);
+    }
+
+    /**
+     * Returns whether another review has the same contents as this one.
+     *
+     * @param other The review to compare with.
+     *
+     * @return True if both reviews have equal contents.
+     */
+    boolean isContentEqual(Review other) {
+        return mRating == other.mRating && Entry.equal(mText, other.mText) && Entry.equal(mUsername, other.mUsername);
+    }
+
+    /**
+     * Writes this review's fields in a compact binary form.
+     *
+     * @param out The output to write to.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        Entry.writeString(out, mText);
+        out.writeFloat(mRating);
+        Entry.writeString(out, mUsername);
+    }
+
+    static Review readFrom(DataInput in) throws IOException {
+        Review review = new Review();
+        review.mText = Entry.readString(in);
+        review.mRating = in.readFloat();
+        review.mUsername = StringPool.getInstance().intern(Entry.readString(in));
+        return review;
+    }
+}
@@ -0,0 +1,406 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Stores parsed responses on disk in a compact binary form, so that they can be restored
+ * without downloading or parsing XML again, even after the process has been restarted.
+ *
+ * Each response is stored in its own file, named after a hash of its request key. Files are
+ * written to a temporary file first, synced to disk and then renamed, so a snapshot is never
+ * partially written.
+ * When the total size of all snapshots exceeds the maximum size, the least recently used
+ * snapshots are deleted.
+ */
+public class SnapshotStore {
+
+    // Identifies a snapshot file.
+    private static final int MAGIC = 0x49445353;
+
+    // Version of the snapshot header layout. Snapshots with a different version are discarded.
+    private static final int VERSION = 2;
+
+    // Offset of the expiry time in the header, so that it can be updated in place.
+    private static final int OFFSET_EXPIRES = 9;
+
+    // Header flag set if the response has validators stored with it.
+    private static final int FLAG_VALIDATORS = 2;
+
+    // Header flag set if the response data is deflate compressed.
+    private static final int FLAG_DEFLATE = 1;
+
+    private static final String EXTENSION = ".snapshot";
+    private static final String EXTENSION_TEMP = ".tmp";
+
+    private static SnapshotStore INSTANCE;
+
+    // The directory that snapshots are stored in.
+    private final File mDirectory;
+
+    // The maximum size of all snapshot files.
+    private final long mSizeMax;
+
+    // If true, response data is compressed.
+    private final boolean mCompress;
+
+    // The current size of all snapshot files. -1 if it has not been determined yet.
+    private long mSize = -1;
+
+
+    /**
+     * A response restored from a snapshot.
+     */
+    public static class Snapshot {
+        private final Response mResponse;
+        private final long mExpires;
+        private final Validators mValidators;
+
+        private Snapshot(Response response, long expires, Validators validators) {
+            mResponse = response;
+            mExpires = expires;
+            mValidators = validators;
+        }
+
+        public Response getResponse() {
+            return mResponse;
+        }
+
+        /**
+         * @return The time at which the response expires, in milliseconds since the epoch.
+         */
+        public long getExpires() {
+            return mExpires;
+        }
+
+        public boolean isExpired() {
+            return mExpires <= System.currentTimeMillis();
+        }
+
+        Validators getValidators() {
+            return mValidators;
+        }
+    }
+
+
+    /**
+     * Installs the process-wide snapshot store. If one is installed already, that one is returned.
+     *
+     * @param directory The directory to store snapshots in.
+     * @param sizeMax The maximum size of all snapshots, in bytes.
+     * @param compress True if the response data should be compressed.
+     *
+     * @return The installed snapshot store.
+     */
+    public static synchronized SnapshotStore install(File directory, long sizeMax, boolean compress) {
+        if (INSTANCE == null) {
+            INSTANCE = new SnapshotStore(directory, sizeMax, compress);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @return The installed snapshot store, or null if none has been installed.
+     */
+    public static synchronized SnapshotStore getInstalled() {
+        return INSTANCE;
+    }
+
+    SnapshotStore(File directory, long sizeMax, boolean compress) {
+        mDirectory = directory;
+        mSizeMax = sizeMax;
+        mCompress = compress;
+    }
+
+    /**
+     * Returns the stored snapshot for a request, including expired ones.
+     *
+     * @param request The request to return the snapshot of.
+     *
+     * @return The snapshot, or null if there is none or it could not be read.
+     */
+    public synchronized Snapshot get(Request request) {
+        String key = request.getKey();
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 8192));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Invalid snapshot header.");
+            }
+            int flags = in.readByte();
+            long expires = in.readLong();
+            String storedKey = in.readUTF();
+
+            // Different keys can hash to the same file name.
+            if (!storedKey.equals(key)) {
+                return null;
+            }
+
+            Validators validators = null;
+            if ((flags & FLAG_VALIDATORS) != 0) {
+                validators = Validators.readFrom(in);
+            }
+
+            // Entries are read a few bytes at a time, which the inflater is slow at by itself.
+            if ((flags & FLAG_DEFLATE) != 0) {
+                in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in), 8192));
+            }
+            Response response = Response.readFrom(in);
+
+            // Mark the snapshot as recently used.
+            file.setLastModified(System.currentTimeMillis());
+
+            return new Snapshot(response, expires, validators);
+
+        } catch (IOException e) {
+            ApiLog.w("SnapshotStore", "Cannot read snapshot, discarding it: " + e.toString());
+            close(in);
+            in = null;
+            delete(file);
+            return null;
+
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Stores a snapshot of a response. Responses that contain an error are not stored.
+     *
+     * @param request The request that the response is for.
+     * @param response The response to store.
+     * @param expires The time at which the response expires, in milliseconds since the epoch.
+     */
+    public synchronized void put(Request request, Response response, long expires) {
+        put(request, response, expires, null);
+    }
+
+    /**
+     * Stores a snapshot of a response along with the validators to revalidate it with once it has
+     * expired. Responses that contain an error are not stored.
+     *
+     * @param request The request that the response is for.
+     * @param response The response to store.
+     * @param expires The time at which the response expires, in milliseconds since the epoch.
+     * @param validators The validators of the response, or null.
+     */
+    synchronized void put(Request request, Response response, long expires, Validators validators) {
+        if (response.getErrorMessage() != null) {
+            return;
+        }
+
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            ApiLog.w("SnapshotStore", "Cannot create snapshot directory " + mDirectory);
+            return;
+        }
+        ensureSize();
+
+        String key = request.getKey();
+        File file = getFile(key);
+        File temp = new File(mDirectory, file.getName() + EXTENSION_TEMP);
+
+        DataOutputStream out = null;
+        try {
+            FileOutputStream fileOut = new FileOutputStream(temp);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut, 8192));
+            int flags = (mCompress ? FLAG_DEFLATE : 0) | (validators != null ? FLAG_VALIDATORS : 0);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(flags);
+            out.writeLong(expires);
+            out.writeUTF(key);
+            if (validators != null) {
+                validators.writeTo(out);
+            }
+
+            DeflaterOutputStream deflater = null;
+            if (mCompress) {
+                deflater = new DeflaterOutputStream(out);
+                out = new DataOutputStream(new BufferedOutputStream(deflater, 8192));
+            }
+            response.writeTo(out);
+            out.flush();
+            if (deflater != null) {
+                deflater.finish();
+                deflater.flush();
+            }
+
+            // The rename below can reach the disk before the data does, which would leave an
+            // empty or truncated snapshot behind if the device loses power in between.
+            fileOut.getFD().sync();
+            out.close();
+            out = null;
+
+        } catch (IOException e) {
+            ApiLog.w("SnapshotStore", "Cannot write snapshot: " + e.toString());
+            close(out);
+            temp.delete();
+            return;
+
+        } finally {
+            close(out);
+        }
+
+        // Replace the existing snapshot in one step.
+        long oldSize = file.length();
+        if (!temp.renameTo(file)) {
+            ApiLog.w("SnapshotStore", "Cannot move snapshot into place: " + file);
+            temp.delete();
+            return;
+        }
+
+        mSize += file.length() - oldSize;
+        trim();
+    }
+
+    /**
+     * Updates the expiry time of a stored snapshot in place, without rewriting the response data.
+     * Used when the web API reports that the response has not been modified.
+     *
+     * @param request The request whose snapshot to update.
+     * @param expires The new time at which the response expires, in milliseconds since the epoch.
+     */
+    synchronized void refresh(Request request, long expires) {
+        String key = request.getKey();
+        File file = getFile(key);
+        if (!file.exists()) {
+            return;
+        }
+
+        RandomAccessFile out = null;
+        try {
+            out = new RandomAccessFile(file, "rw");
+            if (out.readInt() != MAGIC || out.readInt() != VERSION) {
+                throw new IOException("Invalid snapshot header.");
+            }
+            out.seek(OFFSET_EXPIRES + 8);
+            if (!out.readUTF().equals(key)) {
+                return;
+            }
+
+            out.seek(OFFSET_EXPIRES);
+            out.writeLong(expires);
+
+        } catch (IOException e) {
+            ApiLog.w("SnapshotStore", "Cannot refresh snapshot, discarding it: " + e.toString());
+            close(out);
+            out = null;
+            delete(file);
+
+        } finally {
+            close(out);
+        }
+    }
+
+    /**
+     * Removes the snapshot for a request.
+     *
+     * @param request The request to remove the snapshot of.
+     */
+    public synchronized void remove(Request request) {
+        ensureSize();
+        delete(getFile(request.getKey()));
+    }
+
+    private File getFile(String key) {
+        return new File(mDirectory, hash(key) + EXTENSION);
+    }
+
+    private void delete(File file) {
+        long size = file.length();
+        if (file.delete() && mSize >= 0) {
+            mSize -= size;
+        }
+    }
+
+    /**
+     * Determines the size of all stored snapshots, if that has not been done yet.
+     * Temporary files left behind by an interrupted write are removed.
+     */
+    private void ensureSize() {
+        if (mSize >= 0) {
+            return;
+        }
+
+        mSize = 0;
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.getName().endsWith(EXTENSION)) {
+                mSize += file.length();
+            } else if (file.getName().endsWith(EXTENSION_TEMP)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used snapshots until the store is within its size limit.
+     */
+    private void trim() {
+        if (mSize <= mSizeMax) {
+            return;
+        }
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                return Long.compare(lhs.lastModified(), rhs.lastModified());
+            }
+        });
+
+        for (File file : files) {
+            if (mSize <= mSizeMax) {
+                break;
+            }
+            if (file.getName().endsWith(EXTENSION)) {
+                delete(file);
+            }
+        }
+    }
+
+    /**
+     * Returns a hexadecimal SHA-1 hash of a string, for use as a file name.
+     */
+    private static String hash(String value) {
+        return BlobStore.hash(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            ApiLog.w("SnapshotStore", "Cannot close snapshot file: " + e.toString());
+        }
+    }
+}
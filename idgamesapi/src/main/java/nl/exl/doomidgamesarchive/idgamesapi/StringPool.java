@@ -0,0 +1,168 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Process-wide pool of strings that occur many times across responses, such as author names,
+ * directory paths and dates.
+ *
+ * Parsed values are looked up in the pool before a new string is created for them, so that
+ * every entry with the same value shares a single string. The pool has a fixed number of slots
+ * and only refers to its strings weakly, so it never keeps strings alive that are not used by
+ * any entry anymore. A value whose slot holds another string replaces it.
+ */
+public class StringPool {
+
+    // The number of slots in the pool. Must be a power of two.
+    private static final int SLOT_COUNT = 4096;
+
+    // Longer values are not pooled, they are unlikely to occur more than once.
+    private static final int LENGTH_MAX = 64;
+
+    private static StringPool INSTANCE;
+
+    // Pooled strings by hash code.
+    @SuppressWarnings("unchecked")
+    private final WeakReference<String>[] mSlots = (WeakReference<String>[])new WeakReference<?>[SLOT_COUNT];
+
+    // The number of lookups that found a pooled string, and that did not.
+    private long mHits;
+    private long mMisses;
+
+
+    public static synchronized StringPool getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new StringPool();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a pooled string with the contents of a buffer. No string is created if an equal
+     * string is already in the pool.
+     *
+     * @param buffer The buffer containing the value.
+     * @param offset The offset of the value in the buffer.
+     * @param length The length of the value.
+     *
+     * @return A string with the value.
+     */
+    public synchronized String intern(char[] buffer, int offset, int length) {
+        if (length > LENGTH_MAX) {
+            return new String(buffer, offset, length);
+        }
+
+        // Same hash as String.hashCode, so that pooled strings can be found by either method.
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        int slot = slotOf(hash);
+        String pooled = get(slot);
+        if (pooled != null && pooled.hashCode() == hash && regionEquals(pooled, buffer, offset, length)) {
+            mHits++;
+            return pooled;
+        }
+
+        String value = new String(buffer, offset, length);
+        mSlots[slot] = new WeakReference<>(value);
+        mMisses++;
+
+        return value;
+    }
+
+    /**
+     * Returns a pooled string equal to a string.
+     *
+     * @param value The string to look up, may be null.
+     *
+     * @return An equal pooled string, or the value itself if there is none. Null if the value is null.
+     */
+    public synchronized String intern(String value) {
+        if (value == null || value.length() > LENGTH_MAX) {
+            return value;
+        }
+
+        int slot = slotOf(value.hashCode());
+        String pooled = get(slot);
+        if (pooled != null && pooled.equals(value)) {
+            mHits++;
+            return pooled;
+        }
+
+        mSlots[slot] = new WeakReference<>(value);
+        mMisses++;
+
+        return value;
+    }
+
+    /**
+     * @return The number of lookups that returned a string that was already pooled.
+     */
+    public synchronized long getHits() {
+        return mHits;
+    }
+
+    /**
+     * @return The number of lookups that added a new string to the pool.
+     */
+    public synchronized long getMisses() {
+        return mMisses;
+    }
+
+    /**
+     * @return The fraction of lookups that returned a string that was already pooled, or 0 if
+     * there were no lookups yet.
+     */
+    public synchronized float getHitRate() {
+        long total = mHits + mMisses;
+        if (total == 0) {
+            return 0;
+        }
+        return (float)mHits / total;
+    }
+
+    /**
+     * @return The number of strings that are currently pooled.
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            if (get(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static int slotOf(int hash) {
+        // Spread the high bits, paths and dates share long prefixes.
+        return (hash ^ (hash >>> 16)) & (SLOT_COUNT - 1);
+    }
+
+    private String get(int slot) {
+        WeakReference<String> reference = mSlots[slot];
+        if (reference == null) {
+            return null;
+        }
+
+        String value = reference.get();
+        if (value == null) {
+            mSlots[slot] = null;
+        }
+        return value;
+    }
+
+    private static boolean regionEquals(String value, char[] buffer, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
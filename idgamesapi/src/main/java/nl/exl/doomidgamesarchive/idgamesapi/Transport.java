@@ -0,0 +1,64 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Performs HTTP GET calls to the Idgames web API.
+ */
+public interface Transport {
+
+    /**
+     * Opens a connection for a call to a URL.
+     *
+     * @param url The URL to call.
+     * @param headers Request headers to send.
+     *
+     * @return The connection. It must be closed once the response has been read.
+     *
+     * @throws IOException If the connection could not be opened.
+     */
+    Connection open(String url, Map<String, String> headers) throws IOException;
+
+    /**
+     * A single call to the web API.
+     */
+    interface Connection extends Closeable {
+
+        /**
+         * @return The HTTP status code of the response.
+         */
+        int getStatus() throws IOException;
+
+        /**
+         * @return The value of a response header, or null if the response does not have it.
+         */
+        String getHeader(String name);
+
+        /**
+         * @return The decoded response body.
+         */
+        InputStream getBody() throws IOException;
+
+        /**
+         * @return The number of response body bytes received so far, as they were sent over the
+         * network before they were decoded.
+         */
+        long getBytesReceived();
+
+        /**
+         * Aborts this call from another thread. Blocked reads and connection attempts fail with
+         * an IOException, and the underlying socket is not reused.
+         */
+        void abort();
+
+        /**
+         * Releases the resources of this connection. Depending on the transport, the underlying
+         * socket may be reused for later calls.
+         */
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,99 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * HTTP validators of a response. These are sent along with a request for a response that has
+ * expired, so that the web API can reply that the response has not been modified instead of
+ * sending it again.
+ */
+class Validators {
+
+    // The value of the response's ETag header, or null.
+    private final String mETag;
+
+    // The value of the response's Last-Modified header, or null.
+    private final String mLastModified;
+
+    // The size of the response body as it was received, in bytes. Used to determine how many
+    // bytes a not modified reply saved.
+    private final long mBodySize;
+
+
+    private Validators(String eTag, String lastModified, long bodySize) {
+        mETag = eTag;
+        mLastModified = lastModified;
+        mBodySize = bodySize;
+    }
+
+    /**
+     * Returns the validators of a response received over a connection.
+     *
+     * @param connection The connection that the response was received over.
+     * @param bodySize The size of the response body as it was received, in bytes.
+     *
+     * @return The validators, or null if the response has none.
+     */
+    static Validators fromConnection(Transport.Connection connection, long bodySize) {
+        String eTag = connection.getHeader("ETag");
+        String lastModified = connection.getHeader("Last-Modified");
+        if (eTag == null && lastModified == null) {
+            return null;
+        }
+
+        return new Validators(eTag, lastModified, bodySize);
+    }
+
+    /**
+     * Returns these validators, updated with any new ones sent along with a not modified reply.
+     *
+     * @param connection The connection that the not modified reply was received over.
+     *
+     * @return The updated validators.
+     */
+    Validators update(Transport.Connection connection) {
+        String eTag = connection.getHeader("ETag");
+        String lastModified = connection.getHeader("Last-Modified");
+
+        return new Validators(
+            eTag != null ? eTag : mETag,
+            lastModified != null ? lastModified : mLastModified,
+            mBodySize
+        );
+    }
+
+    /**
+     * Makes a request conditional on these validators.
+     *
+     * @param headers The request headers to add the conditional headers to.
+     */
+    void addTo(Map<String, String> headers) {
+        if (mETag != null) {
+            headers.put("If-None-Match", mETag);
+        }
+        if (mLastModified != null) {
+            headers.put("If-Modified-Since", mLastModified);
+        }
+    }
+
+    long getBodySize() {
+        return mBodySize;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        Entry.writeString(out, mETag);
+        Entry.writeString(out, mLastModified);
+        out.writeLong(mBodySize);
+    }
+
+    static Validators readFrom(DataInput in) throws IOException {
+        String eTag = Entry.readString(in);
+        String lastModified = Entry.readString(in);
+        long bodySize = in.readLong();
+
+        return new Validators(eTag, lastModified, bodySize);
+    }
+}
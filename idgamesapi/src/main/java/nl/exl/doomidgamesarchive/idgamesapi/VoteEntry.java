@@ -1,5 +1,9 @@
 package nl.exl.doomidgamesarchive.idgamesapi;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import androidx.annotation.NonNull;
 
 /**
@@ -37,12 +41,8 @@ public class VoteEntry extends Entry {
         mTitle = title;
     }
     
-    void addTitle(String title) {
-        mTitle += title;
-    }
-
-    void addReviewText(String reviewText) {
-        mReviewText += reviewText;
+    void setReviewText(String reviewText) {
+        mReviewText = reviewText;
     }
 
     public void setRating(double rating) {
@@ -77,6 +77,43 @@ public class VoteEntry extends Entry {
         return mRating;
     }
 
+    @Override
+    int estimateSize() {
+        return OBJECT_SIZE + 24 + stringSize(mTitle) + stringSize(mReviewText) + stringSize(mAuthor);
+    }
+
+    @Override
+    public boolean isContentEqual(Entry other) {
+        if (!(other instanceof VoteEntry)) {
+            return false;
+        }
+
+        VoteEntry vote = (VoteEntry)other;
+        return mId == vote.mId && mFileId == vote.mFileId && mRating == vote.mRating &&
+            equal(mTitle, vote.mTitle) && equal(mReviewText, vote.mReviewText) && equal(mAuthor, vote.mAuthor);
+    }
+
+    @Override
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(mId);
+        out.writeInt(mFileId);
+        writeString(out, mTitle);
+        writeString(out, mReviewText);
+        out.writeDouble(mRating);
+        writeString(out, mAuthor);
+    }
+
+    static VoteEntry readFrom(DataInput in) throws IOException {
+        VoteEntry entry = new VoteEntry();
+        entry.mId = in.readInt();
+        entry.mFileId = in.readInt();
+        entry.mTitle = readString(in);
+        entry.mReviewText = readString(in);
+        entry.mRating = in.readDouble();
+        entry.mAuthor = StringPool.getInstance().intern(readString(in));
+        return entry;
+    }
+
     @NonNull
     public String toString() {
         return mTitle;
@@ -0,0 +1,384 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Parses XML from an input stream into an Idgames mResponse object.
+ */
+class XmlResponseParser implements ResponseParser {
+
+    // The XML mReader object.
+    private XMLReader mReader;
+    
+    // The mHandler for SAX responses.
+    private ResponseHandler mHandler; 
+
+    XmlResponseParser() {
+        try {
+            // Instantiate the parsers and readers. Elements are looked up by their local name,
+            // which parsers only report when they are namespace aware.
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            SAXParser parser = factory.newSAXParser();
+            mReader = parser.getXMLReader();
+        } catch (SAXException e) {
+            ApiLog.w("XmlResponseParser", "Cannot initialise SAX parser: " + e.toString());
+        } catch (ParserConfigurationException e) {
+            ApiLog.w("XmlResponseParser", "Cannot configure SAX parser: " + e.toString());
+        }
+        
+        mHandler = new ResponseHandler();
+        mReader.setContentHandler(mHandler);
+    }
+    
+    @Override
+    public void parse(InputStream input) throws IOException {
+        try {
+            mReader.parse(new InputSource(input));
+        } catch (ParseCancelledException e) {
+            // The partial response is discarded by the caller.
+        } catch (ParseCompleteException e) {
+            // All projected fields have been parsed, the rest of the input is not needed.
+        } catch (SAXException e) {
+            ApiLog.w("XmlResponseParser", "Cannot parse XML, SAXException: " + e.toString());
+        } catch (IOException e) {
+            // Reads fail when the connection is aborted by cancelling.
+            if (!mHandler.isCancelled()) {
+                throw e;
+            }
+        }
+    }
+    
+    @Override
+    public void setContainsSingleFile() {
+        mHandler.setContainsSingleFile();
+    }
+
+    @Override
+    public void setProjection(int projection) {
+        mHandler.setFields(Fields.forProjection(projection));
+    }
+
+    @Override
+    public void setEntryListener(EntryListener listener) {
+        mHandler.setEntryBatcher(listener != null ? new EntryBatcher(listener) : null);
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        mHandler.setCancellationToken(token);
+    }
+    
+    @Override
+    public Response getResponse() {
+        return mHandler.getResponse();
+    }
+    
+    /**
+     * Thrown by the response handler to stop parsing once all projected fields have been parsed.
+     */
+    private static class ParseCompleteException extends SAXException {
+        private static final long serialVersionUID = 1L;
+
+        private ParseCompleteException() {
+            super("All projected fields have been parsed.");
+        }
+    }
+
+    /**
+     * SAX mResponse mHandler for Idgames web API XML responses.
+     *
+     * Element names are mapped to integer tokens once, when an element starts. Text is collected
+     * in a single reusable buffer, and is only turned into a string or number when the element
+     * ends.
+     */
+    private static class ResponseHandler extends DefaultHandler {
+        // Parsing states.
+        private static final int STATE_UNKNOWN = -1;
+        private static final int STATE_CONTENT = 0;
+        private static final int STATE_ERROR = 1;
+        private static final int STATE_WARNING = 2;
+        private static final int STATE_FILE = 3;
+        private static final int STATE_DIRECTORY = 4;
+        private static final int STATE_VOTE = 5;
+        private static final int STATE_REVIEW = 6;
+
+        // The current parsing mState.
+        private int mState = STATE_UNKNOWN;
+        
+        // The token of the current element.
+        private int mElement = Fields.UNKNOWN;
+
+        // Text of the current element. Reused for every element.
+        private char[] mText = new char[256];
+        private int mTextLength;
+
+        // True if the text of the current element is needed.
+        private boolean mCollectText;
+        
+        // Entries and related data currently being parsed, waiting to be inserted into the
+        // mResponse object.
+        private FileEntry mFileEntry;
+        private DirectoryEntry mDirectoryEntry;
+        private VoteEntry mVoteEntry;
+        private Review mReview;
+
+        // The mResponse object being constructed.
+        private Response mResponse = null;
+        
+        // If true, indicates that the XML file contains a single Idgames file's information
+        // instead of multiple entries' information.
+        private boolean mContainsSingleFile = false;
+
+        // Token that stops parsing when cancelled, or null.
+        private CancellationToken mToken;
+
+        // The file entry fields to parse.
+        private long mFields = Fields.PROJECTION_FULL;
+
+        // The projected fields of a single file that have been parsed so far.
+        private long mFieldsParsed;
+
+        // Collects parsed entries into batches for an entry listener, or null.
+        private EntryBatcher mEntryBatcher;
+        
+        
+        @Override
+        public void startDocument() {
+            mResponse = new Response();
+        }
+        
+        Response getResponse() {
+            return mResponse;
+        }
+        
+        void setContainsSingleFile() {
+            mContainsSingleFile = true;
+        }
+
+        void setFields(long fields) {
+            mFields = fields;
+        }
+
+        void setCancellationToken(CancellationToken token) {
+            mToken = token;
+        }
+
+        void setEntryBatcher(EntryBatcher batcher) {
+            mEntryBatcher = batcher;
+        }
+
+        boolean isCancelled() {
+            return mToken != null && mToken.isCancelled();
+        }
+
+        /**
+         * Adds a completely parsed entry to the response, and to the current batch if there is
+         * an entry listener.
+         */
+        private void addEntry(Entry entry) {
+            mResponse.addEntry(entry);
+            if (mEntryBatcher != null) {
+                mEntryBatcher.add(entry);
+            }
+        }
+        
+        @Override
+        public void startElement(String namespaceURI, String localName, String qName, Attributes atts) throws SAXException {
+            if (isCancelled()) {
+                throw new ParseCancelledException();
+            }
+
+            int element = Fields.get(localName);
+            switch (element) {
+                case Fields.RESPONSE:
+                    mResponse.setVersion(Float.parseFloat(atts.getValue("version")));
+                    break;
+
+                // Messages.
+                case Fields.ERROR:
+                    mState = STATE_ERROR;
+                    break;
+                case Fields.WARNING:
+                    mState = STATE_WARNING;
+                    break;
+
+                // Content.
+                case Fields.CONTENT:
+                    if (mContainsSingleFile) {
+                        mState = STATE_FILE;
+                        mFileEntry = new FileEntry();
+                    } else {
+                        mState = STATE_CONTENT;
+                    }
+                    break;
+
+                default:
+                    startChildElement(element);
+            }
+
+            mElement = element;
+            mTextLength = 0;
+            mCollectText = element != Fields.UNKNOWN && (mState != STATE_FILE || (mFields & Fields.bit(element)) != 0);
+        }
+
+        /**
+         * Handles the start of an element whose meaning depends on the parsing state.
+         */
+        private void startChildElement(int element) {
+            // Content sub-tags.
+            if (mState == STATE_CONTENT) {
+                if (element == Fields.FILE) {
+                    mState = STATE_FILE;
+                    mFileEntry = new FileEntry();
+                } else if (element == Fields.VOTE) {
+                    mState = STATE_VOTE;
+                    mVoteEntry = new VoteEntry();
+                } else if (element == Fields.DIR) {
+                    mState = STATE_DIRECTORY;
+                    mDirectoryEntry = new DirectoryEntry();
+                }
+
+            // File. Reviews are only parsed without a projection.
+            } else if (mState == STATE_FILE && mFields == Fields.PROJECTION_FULL) {
+                if (element == Fields.REVIEW) {
+                    mState = STATE_REVIEW;
+                    mReview = new Review();
+                }
+            }
+        }
+        
+        @Override
+        public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
+            if (isCancelled()) {
+                throw new ParseCancelledException();
+            }
+
+            int element = Fields.get(localName);
+            switch (mState) {
+                // Messages.
+                case STATE_ERROR:
+                    if (element == Fields.ERROR) {
+                        mState = STATE_UNKNOWN;
+                    } else if (element == Fields.MESSAGE && mTextLength > 0) {
+                        mResponse.setErrorMessage(getText());
+                    }
+                    break;
+
+                case STATE_WARNING:
+                    if (element == Fields.WARNING) {
+                        mState = STATE_UNKNOWN;
+                    } else if (element == Fields.TYPE && mTextLength > 0) {
+                        mResponse.setWarningType(getText());
+                    }
+                    break;
+
+                // Content.
+                case STATE_CONTENT:
+                    if (element == Fields.CONTENT) {
+                        mState = STATE_UNKNOWN;
+                    }
+                    break;
+
+                // File or content file (single file) entry.
+                case STATE_FILE:
+                    if (mContainsSingleFile && element == Fields.CONTENT) {
+                        mState = STATE_UNKNOWN;
+                        addEntry(mFileEntry);
+                        mFileEntry = null;
+                    } else if (element == Fields.FILE) {
+                        mState = STATE_CONTENT;
+                        addEntry(mFileEntry);
+                        mFileEntry = null;
+                    } else if (element == mElement && mCollectText) {
+                        endFileField(element);
+                    }
+                    break;
+
+                // Vote.
+                case STATE_VOTE:
+                    if (element == Fields.VOTE) {
+                        mState = STATE_CONTENT;
+                        addEntry(mVoteEntry);
+                        mVoteEntry = null;
+                    } else if (element == mElement) {
+                        Fields.setVoteField(mVoteEntry, element, mText, mTextLength);
+                    }
+                    break;
+
+                // Directory.
+                case STATE_DIRECTORY:
+                    if (element == Fields.DIR) {
+                        mState = STATE_CONTENT;
+                        addEntry(mDirectoryEntry);
+                        mDirectoryEntry = null;
+                    } else if (element == mElement) {
+                        Fields.setDirectoryField(mDirectoryEntry, element, mText, mTextLength);
+                    }
+                    break;
+
+                // Review.
+                case STATE_REVIEW:
+                    if (element == Fields.REVIEW) {
+                        mState = STATE_FILE;
+                        mFileEntry.addReview(mReview);
+                        mReview = null;
+                    } else if (element == mElement) {
+                        Fields.setReviewField(mReview, element, mText, mTextLength);
+                    }
+                    break;
+            }
+
+            mElement = Fields.UNKNOWN;
+            mCollectText = false;
+        }
+
+        /**
+         * Stores the text of a file field in the current file entry. For a single file with a
+         * projection, parsing stops once all projected fields have been stored.
+         */
+        private void endFileField(int element) throws SAXException {
+            Fields.setFileField(mFileEntry, element, mText, mTextLength);
+
+            // Stop as soon as all projected fields of a single file have been parsed.
+            if (mContainsSingleFile && mFields != Fields.PROJECTION_FULL) {
+                mFieldsParsed |= Fields.bit(element);
+                if ((mFieldsParsed & mFields) == mFields) {
+                    addEntry(mFileEntry);
+                    mFileEntry = null;
+
+                    throw new ParseCompleteException();
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (!mCollectText) {
+                return;
+            }
+
+            if (mTextLength + length > mText.length) {
+                mText = Arrays.copyOf(mText, Math.max(mText.length * 2, mTextLength + length));
+            }
+            System.arraycopy(ch, start, mText, mTextLength, length);
+            mTextLength += length;
+        }
+
+        private String getText() {
+            return new String(mText, 0, mTextLength);
+        }
+    }
+}
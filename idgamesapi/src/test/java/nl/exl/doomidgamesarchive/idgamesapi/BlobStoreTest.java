@@ -0,0 +1,86 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stores the details of a recorded file response as blobs and reads them back.
+ */
+public class BlobStoreTest {
+
+    private File mDirectory;
+    private BlobStore mStore;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("blobs", "");
+        assertTrue(mDirectory.delete());
+        mStore = new BlobStore(mDirectory, 1024 * 1024);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void readsStoredDetails() throws IOException {
+        FileDetails details = loadDetails();
+        String key = details.storeIn(mStore);
+        assertNotNull(key);
+
+        InputStream input = mStore.open(key);
+        assertNotNull(input);
+        try {
+            assertTrue(details.isContentEqual(FileDetails.readFrom(new DataInputStream(input))));
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void storesEqualDetailsOnce() throws IOException {
+        String key = loadDetails().storeIn(mStore);
+        assertEquals(key, loadDetails().storeIn(mStore));
+        assertEquals(1, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void leavesNoTemporaryFiles() throws IOException {
+        String key = loadDetails().storeIn(mStore);
+        for (File file : mDirectory.listFiles()) {
+            assertEquals(key + ".blob", file.getName());
+        }
+    }
+
+    @Test
+    public void ignoresUnknownKeys() {
+        assertNull(mStore.open("0123456789abcdef"));
+        assertNull(mStore.open("../snapshots"));
+    }
+
+    private static FileDetails loadDetails() throws IOException {
+        FileEntry file = (FileEntry)Fixtures.parse(Fixtures.GET, Request.FORMAT_XML).getEntries().get(0);
+        FileDetails details = file.getDetails();
+        assertNotNull(details);
+        assertTrue(details.getTextFileContents().length() > 0);
+        return details;
+    }
+}
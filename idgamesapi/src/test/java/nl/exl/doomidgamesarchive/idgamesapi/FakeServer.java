@@ -0,0 +1,279 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local stand-in for the Idgames web API that serves the recorded responses. Requests are
+ * answered with the recorded response named after their action, in the format they ask for.
+ * If an ETag is set, conditional requests for it are answered with a not modified reply. If
+ * compression is enabled, responses are gzip encoded for clients that accept it. Responses can
+ * be delayed, their bodies can be sent slowly, and faults can be injected into them.
+ */
+final class FakeServer implements HttpHandler {
+
+    /**
+     * A fault that can be injected into a response.
+     */
+    enum Fault {
+
+        // The request is answered with a server error.
+        SERVER_ERROR,
+
+        // The response is sent after waiting much longer than usual.
+        SLOW_RESPONSE,
+
+        // The connection is dropped halfway through sending the response body.
+        BROKEN_BODY
+    }
+
+    // Time to wait before sending a slow response, in milliseconds.
+    private static final long SLOW_RESPONSE_DELAY = 2000;
+
+    // The host that requests are made to.
+    private static final String API_HOST = "https://www.doomworld.com";
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    // The number of requests that were received, and how many were answered as not modified.
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final AtomicInteger mNotModifiedCount = new AtomicInteger();
+
+    // The client addresses that requests were received from, one for each connection.
+    private final Set<InetSocketAddress> mClients = new HashSet<>();
+
+    // Response bodies that were gzip encoded, by their recorded response and format.
+    private final Map<String, byte[]> mCompressed = new ConcurrentHashMap<>();
+
+    // Faults to inject into the next responses, in order.
+    private final Queue<Fault> mFaults = new ConcurrentLinkedQueue<>();
+
+    // The ETag of all responses, or null to send none.
+    private volatile String mETag;
+
+    // If true, responses are gzip encoded if the client accepts that.
+    private volatile boolean mCompress;
+
+    // Time to wait before responding to each request, in milliseconds.
+    private volatile long mDelay;
+
+    // Time to wait between sending each 1 KiB of a response body, in milliseconds.
+    private volatile long mDripDelay;
+
+
+    FakeServer() throws IOException {
+        // Without this, replies on kept alive connections stall on delayed acknowledgements.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/", this);
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+    }
+
+    void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * @param delay Time to wait before responding to each request, in milliseconds.
+     */
+    void setDelay(long delay) {
+        mDelay = delay;
+    }
+
+    /**
+     * @param dripDelay Time to wait between sending each 1 KiB of a response body, in milliseconds.
+     */
+    void setDripDelay(long dripDelay) {
+        mDripDelay = dripDelay;
+    }
+
+    /**
+     * @param eTag The ETag to send with every response, or null to send none.
+     */
+    void setETag(String eTag) {
+        mETag = eTag;
+    }
+
+    /**
+     * @param compress True to gzip encode responses for clients that accept it.
+     */
+    void setCompress(boolean compress) {
+        mCompress = compress;
+    }
+
+    /**
+     * Injects a fault into the next responses.
+     *
+     * @param fault The fault to inject.
+     * @param count The number of responses to inject it into.
+     */
+    void injectFault(Fault fault, int count) {
+        for (int i = 0; i < count; i++) {
+            mFaults.add(fault);
+        }
+    }
+
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * @return The number of connections that requests were received over.
+     */
+    int getConnectionCount() {
+        synchronized (mClients) {
+            return mClients.size();
+        }
+    }
+
+    int getNotModifiedCount() {
+        return mNotModifiedCount.get();
+    }
+
+    /**
+     * @return The URL that a request is made to on this server.
+     */
+    String getURL(Request request) {
+        return getBaseURL() + request.getURL().substring(API_HOST.length());
+    }
+
+    private String getBaseURL() {
+        return "http://" + mServer.getAddress().getHostString() + ":" + mServer.getAddress().getPort();
+    }
+
+    /**
+     * Returns a transport that makes the calls of another transport to this server instead of the web API.
+     */
+    Transport redirect(final Transport transport) {
+        return new Transport() {
+            @Override
+            public Connection open(String url, Map<String, String> headers) throws IOException {
+                return transport.open(getBaseURL() + url.substring(API_HOST.length()), headers);
+            }
+        };
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        mRequestCount.incrementAndGet();
+        synchronized (mClients) {
+            mClients.add(exchange.getRemoteAddress());
+        }
+
+        Fault fault = mFaults.poll();
+        try {
+            if (mDelay > 0) {
+                Thread.sleep(mDelay);
+            }
+            if (fault == Fault.SLOW_RESPONSE) {
+                Thread.sleep(SLOW_RESPONSE_DELAY);
+            }
+            if (fault == Fault.SERVER_ERROR) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            String eTag = mETag;
+            if (eTag != null) {
+                exchange.getResponseHeaders().set("ETag", eTag);
+                if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    mNotModifiedCount.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+
+            String query = exchange.getRequestURI().getRawQuery();
+            String action = getParameter(query, "action");
+            int format = "json".equals(getParameter(query, "out")) ? Request.FORMAT_JSON : Request.FORMAT_XML;
+            byte[] body = Fixtures.load(action, format);
+
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (mCompress && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                String key = action + "." + format;
+                byte[] compressed = mCompressed.get(key);
+                if (compressed == null) {
+                    compressed = gzip(body);
+                    mCompressed.put(key, compressed);
+                }
+                body = compressed;
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", format == Request.FORMAT_JSON ? "application/json" : "text/xml");
+
+            // Failing the exchange drops the connection without ending the chunked body cleanly.
+            if (fault == Fault.BROKEN_BODY) {
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body, 0, body.length / 2);
+                out.flush();
+                throw new IOException("Injected broken body");
+            }
+
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            if (mDripDelay > 0) {
+                for (int offset = 0; offset < body.length; offset += 1024) {
+                    out.write(body, offset, Math.min(1024, body.length - offset));
+                    out.flush();
+                    Thread.sleep(mDripDelay);
+                }
+            } else {
+                out.write(body);
+            }
+            out.close();
+
+        } catch (InterruptedException e) {
+            if (exchange.getResponseCode() < 0) {
+                exchange.sendResponseHeaders(503, -1);
+            }
+
+        } finally {
+            if (fault != Fault.BROKEN_BODY) {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * @return Data encoded the way this server gzip encodes responses.
+     */
+    static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(data);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static String getParameter(String query, String name) {
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return parameter.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+}
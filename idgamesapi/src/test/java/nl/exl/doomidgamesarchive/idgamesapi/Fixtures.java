@@ -0,0 +1,92 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Recorded web API responses that tests and benchmarks run against. Every response is recorded
+ * in both formats, with the same entries. The app's tests parse these responses as well.
+ */
+public final class Fixtures {
+
+    // Names of the recorded list responses.
+    public static final String LATESTFILES = "latestfiles";
+    public static final String LATESTVOTES = "latestvotes";
+    public static final String GETCONTENTS = "getcontents";
+    public static final String SEARCH = "search";
+
+    // Name of the recorded single file response.
+    static final String GET = "get";
+
+    // Name of the recorded error response.
+    static final String ERROR = "error";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns the bytes of a recorded response.
+     *
+     * @param name The name of the response.
+     * @param format The format of the response, one of the Request.FORMAT_* constants.
+     *
+     * @return The response body.
+     */
+    static byte[] load(String name, int format) throws IOException {
+        String path = "/fixtures/" + name + (format == Request.FORMAT_JSON ? ".json" : ".xml");
+        InputStream in = Fixtures.class.getResourceAsStream(path);
+        if (in == null) {
+            throw new FileNotFoundException("No fixture " + path);
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Creates a parser for a response format.
+     *
+     * @param format One of the Request.FORMAT_* constants.
+     * @param name The name of the response that will be parsed, to configure the parser for it.
+     */
+    static ResponseParser createParser(int format, String name) {
+        ResponseParser parser = format == Request.FORMAT_JSON ? new JsonResponseParser() : new XmlResponseParser();
+        if (GET.equals(name)) {
+            parser.setContainsSingleFile();
+        }
+        return parser;
+    }
+
+    /**
+     * Parses a recorded response.
+     *
+     * @param name The name of the response.
+     * @param format The format of the response, one of the Request.FORMAT_* constants.
+     *
+     * @return The parsed response.
+     */
+    public static Response parse(String name, int format) throws IOException {
+        return parse(name, format, load(name, format));
+    }
+
+    /**
+     * Parses the bytes of a recorded response.
+     */
+    static Response parse(String name, int format, byte[] body) throws IOException {
+        ResponseParser parser = createParser(format, name);
+        parser.parse(new ByteArrayInputStream(body));
+        return parser.getResponse();
+    }
+}
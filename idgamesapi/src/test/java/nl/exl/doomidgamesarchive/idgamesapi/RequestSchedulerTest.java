@@ -0,0 +1,190 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs web API calls to a local server through the scheduler.
+ */
+public class RequestSchedulerTest {
+
+    private FakeServer mServer;
+
+    // Names of the jobs that completed, in the order in which they did.
+    private final List<String> mCompleted = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new FakeServer();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void runsQueuedJobsByPriority() throws InterruptedException {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        Object owner = new Object();
+
+        // Queue all jobs while the only worker is busy.
+        CountDownLatch release = block(scheduler, owner);
+        CountDownLatch done = new CountDownLatch(5);
+        scheduler.execute(call("prefetch 1", done), RequestScheduler.PRIORITY_PREFETCH, owner);
+        scheduler.execute(call("visible", done), RequestScheduler.PRIORITY_VISIBLE, owner);
+        scheduler.execute(call("foreground 1", done), RequestScheduler.PRIORITY_FOREGROUND, owner);
+        scheduler.execute(call("prefetch 2", done), RequestScheduler.PRIORITY_PREFETCH, owner);
+        scheduler.execute(call("foreground 2", done), RequestScheduler.PRIORITY_FOREGROUND, owner);
+        release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("foreground 1", "foreground 2", "visible", "prefetch 1", "prefetch 2"), mCompleted);
+    }
+
+    @Test
+    public void foregroundCallsDoNotWaitForPrefetches() throws InterruptedException {
+        final long delay = 300;
+        mServer.setDelay(delay);
+        RequestScheduler scheduler = new RequestScheduler(4);
+        Object owner = new Object();
+
+        // Keep track of how many prefetch calls run at the same time.
+        final AtomicInteger prefetchRunning = new AtomicInteger();
+        final AtomicInteger prefetchRunningMax = new AtomicInteger();
+        CountDownLatch prefetchesDone = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            final Runnable call = call("prefetch " + i, prefetchesDone);
+            scheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    int running = prefetchRunning.incrementAndGet();
+                    synchronized (prefetchRunningMax) {
+                        prefetchRunningMax.set(Math.max(prefetchRunningMax.get(), running));
+                    }
+                    call.run();
+                    prefetchRunning.decrementAndGet();
+                }
+            }, RequestScheduler.PRIORITY_PREFETCH, owner);
+        }
+        Thread.sleep(delay / 4);
+
+        // The worker that prefetches cannot use is free to make the call right away.
+        CountDownLatch foregroundDone = new CountDownLatch(1);
+        long start = System.nanoTime();
+        scheduler.execute(call("foreground", foregroundDone), RequestScheduler.PRIORITY_FOREGROUND, owner);
+        assertTrue(foregroundDone.await(10, TimeUnit.SECONDS));
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(prefetchesDone.await(10, TimeUnit.SECONDS));
+        assertTrue("Foreground call took " + latency + " ms", latency < delay * 3 / 2);
+        assertEquals(3, prefetchRunningMax.get());
+    }
+
+    @Test
+    public void cancelAllDropsQueuedJobsOfOwner() throws InterruptedException {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        Object owner = new Object();
+        Object otherOwner = new Object();
+
+        CountDownLatch release = block(scheduler, otherOwner);
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.execute(call("cancelled 1", null), RequestScheduler.PRIORITY_FOREGROUND, owner);
+        scheduler.execute(call("kept", done), RequestScheduler.PRIORITY_VISIBLE, otherOwner);
+        scheduler.execute(call("cancelled 2", null), RequestScheduler.PRIORITY_PREFETCH, owner);
+
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        scheduler.register(owner, new RequestScheduler.Cancellable() {
+            @Override
+            public void cancel() {
+                cancelled.set(true);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return false;
+            }
+        });
+
+        scheduler.cancelAll(owner);
+        release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(cancelled.get());
+        assertEquals(Collections.singletonList("kept"), mCompleted);
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    /**
+     * Occupies a worker of a scheduler until the returned latch is released.
+     */
+    private static CountDownLatch block(RequestScheduler scheduler, Object owner) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, RequestScheduler.PRIORITY_FOREGROUND, owner);
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return release;
+    }
+
+    /**
+     * Returns a job that downloads a response from the server, and records that it completed.
+     *
+     * @param name The name to record the job as.
+     * @param done Counted down once the job completes, or null.
+     */
+    private Runnable call(final String name, final CountDownLatch done) {
+        final Request request = new Request();
+        request.setAction(Request.GET_LATESTFILES);
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Transport.Connection connection = new BasicTransport(5000, 5000).open(mServer.getURL(request), Collections.<String, String>emptyMap());
+                    try {
+                        InputStream body = connection.getBody();
+                        byte[] buffer = new byte[8192];
+                        while (body.read(buffer) >= 0) {
+                            // Download the whole response.
+                        }
+                    } finally {
+                        connection.close();
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+
+                mCompleted.add(name);
+                if (done != null) {
+                    done.countDown();
+                }
+            }
+        };
+    }
+}
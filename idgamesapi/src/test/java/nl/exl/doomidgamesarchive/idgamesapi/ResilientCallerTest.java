@@ -0,0 +1,184 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads responses from a local server that injects faults into them, and checks that they are
+ * retried and hedged.
+ */
+public class ResilientCallerTest {
+
+    private FakeServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        ResponseCache.getInstance().clear();
+        mServer = new FakeServer();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        ResponseCache.getInstance().clear();
+    }
+
+    @Test
+    public void retriesServerErrors() {
+        ResponseLoader loader = createLoader(false);
+        mServer.injectFault(FakeServer.Fault.SERVER_ERROR, 2);
+        RequestMetrics.Metrics before = getMetrics(Request.SEARCH);
+
+        StreamingListener listener = new StreamingListener();
+        Response response = loader.load(createSearch(), new CancellationToken(), listener);
+        assertNull(response.getErrorMessage());
+        assertEquals(100, response.getEntryCount());
+        assertStreamed(response, listener);
+
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(2, getMetrics(Request.SEARCH).getRetries() - before.getRetries());
+    }
+
+    @Test
+    public void streamsRetriedAttempts() {
+        // Each attempt of a hedging caller is aborted through a token of its own.
+        ResponseLoader loader = createLoader(true);
+        warmUp(loader);
+        mServer.setDelay(0);
+        mServer.injectFault(FakeServer.Fault.BROKEN_BODY, 1);
+        int requests = mServer.getRequestCount();
+
+        // The entries of the broken attempt are replaced by those of the retried one.
+        StreamingListener listener = new StreamingListener();
+        Response response = loader.load(createSearch(), new CancellationToken(), listener);
+        assertNull(response.getErrorMessage());
+        assertEquals(100, response.getEntryCount());
+        assertTrue(listener.mBatches > 1);
+        assertTrue(listener.mReplaced);
+        assertStreamed(response, listener);
+
+        assertEquals(2, mServer.getRequestCount() - requests);
+    }
+
+    @Test
+    public void hedgesSlowResponses() {
+        ResponseLoader loader = createLoader(true);
+        warmUp(loader);
+        mServer.injectFault(FakeServer.Fault.SLOW_RESPONSE, 1);
+        RequestMetrics.Metrics before = getMetrics(Request.SEARCH);
+        int requests = mServer.getRequestCount();
+
+        long start = System.nanoTime();
+        StreamingListener listener = new StreamingListener();
+        Response response = loader.load(createSearch(), new CancellationToken(), listener);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(100, response.getEntryCount());
+        assertStreamed(response, listener);
+        assertTrue("Loading took " + elapsed + " ms", elapsed < 1000);
+
+        assertEquals(2, mServer.getRequestCount() - requests);
+        RequestMetrics.Metrics after = getMetrics(Request.SEARCH);
+        assertEquals(1, after.getHedges() - before.getHedges());
+        assertEquals(1, after.getHedgeWins() - before.getHedgeWins());
+    }
+
+    @Test
+    public void doesNotHedgeSlowBodies() {
+        ResponseLoader loader = createLoader(true);
+        warmUp(loader);
+        RequestMetrics.Metrics before = getMetrics(Request.SEARCH);
+        int requests = mServer.getRequestCount();
+
+        // The response arrives quickly, but its body takes much longer than usual.
+        mServer.setDelay(0);
+        mServer.setDripDelay(10);
+        StreamingListener listener = new StreamingListener();
+        Response response = loader.load(createSearch(), new CancellationToken(), listener);
+
+        assertEquals(100, response.getEntryCount());
+        assertStreamed(response, listener);
+        assertEquals(1, mServer.getRequestCount() - requests);
+        assertEquals(0, getMetrics(Request.SEARCH).getHedges() - before.getHedges());
+    }
+
+    private ResponseLoader createLoader(boolean hedge) {
+        return new ResponseLoader(mServer.redirect(new PooledTransport(5000, 5000, 4)), new ResilientCaller(hedge));
+    }
+
+    /**
+     * Loads enough responses for a loader to start hedging search requests, each taking a little
+     * while to arrive.
+     */
+    private void warmUp(ResponseLoader loader) {
+        mServer.setDelay(50);
+        for (int i = 0; i < 16; i++) {
+            ResponseCache.getInstance().clear();
+            assertEquals(100, loader.load(createSearch(), new CancellationToken(), null).getEntryCount());
+        }
+        ResponseCache.getInstance().clear();
+    }
+
+    private static Request createSearch() {
+        Request request = new Request();
+        request.setAction(Request.SEARCH);
+        request.setQuery("lab");
+        return request;
+    }
+
+    private static RequestMetrics.Metrics getMetrics(int action) {
+        RequestMetrics.Metrics metrics = RequestMetrics.getInstance().get(action);
+        return metrics != null ? metrics : new RequestMetrics.Metrics();
+    }
+
+    /**
+     * Asserts that the files a listener assembled are those at the start of a response. The
+     * last entries are not streamed, but the broken body of a failed attempt only streams the
+     * first half of them.
+     */
+    private static void assertStreamed(Response response, StreamingListener listener) {
+        List<Entry> streamed = listener.mEntries;
+        assertTrue("Streamed " + streamed.size() + " entries", streamed.size() > response.getEntryCount() / 2);
+        for (int i = 0; i < streamed.size(); i++) {
+            assertEquals("Entry " + i, ((FileEntry)response.getEntries().get(i)).getId(), ((FileEntry)streamed.get(i)).getId());
+        }
+    }
+
+    /**
+     * Assembles the entries that a loader streams, the way a list that displays them would.
+     */
+    private static class StreamingListener implements ResponseLoader.Listener {
+        private final List<Entry> mEntries = new ArrayList<>();
+        private int mBatches;
+
+        // True if a batch replaced entries that were streamed before.
+        private boolean mReplaced;
+
+        @Override
+        public void onStaleResponse(Response response) {
+        }
+
+        @Override
+        public synchronized void onEntriesParsed(int offset, List<Entry> entries) {
+            mBatches++;
+            if (offset < mEntries.size()) {
+                mReplaced = true;
+                mEntries.subList(offset, mEntries.size()).clear();
+            }
+            mEntries.addAll(entries);
+        }
+
+        @Override
+        public void onRevalidationFailed(String errorMessage) {
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Stores recorded responses in a response cache.
+ */
+public class ResponseCacheTest {
+
+    @Test
+    public void compactsCopiesOfLists() throws IOException {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        Request request = new Request();
+        request.setAction(Request.GET_LATESTFILES);
+
+        // Other threads may be reading the response already, so it must not be changed.
+        Response response = Fixtures.parse(Fixtures.LATESTFILES, Request.FORMAT_XML);
+        List<Entry> entries = response.getEntries();
+        Response stored = cache.put(request, response, Long.MAX_VALUE, null);
+
+        assertNotSame(response, stored);
+        assertSame(entries, response.getEntries());
+        assertSame(stored, cache.get(request));
+        assertEquals(response.getEntryCount(), stored.getEntryCount());
+
+        // Storing a compacted response again does not copy it.
+        assertSame(stored, cache.put(request, stored, Long.MAX_VALUE, null));
+    }
+
+    @Test
+    public void keepsSingleFilesWhole() throws IOException {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        Request request = new Request();
+        request.setAction(Request.GET_FILE);
+        request.setFileId(1);
+
+        Response response = Fixtures.parse(Fixtures.GET, Request.FORMAT_XML);
+        assertSame(response, cache.put(request, response, Long.MAX_VALUE, null));
+        assertSame(response, cache.get(request));
+    }
+}
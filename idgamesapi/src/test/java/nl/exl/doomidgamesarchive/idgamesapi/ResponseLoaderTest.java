@@ -0,0 +1,231 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads responses from a local server that stands in for the web API.
+ */
+public class ResponseLoaderTest {
+
+    private FakeServer mServer;
+    private ResponseLoader mLoader;
+
+    @Before
+    public void setUp() throws IOException {
+        ResponseCache.getInstance().clear();
+        mServer = new FakeServer();
+        mLoader = new ResponseLoader(mServer.redirect(new PooledTransport(5000, 5000, 4)), new ResilientCaller(false));
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        ResponseCache.getInstance().clear();
+    }
+
+    @Test
+    public void loadsResponses() throws IOException {
+        for (int format : new int[] {Request.FORMAT_XML, Request.FORMAT_JSON}) {
+            ResponseCache.getInstance().clear();
+            Request request = createRequest(Request.GET_CONTENTS, 60);
+            request.setFormat(format);
+
+            Response response = mLoader.load(request, new CancellationToken(), null);
+            assertNull(response.getErrorMessage());
+            assertEquals(92, response.getEntryCount());
+
+            // A fresh response is not loaded again.
+            assertSame(response, mLoader.load(request, new CancellationToken(), null));
+        }
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void revalidatesExpiredResponses() throws IOException {
+        mServer.setETag("\"v1\"");
+        Request request = createRequest(Request.GET_LATESTFILES, 0);
+        RequestMetrics.Metrics before = getMetrics(Request.GET_LATESTFILES);
+
+        Response response = mLoader.load(request, new CancellationToken(), null);
+        assertEquals(30, response.getEntryCount());
+
+        // The expired response is displayed while the web API confirms that it is still current.
+        RecordingListener listener = new RecordingListener();
+        Response revalidated = mLoader.load(request, new CancellationToken(), listener);
+        assertNotNull(listener.mStale);
+        assertEquals(0, listener.mBatches);
+        assertEquals(30, revalidated.getEntryCount());
+        assertEntriesEqual(response.getEntries(), revalidated.getEntries());
+
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(1, mServer.getNotModifiedCount());
+
+        RequestMetrics.Metrics after = getMetrics(Request.GET_LATESTFILES);
+        assertEquals(2, after.getCalls() - before.getCalls());
+        assertEquals(1, after.getNotModified() - before.getNotModified());
+        assertEquals(Fixtures.load(Fixtures.LATESTFILES, Request.FORMAT_XML).length, after.getBytesSaved() - before.getBytesSaved());
+    }
+
+    @Test
+    public void reportsFailedRevalidations() {
+        mServer.setETag("\"v1\"");
+        Request request = createRequest(Request.GET_LATESTFILES, 0);
+        Response response = mLoader.load(request, new CancellationToken(), null);
+
+        // The stale response is still returned, but the listener is told that it is not fresh.
+        mServer.injectFault(FakeServer.Fault.SERVER_ERROR, 3);
+        RecordingListener listener = new RecordingListener();
+        Response stale = mLoader.load(request, new CancellationToken(), listener);
+        assertSame(listener.mStale, stale);
+        assertNotNull(listener.mRevalidationError);
+        assertNull(stale.getErrorMessage());
+        assertEquals(response.getEntryCount(), stale.getEntryCount());
+        assertNull(ResponseCache.getInstance().get(request));
+    }
+
+    @Test
+    public void downloadsModifiedResponses() throws IOException {
+        mServer.setETag("\"v1\"");
+        Request request = createRequest(Request.GET_LATESTVOTES, 0);
+        mLoader.load(request, new CancellationToken(), null);
+
+        mServer.setETag("\"v2\"");
+        Response response = mLoader.load(request, new CancellationToken(), null);
+        assertEquals(30, response.getEntryCount());
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(0, mServer.getNotModifiedCount());
+
+        // The new validators are used for the next revalidation.
+        mLoader.load(request, new CancellationToken(), null);
+        assertEquals(1, mServer.getNotModifiedCount());
+    }
+
+    @Test
+    public void cancelsSlowDownloads() throws Exception {
+        // The whole response would take over 2.5 seconds to arrive.
+        mServer.setDripDelay(50);
+        Request request = createRequest(Request.SEARCH, 60);
+        request.setQuery("lab");
+
+        final CountDownLatch parsing = new CountDownLatch(1);
+        LoadThread load = new LoadThread(request, new RecordingListener() {
+            @Override
+            public void onEntriesParsed(int offset, List<Entry> entries) {
+                parsing.countDown();
+            }
+        });
+        load.start();
+        assertTrue(parsing.await(5, TimeUnit.SECONDS));
+
+        assertCancelsWithin(load, 500);
+        assertNull(ResponseCache.getInstance().getStale(request));
+    }
+
+    @Test
+    public void cancelsWhileWaitingForResponse() throws Exception {
+        mServer.setDelay(5000);
+        Request request = createRequest(Request.GET_LATESTFILES, 60);
+
+        LoadThread load = new LoadThread(request, null);
+        load.start();
+        while (mServer.getRequestCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        assertCancelsWithin(load, 500);
+        assertNull(ResponseCache.getInstance().getStale(request));
+    }
+
+    /**
+     * Cancels a load, and asserts that it has stopped within a time limit.
+     */
+    private static void assertCancelsWithin(LoadThread load, long millis) throws InterruptedException {
+        long start = System.nanoTime();
+        load.mToken.cancel();
+        load.join(5000);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        assertTrue("Load is still running", !load.isAlive());
+        assertTrue("Cancelling took " + elapsed + " ms", elapsed < millis);
+        assertTrue(load.mDone);
+        assertNull(load.mResponse);
+    }
+
+    private static Request createRequest(int action, long maxAge) {
+        Request request = new Request();
+        request.setAction(action);
+        request.setMaxAge(maxAge);
+        return request;
+    }
+
+    private static RequestMetrics.Metrics getMetrics(int action) {
+        RequestMetrics.Metrics metrics = RequestMetrics.getInstance().get(action);
+        return metrics != null ? metrics : new RequestMetrics.Metrics();
+    }
+
+    private static void assertEntriesEqual(List<Entry> expected, List<Entry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue("Entry " + i, expected.get(i).isContentEqual(actual.get(i)));
+        }
+    }
+
+    /**
+     * Loads the response to a request on its own thread.
+     */
+    private class LoadThread extends Thread {
+        private final Request mRequest;
+        private final ResponseLoader.Listener mListener;
+        private final CancellationToken mToken = new CancellationToken();
+        private volatile Response mResponse;
+        private volatile boolean mDone;
+
+        private LoadThread(Request request, ResponseLoader.Listener listener) {
+            mRequest = request;
+            mListener = listener;
+        }
+
+        @Override
+        public void run() {
+            mResponse = mLoader.load(mRequest, mToken, mListener);
+            mDone = true;
+        }
+    }
+
+    /**
+     * Records the progress that a loader reports.
+     */
+    private static class RecordingListener implements ResponseLoader.Listener {
+        private Response mStale;
+        private int mBatches;
+        private String mRevalidationError;
+
+        @Override
+        public void onStaleResponse(Response response) {
+            mStale = response;
+        }
+
+        @Override
+        public void onEntriesParsed(int offset, List<Entry> entries) {
+            mBatches++;
+        }
+
+        @Override
+        public void onRevalidationFailed(String errorMessage) {
+            mRevalidationError = errorMessage;
+        }
+    }
+}
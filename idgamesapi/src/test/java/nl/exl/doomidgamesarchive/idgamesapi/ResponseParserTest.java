@@ -0,0 +1,142 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses the recorded responses with both response parsers.
+ */
+public class ResponseParserTest {
+
+    private static final int[] FORMATS = {Request.FORMAT_XML, Request.FORMAT_JSON};
+
+    @Test
+    public void parsesFiles() throws IOException {
+        for (int format : FORMATS) {
+            Response response = Fixtures.parse(Fixtures.LATESTFILES, format);
+            assertNull(response.getErrorMessage());
+            assertEquals(3.0f, response.getVersion(), 0.0f);
+            assertEquals(30, response.getEntryCount());
+
+            FileEntry file = (FileEntry)response.getEntries().get(0);
+            assertEquals(19000, file.getId());
+            assertEquals("Ancient Tower", file.getTitle());
+            assertEquals("levels/doom2/d-f/", file.getFilePath());
+            assertEquals("ancientt.zip", file.getFileName());
+            assertEquals(10543200, file.getFileSize());
+            assertEquals("2012-09-14", file.getDate());
+            assertEquals("Nadia Petrova", file.getAuthor());
+            assertEquals("nadia@example.com", file.getEmail());
+            assertEquals(4.6744, file.getRating(), 0.0);
+            assertEquals(98, file.getVoteCount());
+            assertNull(file.getDetails());
+        }
+    }
+
+    @Test
+    public void parsesDirectoriesAndFiles() throws IOException {
+        for (int format : FORMATS) {
+            List<Entry> entries = Fixtures.parse(Fixtures.GETCONTENTS, format).getEntries();
+            assertEquals(92, entries.size());
+
+            DirectoryEntry directory = (DirectoryEntry)entries.get(0);
+            assertEquals(500, directory.getId());
+            assertEquals("levels/doom2/0-9/", directory.getName());
+
+            FileEntry file = (FileEntry)entries.get(12);
+            assertEquals(3000, file.getId());
+            assertEquals("Hollow Lab", file.getTitle());
+        }
+    }
+
+    @Test
+    public void parsesVotes() throws IOException {
+        for (int format : FORMATS) {
+            List<Entry> entries = Fixtures.parse(Fixtures.LATESTVOTES, format).getEntries();
+            assertEquals(30, entries.size());
+
+            VoteEntry vote = (VoteEntry)entries.get(0);
+            assertEquals(90000, vote.getId());
+            assertEquals(1427, vote.getFileId());
+            assertEquals("Broken Gate", vote.getTitle());
+            assertEquals("Nadia Petrova", vote.getAuthor());
+            assertEquals(5.0, vote.getRating(), 0.0);
+            assertEquals("Not my thing, but well made & fun.", vote.getReviewText());
+        }
+    }
+
+    @Test
+    public void parsesSingleFileWithDetails() throws IOException {
+        for (int format : FORMATS) {
+            Response response = Fixtures.parse(Fixtures.GET, format);
+            assertEquals(1, response.getEntryCount());
+
+            FileEntry file = (FileEntry)response.getEntries().get(0);
+            assertEquals(15156, file.getId());
+            assertEquals("Infernal Cavern & Tech", file.getTitle());
+            assertEquals("Björn Sandvik", file.getAuthor());
+            assertEquals(63, file.getVoteCount());
+
+            FileDetails details = file.getDetails();
+            assertNotNull(details);
+            assertEquals("Doom Builder 2, SLADE 3, ZDBSP", details.getEditorsUsed());
+            assertTrue(details.getTextFileContents().contains("\nTitle                   : Infernal Cavern & Tech\n"));
+            assertTrue(details.getTextFileContents().endsWith("Ancient Keep. Lots of fighting in tight corridors & open areas."));
+
+            List<Review> reviews = details.getReviews();
+            assertEquals(3, reviews.size());
+            assertEquals("Great detail & flow, the last map is brutal.", reviews.get(0).getText());
+            assertEquals(5.0f, reviews.get(0).getRating(), 0.0f);
+            assertEquals("Too many <chaingunners> for my taste.", reviews.get(2).getText());
+            assertEquals("Mr. Freeze", reviews.get(2).getUsername());
+        }
+    }
+
+    @Test
+    public void stopsSingleFileAtProjection() throws IOException {
+        for (int format : FORMATS) {
+            ResponseParser parser = Fixtures.createParser(format, Fixtures.GET);
+            parser.setProjection(Request.PROJECTION_TITLE_ONLY);
+            parser.parse(new ByteArrayInputStream(Fixtures.load(Fixtures.GET, format)));
+
+            FileEntry file = (FileEntry)parser.getResponse().getEntries().get(0);
+            assertEquals(15156, file.getId());
+            assertEquals("Infernal Cavern & Tech", file.getTitle());
+            assertEquals("infernal.zip", file.getFileName());
+            assertEquals("", file.getDescription());
+            assertNull(file.getDetails());
+        }
+    }
+
+    @Test
+    public void parsesErrors() throws IOException {
+        for (int format : FORMATS) {
+            Response response = Fixtures.parse(Fixtures.ERROR, format);
+            assertEquals("The file id is not valid.", response.getErrorMessage());
+            assertEquals(0, response.getEntryCount());
+        }
+    }
+
+    @Test
+    public void parsesFormatsIntoEqualEntries() throws IOException {
+        String[] names = {Fixtures.LATESTFILES, Fixtures.LATESTVOTES, Fixtures.GETCONTENTS, Fixtures.SEARCH, Fixtures.GET};
+        for (String name : names) {
+            List<Entry> xml = Fixtures.parse(name, Request.FORMAT_XML).getEntries();
+            List<Entry> json = Fixtures.parse(name, Request.FORMAT_JSON).getEntries();
+
+            assertTrue(name, xml.size() > 0);
+            assertEquals(name, xml.size(), json.size());
+            for (int i = 0; i < xml.size(); i++) {
+                assertTrue(name + " entry " + i, xml.get(i).isContentEqual(json.get(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stores recorded responses as snapshots and restores them.
+ */
+public class SnapshotStoreTest {
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("snapshots", "");
+        assertTrue(mDirectory.delete());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void restoresStoredResponses() throws IOException {
+        for (boolean compress : new boolean[] {false, true}) {
+            SnapshotStore store = new SnapshotStore(mDirectory, 1024 * 1024, compress);
+            Response response = Fixtures.parse(Fixtures.GETCONTENTS, Request.FORMAT_XML);
+            Request request = createRequest(Request.GET_CONTENTS);
+            long expires = System.currentTimeMillis() + 60000;
+            store.put(request, response, expires);
+
+            SnapshotStore.Snapshot snapshot = store.get(request);
+            assertNotNull(snapshot);
+            assertEquals(expires, snapshot.getExpires());
+            assertFalse(snapshot.isExpired());
+            assertEntriesEqual(response.getEntries(), snapshot.getResponse().getEntries());
+        }
+    }
+
+    @Test
+    public void leavesNoTemporaryFiles() throws IOException {
+        SnapshotStore store = new SnapshotStore(mDirectory, 1024 * 1024, true);
+        store.put(createRequest(Request.SEARCH), Fixtures.parse(Fixtures.SEARCH, Request.FORMAT_JSON), System.currentTimeMillis());
+        store.put(createRequest(Request.SEARCH), Fixtures.parse(Fixtures.SEARCH, Request.FORMAT_JSON), System.currentTimeMillis());
+
+        String[] names = mDirectory.list();
+        assertNotNull(names);
+        assertEquals(1, names.length);
+        assertTrue(names[0].endsWith(".snapshot"));
+    }
+
+    @Test
+    public void refreshesExpiryInPlace() throws IOException {
+        SnapshotStore store = new SnapshotStore(mDirectory, 1024 * 1024, true);
+        Request request = createRequest(Request.GET_LATESTFILES);
+        store.put(request, Fixtures.parse(Fixtures.LATESTFILES, Request.FORMAT_XML), 1000);
+        assertTrue(store.get(request).isExpired());
+
+        long expires = System.currentTimeMillis() + 60000;
+        store.refresh(request, expires);
+
+        SnapshotStore.Snapshot snapshot = store.get(request);
+        assertEquals(expires, snapshot.getExpires());
+        assertEquals(30, snapshot.getResponse().getEntryCount());
+    }
+
+    @Test
+    public void discardsCorruptSnapshots() throws IOException {
+        SnapshotStore store = new SnapshotStore(mDirectory, 1024 * 1024, false);
+        Request request = createRequest(Request.GET_LATESTVOTES);
+        store.put(request, Fixtures.parse(Fixtures.LATESTVOTES, Request.FORMAT_XML), System.currentTimeMillis());
+
+        File[] files = mDirectory.listFiles();
+        assertNotNull(files);
+        RandomAccessFile file = new RandomAccessFile(files[0], "rw");
+        file.setLength(file.length() / 2);
+        file.close();
+
+        assertNull(store.get(request));
+        assertFalse(files[0].exists());
+    }
+
+    private static Request createRequest(int action) {
+        Request request = new Request();
+        request.setAction(action);
+        request.setQuery("lab");
+        return request;
+    }
+
+    private static void assertEntriesEqual(List<Entry> expected, List<Entry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue("Entry " + i, expected.get(i).isContentEqual(actual.get(i)));
+        }
+    }
+}
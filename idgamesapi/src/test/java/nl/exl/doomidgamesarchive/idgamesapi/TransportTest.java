@@ -0,0 +1,118 @@
+package nl.exl.doomidgamesarchive.idgamesapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Makes calls with each transport to a local server that stands in for the web API.
+ */
+public class TransportTest {
+
+    private FakeServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        ResponseCache.getInstance().clear();
+        mServer = new FakeServer();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        ResponseCache.getInstance().clear();
+    }
+
+    @Test
+    public void countsUncompressedBodies() throws IOException {
+        mServer.setCompress(true);
+        byte[] expected = Fixtures.load(Fixtures.SEARCH, Request.FORMAT_XML);
+
+        // The basic transport does not accept compressed responses.
+        Transport.Connection connection = open(new BasicTransport(5000, 5000), Request.SEARCH);
+        assertArrayEquals(expected, read(connection));
+        assertEquals(expected.length, connection.getBytesReceived());
+    }
+
+    @Test
+    public void countsCompressedBodiesBeforeDecoding() throws IOException {
+        mServer.setCompress(true);
+        byte[] expected = Fixtures.load(Fixtures.SEARCH, Request.FORMAT_XML);
+
+        Transport.Connection connection = open(new PooledTransport(5000, 5000, 4), Request.SEARCH);
+        assertArrayEquals(expected, read(connection));
+        assertEquals(FakeServer.gzip(expected).length, connection.getBytesReceived());
+        assertTrue(connection.getBytesReceived() < expected.length / 2);
+    }
+
+    @Test
+    public void recordsCompressedBytesReceived() throws IOException {
+        mServer.setCompress(true);
+        ResponseLoader loader = new ResponseLoader(mServer.redirect(new PooledTransport(5000, 5000, 4)), new ResilientCaller(false));
+        Request request = new Request();
+        request.setAction(Request.GET_CONTENTS);
+
+        RequestMetrics.Metrics before = RequestMetrics.getInstance().getTotal();
+        assertEquals(92, loader.load(request, new CancellationToken(), null).getEntryCount());
+        RequestMetrics.Metrics after = RequestMetrics.getInstance().getTotal();
+
+        byte[] body = Fixtures.load(Fixtures.GETCONTENTS, Request.FORMAT_XML);
+        assertEquals(FakeServer.gzip(body).length, after.getBytesReceived() - before.getBytesReceived());
+    }
+
+    @Test
+    public void reusesPooledConnections() throws IOException {
+        mServer.setCompress(true);
+        ResponseLoader loader = new ResponseLoader(mServer.redirect(new PooledTransport(5000, 5000, 4)), new ResilientCaller(false));
+
+        // Both parsers read and close the body in their own way.
+        for (int format : new int[] {Request.FORMAT_XML, Request.FORMAT_JSON}) {
+            for (int action : new int[] {Request.GET_LATESTFILES, Request.GET_LATESTVOTES, Request.SEARCH}) {
+                Request request = new Request();
+                request.setAction(action);
+                request.setQuery("lab");
+                request.setFormat(format);
+                ResponseCache.getInstance().remove(request);
+
+                assertEquals(action == Request.SEARCH ? 100 : 30, loader.load(request, new CancellationToken(), null).getEntryCount());
+            }
+        }
+
+        assertEquals(6, mServer.getRequestCount());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    private Transport.Connection open(Transport transport, int action) throws IOException {
+        Request request = new Request();
+        request.setAction(action);
+        request.setQuery("lab");
+        return transport.open(mServer.getURL(request), Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Reads the decoded body of a connection, and closes it.
+     */
+    private static byte[] read(Transport.Connection connection) throws IOException {
+        try {
+            InputStream body = connection.getBody();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = body.read(buffer)) >= 0) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            connection.close();
+        }
+    }
+}